@@ -0,0 +1,34 @@
+#!/usr/bin/env bash
+# Shared helpers for the AppCDS scripts.
+
+JAVA="${JAVA_HOME:+$JAVA_HOME/bin/}java"
+JAR_TOOL="${JAVA_HOME:+$JAVA_HOME/bin/}jar"
+MAIN_CLASS="br.com.escorpion.libraryapi.LibraryApiApplication"
+
+# Explodes the Spring Boot fat jar into $2 and prints the flat classpath.
+# CDS only archives classes loaded from plain jars: not from nested jars, and it
+# rejects non-empty directories, so the application classes are repacked as a jar.
+explode_jar() {
+    local jar="$1" dir="$2"
+    rm -rf "$dir" && mkdir -p "$dir"
+    (cd "$dir" && "$JAR_TOOL" xf "$jar")
+    "$JAR_TOOL" cf "$dir/application.jar" -C "$dir/BOOT-INF/classes" .
+    local cp="$dir/application.jar"
+    for lib in "$dir"/BOOT-INF/lib/*.jar; do
+        cp="$cp:$lib"
+    done
+    echo "$cp"
+}
+
+# Polls GET /api/books until it answers 200 and prints the elapsed milliseconds since $2 (epoch ms).
+wait_for_books() {
+    local port="$1" started="$2"
+    for _ in $(seq 1 1200); do
+        if curl -sf -o /dev/null "http://localhost:$port/api/books"; then
+            echo $(( $(date +%s%3N) - started ))
+            return 0
+        fi
+        sleep 0.1
+    done
+    return 1
+}
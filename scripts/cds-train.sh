@@ -0,0 +1,47 @@
+#!/usr/bin/env bash
+# Builds an AppCDS archive for the application jar.
+#
+#   scripts/cds-train.sh target/library-api-0.0.1-SNAPSHOT.jar
+#
+# 1. explodes the jar into target/cds/app
+# 2. runs the app with the cds-training profile (seeded H2), calls GET /api/books and shuts it
+#    down through the actuator while recording the loaded classes
+# 3. dumps those classes into target/cds/app.jsa
+# 4. writes target/cds/run.sh, which starts the app with the archive
+#
+# Needs JDK 10 or newer.
+set -euo pipefail
+
+SCRIPT_DIR="$(cd "$(dirname "$0")" && pwd)"
+source "$SCRIPT_DIR/cds-common.sh"
+
+JAR="$(cd "$(dirname "$1")" && pwd)/$(basename "$1")"
+OUT="$(dirname "$JAR")/cds"
+PORT="${CDS_TRAINING_PORT:-18089}"
+
+CP="$(explode_jar "$JAR" "$OUT/app")"
+
+echo "cds: training run on port $PORT"
+"$JAVA" -Xshare:off -XX:DumpLoadedClassList="$OUT/classes.lst" -cp "$CP" "$MAIN_CLASS" \
+    --spring.profiles.active=cds-training --server.port="$PORT" > "$OUT/training.log" 2>&1 &
+APP_PID=$!
+
+if ! wait_for_books "$PORT" "$(date +%s%3N)" > /dev/null; then
+    kill "$APP_PID" 2>/dev/null || true
+    echo "cds: application did not answer GET /api/books, see $OUT/training.log" >&2
+    exit 1
+fi
+curl -sf -o /dev/null "http://localhost:$PORT/api/books/1/loans"
+curl -sf -o /dev/null -X POST "http://localhost:$PORT/actuator/shutdown"
+wait "$APP_PID" || true
+
+echo "cds: dumping $(wc -l < "$OUT/classes.lst") classes"
+"$JAVA" -Xshare:dump -XX:SharedClassListFile="$OUT/classes.lst" -XX:SharedArchiveFile="$OUT/app.jsa" \
+    -cp "$CP" > "$OUT/dump.log" 2>&1
+
+cat > "$OUT/run.sh" <<RUN
+#!/usr/bin/env bash
+exec "$JAVA" -Xshare:auto -XX:SharedArchiveFile="$OUT/app.jsa" -cp "$CP" $MAIN_CLASS "\$@"
+RUN
+chmod +x "$OUT/run.sh"
+echo "cds: archive written to $OUT/app.jsa, start the app with $OUT/run.sh"
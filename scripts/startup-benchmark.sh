@@ -0,0 +1,43 @@
+#!/usr/bin/env bash
+# Measures time from JVM launch to the first successful GET /api/books.
+#
+#   scripts/startup-benchmark.sh [runs]
+#
+# Compares the plain fat jar (mvn package) with the exploded jar plus AppCDS archive
+# (mvn package -Pcds). Build both first; the plain jar is copied aside because the cds
+# build overwrites it:
+#
+#   mvn package -DskipTests && cp target/library-api-0.0.1-SNAPSHOT.jar target/plain.jar
+#   mvn package -DskipTests -Pcds
+#   scripts/startup-benchmark.sh 5
+set -euo pipefail
+
+SCRIPT_DIR="$(cd "$(dirname "$0")" && pwd)"
+source "$SCRIPT_DIR/cds-common.sh"
+
+RUNS="${1:-5}"
+PORT="${BENCHMARK_PORT:-18090}"
+TARGET="$SCRIPT_DIR/../target"
+PLAIN_JAR="${PLAIN_JAR:-$TARGET/plain.jar}"
+CDS_RUN="$TARGET/cds/run.sh"
+ARGS=(--server.port="$PORT" --application.startup.test-mail.enabled=false --spring.boot.admin.client.enabled=false)
+
+measure() {
+    local label="$1"; shift
+    local total=0
+    for run in $(seq 1 "$RUNS"); do
+        local started
+        started="$(date +%s%3N)"
+        "$@" "${ARGS[@]}" > /dev/null 2>&1 &
+        local pid=$!
+        local elapsed
+        elapsed="$(wait_for_books "$PORT" "$started")"
+        kill "$pid" && wait "$pid" 2>/dev/null || true
+        echo "$label run $run: ${elapsed} ms"
+        total=$(( total + elapsed ))
+    done
+    echo "$label average: $(( total / RUNS )) ms"
+}
+
+[ -f "$PLAIN_JAR" ] && measure "fat jar" "$JAVA" -jar "$PLAIN_JAR"
+[ -x "$CDS_RUN" ] && measure "cds" "$CDS_RUN"
@@ -1,39 +1,20 @@
 package br.com.escorpion.libraryapi;
 
-import br.com.escorpion.libraryapi.api.service.EmailService;
-import lombok.extern.log4j.Log4j;
 import org.modelmapper.ModelMapper;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
-import java.util.Arrays;
-import java.util.List;
-
 @SpringBootApplication
 @EnableScheduling
 public class LibraryApiApplication {
 
-	@Autowired
-	private EmailService emailService;
-
 	@Bean
 	public ModelMapper modelMapper(){
 		return new ModelMapper();
 	}
 
-	@Bean
-	public CommandLineRunner runner(){
-		return args -> {
-			List<String> emails = Arrays.asList("cf68cefd58-fed237@inbox.mailtrap.io");
-			emailService.sendEmails(emails,"Testando serviço de emails");
-			System.out.println("enviando emails");
-		};
-	}
-
 	public static void main(String[] args) {
 		SpringApplication.run(LibraryApiApplication.class, args);
 	}
@@ -1,5 +1,8 @@
 package br.com.escorpion.libraryapi.api.dto;
 
+import br.com.escorpion.libraryapi.api.model.entity.Book;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
@@ -7,6 +10,11 @@ import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 
 import javax.validation.constraints.NotEmpty;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static br.com.escorpion.libraryapi.api.dto.FieldSet.field;
 
 @Getter
 @Setter
@@ -15,6 +23,23 @@ import javax.validation.constraints.NotEmpty;
 @Builder
 public class BookDTO {
 
+    private static final SerializedString TITLE = new SerializedString("title");
+    private static final SerializedString AUTHOR = new SerializedString("author");
+    private static final SerializedString ISBN = new SerializedString("isbn");
+    private static final SerializedString CATEGORY = new SerializedString("category");
+    private static final SerializedString COPIES = new SerializedString("copies");
+
+    /**
+     * Fields that can be picked with {@code ?fields=}; see {@link FieldSet}.
+     */
+    public static final List<FieldSet.Field<Book>> FIELDS = Arrays.asList(
+            field("id", Book::getId),
+            field("title", Book::getTitle),
+            field("author", Book::getAuthor),
+            field("isbn", Book::getIsbn),
+            field("category", Book::getCategory),
+            field("copies", Book::getCopies));
+
     private Long id;
     @NotEmpty
     private String title;
@@ -22,5 +47,26 @@ public class BookDTO {
     private String author;
     @NotEmpty
     private String isbn;
+    private String category;
+    private Integer copies;
 
+    /**
+     * Writes {@code book} as this DTO would be serialized, without creating one; see
+     * {@link StreamingPage}.
+     */
+    public static void write(Book book, JsonGenerator generator) throws IOException {
+        if (book == null) {
+            generator.writeNull();
+            return;
+        }
+        generator.writeStartObject();
+        StreamingPage.writeNumber(generator, StreamingPage.ID, book.getId());
+        StreamingPage.writeString(generator, TITLE, book.getTitle());
+        StreamingPage.writeString(generator, AUTHOR, book.getAuthor());
+        StreamingPage.writeString(generator, ISBN, book.getIsbn());
+        StreamingPage.writeString(generator, CATEGORY, book.getCategory());
+        generator.writeFieldName(COPIES);
+        generator.writeNumber(book.getCopies());
+        generator.writeEndObject();
+    }
 }
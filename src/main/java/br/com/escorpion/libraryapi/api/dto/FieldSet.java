@@ -0,0 +1,191 @@
+package br.com.escorpion.libraryapi.api.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+
+import javax.persistence.Tuple;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Fields requested with {@code ?fields=}, validated against the fields a DTO exposes. A nested
+ * field is named {@code book.title}, and {@code book} alone selects all of them.
+ * <p>
+ * The selection carries the entity attribute of each field, so the query can select only those
+ * columns, and writes either the resulting {@link Tuple}s or whole entities with only the
+ * selected fields, nested ones grouped under their parent, in the DTO's field order.
+ */
+public final class FieldSet<T> {
+
+    /**
+     * One DTO field: its name in the response, the entity attribute path behind it and how to
+     * read it from a loaded entity.
+     */
+    public static final class Field<T> {
+
+        private final String name;
+        private final String attribute;
+        private final Function<T, ?> accessor;
+        private final String parent;
+        private final SerializedString jsonName;
+
+        private Field(String name, String attribute, Function<T, ?> accessor) {
+            this.name = name;
+            this.attribute = attribute;
+            this.accessor = accessor;
+            int dot = name.indexOf('.');
+            this.parent = dot < 0 ? null : name.substring(0, dot);
+            this.jsonName = new SerializedString(dot < 0 ? name : name.substring(dot + 1));
+        }
+    }
+
+    public static <T> Field<T> field(String name, Function<T, ?> accessor) {
+        return new Field<>(name, name, accessor);
+    }
+
+    public static <T> Field<T> field(String name, String attribute, Function<T, ?> accessor) {
+        return new Field<>(name, attribute, accessor);
+    }
+
+    private final List<Field<T>> fields;
+
+    private FieldSet(List<Field<T>> fields) {
+        this.fields = fields;
+    }
+
+    /**
+     * @return the selection, or empty when {@code fields} is blank and the full DTO applies
+     * @throws IllegalArgumentException when a field is not exposed by the DTO
+     */
+    public static <T> Optional<FieldSet<T>> parse(String fields, List<Field<T>> available) {
+        if (fields == null || fields.trim().isEmpty()) {
+            return Optional.empty();
+        }
+        Set<String> requested = new LinkedHashSet<>();
+        for (String token : fields.split(",")) {
+            String name = token.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            boolean known = available.stream().anyMatch(field -> field.name.equals(name) || name.equals(field.parent));
+            if (!known) {
+                throw new IllegalArgumentException("Campo inválido: " + name);
+            }
+            requested.add(name);
+        }
+        List<Field<T>> selected = available.stream()
+                .filter(field -> requested.contains(field.name) || requested.contains(field.parent))
+                .collect(Collectors.toList());
+        return selected.isEmpty() ? Optional.empty() : Optional.of(new FieldSet<>(selected));
+    }
+
+    /**
+     * @return the entity attribute paths to select, in the same order as the tuple columns
+     */
+    public List<String> attributes() {
+        List<String> attributes = new ArrayList<>(fields.size());
+        fields.forEach(field -> attributes.add(field.attribute));
+        return attributes;
+    }
+
+    /**
+     * Writes a row selected with {@link #attributes()}.
+     */
+    public void writeTuple(Tuple tuple, JsonGenerator generator) throws IOException {
+        Object[] values = new Object[fields.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = tuple.get(i);
+        }
+        write(values, generator);
+    }
+
+    /**
+     * Writes the selected fields of an already loaded entity.
+     */
+    public void writeEntity(T entity, JsonGenerator generator) throws IOException {
+        Object[] values = new Object[fields.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = fields.get(i).accessor.apply(entity);
+        }
+        write(values, generator);
+    }
+
+    /**
+     * @return {@code entity} as a response body holding only the selected fields
+     */
+    public JsonSerializable view(T entity) {
+        return new JsonSerializable() {
+            @Override
+            public void serialize(JsonGenerator generator, SerializerProvider serializers) throws IOException {
+                writeEntity(entity, generator);
+            }
+
+            @Override
+            public void serializeWithType(JsonGenerator generator, SerializerProvider serializers,
+                                          TypeSerializer typeSerializer) throws IOException {
+                writeEntity(entity, generator);
+            }
+        };
+    }
+
+    private void write(Object[] values, JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        int i = 0;
+        while (i < values.length) {
+            Field<T> field = fields.get(i);
+            if (field.parent == null) {
+                generator.writeFieldName(field.jsonName);
+                writeValue(values[i++], generator);
+                continue;
+            }
+            int end = i;
+            boolean empty = true;
+            while (end < values.length && field.parent.equals(fields.get(end).parent)) {
+                empty &= values[end++] == null;
+            }
+            generator.writeFieldName(field.parent);
+            if (empty) {
+                // a missing association, as the full DTO would write it
+                generator.writeNull();
+            } else {
+                generator.writeStartObject();
+                for (; i < end; i++) {
+                    generator.writeFieldName(fields.get(i).jsonName);
+                    writeValue(values[i], generator);
+                }
+                generator.writeEndObject();
+            }
+            i = end;
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeValue(Object value, JsonGenerator generator) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else if (value instanceof String) {
+            generator.writeString((String) value);
+        } else if (value instanceof Long || value instanceof Integer) {
+            generator.writeNumber(((Number) value).longValue());
+        } else if (value instanceof LocalDate) {
+            generator.writeString(value.toString());
+        } else {
+            generator.writeObject(value);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return fields.stream().map(field -> field.name).collect(Collectors.joining(","));
+    }
+}
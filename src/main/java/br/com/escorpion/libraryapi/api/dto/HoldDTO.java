@@ -0,0 +1,22 @@
+package br.com.escorpion.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotEmpty;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class HoldDTO {
+
+    private Long id;
+    @NotEmpty
+    private String customer;
+    @NotEmpty
+    private String email;
+    private Long position;
+}
@@ -1,8 +1,20 @@
 package br.com.escorpion.libraryapi.api.dto;
 
+import br.com.escorpion.libraryapi.api.model.entity.Book;
+import br.com.escorpion.libraryapi.api.model.entity.Loan;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
 import lombok.*;
 
 import javax.validation.constraints.NotEmpty;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+import static br.com.escorpion.libraryapi.api.dto.FieldSet.field;
 
 @Data
 @AllArgsConstructor
@@ -10,6 +22,28 @@ import javax.validation.constraints.NotEmpty;
 @Builder
 public class LoanDTO {
 
+    private static final SerializedString ISBN = new SerializedString("isbn");
+    private static final SerializedString CUSTOMER = new SerializedString("customer");
+    private static final SerializedString EMAIL = new SerializedString("email");
+    private static final SerializedString DUE_DATE = new SerializedString("dueDate");
+    private static final SerializedString BOOK = new SerializedString("book");
+
+    /**
+     * Fields that can be picked with {@code ?fields=}; {@code book} picks all the nested ones.
+     * Selecting only {@code book.id} reads the foreign key and needs no join.
+     */
+    public static final List<FieldSet.Field<Loan>> FIELDS = Arrays.asList(
+            field("id", Loan::getId),
+            field("isbn", Loan::getIsbn),
+            field("customer", Loan::getCustomer),
+            field("email", "customerEmail", Loan::getCustomerEmail),
+            field("dueDate", Loan::getDueDate),
+            field("book.id", book(Book::getId)),
+            field("book.title", book(Book::getTitle)),
+            field("book.author", book(Book::getAuthor)),
+            field("book.isbn", book(Book::getIsbn)),
+            field("book.category", book(Book::getCategory)));
+
     private Long id;
     @NotEmpty
     private String isbn;
@@ -17,6 +51,26 @@ public class LoanDTO {
     private String customer;
     @NotEmpty
     private String email;
+    private LocalDate dueDate;
     private BookDTO book;
 
+    /**
+     * Writes {@code loan} as this DTO would be serialized, without creating one; see
+     * {@link StreamingPage}.
+     */
+    public static void write(Loan loan, JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        StreamingPage.writeNumber(generator, StreamingPage.ID, loan.getId());
+        StreamingPage.writeString(generator, ISBN, loan.getIsbn());
+        StreamingPage.writeString(generator, CUSTOMER, loan.getCustomer());
+        StreamingPage.writeString(generator, EMAIL, loan.getCustomerEmail());
+        StreamingPage.writeString(generator, DUE_DATE, loan.getDueDate() == null ? null : loan.getDueDate().toString());
+        generator.writeFieldName(BOOK);
+        BookDTO.write(loan.getBook(), generator);
+        generator.writeEndObject();
+    }
+
+    private static Function<Loan, Object> book(Function<Book, ?> accessor) {
+        return loan -> Optional.ofNullable(loan.getBook()).map(accessor).orElse(null);
+    }
 }
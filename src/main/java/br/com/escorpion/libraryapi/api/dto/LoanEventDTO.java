@@ -0,0 +1,31 @@
+package br.com.escorpion.libraryapi.api.dto;
+
+import br.com.escorpion.libraryapi.api.model.entity.OutboxEvent;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class LoanEventDTO {
+
+    private Long id;
+    private String type;
+    private Long loanId;
+    private Long bookId;
+    private String customer;
+    private LocalDateTime createdAt;
+
+    public static LoanEventDTO of(OutboxEvent event) {
+        return LoanEventDTO.builder()
+                .id(event.getId())
+                .type(event.getType().name())
+                .loanId(event.getLoanId())
+                .bookId(event.getBookId())
+                .customer(event.getCustomer())
+                .createdAt(event.getCreatedAt())
+                .build();
+    }
+}
@@ -1,13 +1,18 @@
 package br.com.escorpion.libraryapi.api.dto;
 
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 @Data
 @Builder
+@AllArgsConstructor
+@NoArgsConstructor
 public class LoanFilterDTO {
 
     private String isbn;
     private String customer;
+    private boolean fullHistory;
 
 }
@@ -0,0 +1,17 @@
+package br.com.escorpion.libraryapi.api.dto;
+
+import org.springframework.data.domain.PageImpl;
+
+import java.util.Collections;
+
+/**
+ * Documentation-only shape of the {@link StreamingPage} of {@link LoanDTO}s the loan listings
+ * write, for {@code @ApiOperation(response = ...)}: springfox cannot see through
+ * {@code StreamingPage<?>}. Never instantiated.
+ */
+public abstract class LoanPageDTO extends PageImpl<LoanDTO> {
+
+    private LoanPageDTO() {
+        super(Collections.emptyList());
+    }
+}
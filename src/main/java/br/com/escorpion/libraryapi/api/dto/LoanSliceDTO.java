@@ -0,0 +1,18 @@
+package br.com.escorpion.libraryapi.api.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Keyset page: {@code next} is the cursor for the following page, {@code null} on the last one.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class LoanSliceDTO {
+
+    private List<LoanDTO> content;
+    private Long next;
+}
@@ -0,0 +1,156 @@
+package br.com.escorpion.libraryapi.api.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.io.IOException;
+
+/**
+ * Page response that writes its entities straight to the response {@link JsonGenerator}, in the
+ * same shape Jackson gives a {@code PageImpl} of DTOs, without building the DTOs, their list or
+ * a second page. Works with any Jackson converter, so JSON and CBOR both stream.
+ * <p>
+ * Field names are pre-encoded once; the generator's own buffers come from Jackson's per-thread
+ * recycler and are flushed to the response as they fill, so the first bytes leave before the
+ * last element is written.
+ */
+public final class StreamingPage<T> implements JsonSerializable {
+
+    static final SerializedString ID = new SerializedString("id");
+
+    private static final SerializedString CONTENT = new SerializedString("content");
+    private static final SerializedString PAGEABLE = new SerializedString("pageable");
+    private static final SerializedString SORT = new SerializedString("sort");
+    private static final SerializedString SORTED = new SerializedString("sorted");
+    private static final SerializedString UNSORTED = new SerializedString("unsorted");
+    private static final SerializedString EMPTY = new SerializedString("empty");
+    private static final SerializedString PAGE_NUMBER = new SerializedString("pageNumber");
+    private static final SerializedString PAGE_SIZE = new SerializedString("pageSize");
+    private static final SerializedString OFFSET = new SerializedString("offset");
+    private static final SerializedString PAGED = new SerializedString("paged");
+    private static final SerializedString UNPAGED = new SerializedString("unpaged");
+    private static final SerializedString LAST = new SerializedString("last");
+    private static final SerializedString TOTAL_PAGES = new SerializedString("totalPages");
+    private static final SerializedString TOTAL_ELEMENTS = new SerializedString("totalElements");
+    private static final SerializedString NUMBER = new SerializedString("number");
+    private static final SerializedString FIRST = new SerializedString("first");
+    private static final SerializedString NUMBER_OF_ELEMENTS = new SerializedString("numberOfElements");
+    private static final SerializedString SIZE = new SerializedString("size");
+
+    /**
+     * Writes one element, a whole JSON value, as it would appear in the DTO list.
+     */
+    @FunctionalInterface
+    public interface ElementWriter<T> {
+        void write(T element, JsonGenerator generator) throws IOException;
+    }
+
+    private final Page<T> page;
+    private final ElementWriter<? super T> writer;
+
+    private StreamingPage(Page<T> page, ElementWriter<? super T> writer) {
+        this.page = page;
+        this.writer = writer;
+    }
+
+    public static <T> StreamingPage<T> of(Page<T> page, ElementWriter<? super T> writer) {
+        return new StreamingPage<>(page, writer);
+    }
+
+    public Page<T> getPage() {
+        return page;
+    }
+
+    @Override
+    public void serialize(JsonGenerator generator, SerializerProvider serializers) throws IOException {
+        generator.writeStartObject();
+        generator.writeFieldName(CONTENT);
+        generator.writeStartArray();
+        for (T element : page.getContent()) {
+            writer.write(element, generator);
+        }
+        generator.writeEndArray();
+        generator.writeFieldName(PAGEABLE);
+        writePageable(page.getPageable(), generator);
+        writeBoolean(generator, LAST, page.isLast());
+        generator.writeFieldName(TOTAL_PAGES);
+        generator.writeNumber(page.getTotalPages());
+        generator.writeFieldName(TOTAL_ELEMENTS);
+        generator.writeNumber(page.getTotalElements());
+        generator.writeFieldName(SORT);
+        writeSort(page.getSort(), generator);
+        generator.writeFieldName(NUMBER);
+        generator.writeNumber(page.getNumber());
+        writeBoolean(generator, FIRST, page.isFirst());
+        generator.writeFieldName(NUMBER_OF_ELEMENTS);
+        generator.writeNumber(page.getNumberOfElements());
+        generator.writeFieldName(SIZE);
+        generator.writeNumber(page.getSize());
+        writeBoolean(generator, EMPTY, page.isEmpty());
+        generator.writeEndObject();
+    }
+
+    @Override
+    public void serializeWithType(JsonGenerator generator, SerializerProvider serializers, TypeSerializer typeSerializer)
+            throws IOException {
+        serialize(generator, serializers);
+    }
+
+    static void writeString(JsonGenerator generator, SerializableString name, String value) throws IOException {
+        generator.writeFieldName(name);
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            generator.writeString(value);
+        }
+    }
+
+    static void writeNumber(JsonGenerator generator, SerializableString name, Long value) throws IOException {
+        generator.writeFieldName(name);
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(value);
+        }
+    }
+
+    private static void writeBoolean(JsonGenerator generator, SerializableString name, boolean value) throws IOException {
+        generator.writeFieldName(name);
+        generator.writeBoolean(value);
+    }
+
+    private static void writePageable(Pageable pageable, JsonGenerator generator) throws IOException {
+        if (pageable.isUnpaged()) {
+            // Pageable.unpaged() is an enum, which Jackson writes by name
+            generator.writeString("INSTANCE");
+            return;
+        }
+        generator.writeStartObject();
+        generator.writeFieldName(SORT);
+        writeSort(pageable.getSort(), generator);
+        generator.writeFieldName(PAGE_NUMBER);
+        generator.writeNumber(pageable.getPageNumber());
+        generator.writeFieldName(PAGE_SIZE);
+        generator.writeNumber(pageable.getPageSize());
+        generator.writeFieldName(OFFSET);
+        generator.writeNumber(pageable.getOffset());
+        writeBoolean(generator, PAGED, pageable.isPaged());
+        writeBoolean(generator, UNPAGED, pageable.isUnpaged());
+        generator.writeEndObject();
+    }
+
+    private static void writeSort(Sort sort, JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        writeBoolean(generator, SORTED, sort.isSorted());
+        writeBoolean(generator, UNSORTED, sort.isUnsorted());
+        writeBoolean(generator, EMPTY, sort.isEmpty());
+        generator.writeEndObject();
+    }
+}
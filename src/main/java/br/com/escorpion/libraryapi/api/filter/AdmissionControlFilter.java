@@ -0,0 +1,145 @@
+package br.com.escorpion.libraryapi.api.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.security.Principal;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Rejects write requests before they reach the controllers: 429 when a client exceeds its
+ * token bucket, 503 when too many writes are already in flight. Neither check blocks, so an
+ * overloaded node answers quickly instead of queueing request threads.
+ * <p>
+ * A client is its authenticated principal, or else its remote address (behind a proxy, set
+ * {@code server.forward-headers-strategy} so it is the caller's). Nothing the client sends
+ * picks its bucket, so it cannot spread its requests over fresh ones.
+ * <p>
+ * At most {@code maxClients} buckets are kept. When a new client finds them all taken, the
+ * idle ones are swept, at most once a second; if none was idle, clients without a bucket share
+ * one until a later sweep makes room.
+ */
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final double ratePerSecond;
+    private final int burst;
+    private final int maxConcurrent;
+    private final int maxClients;
+    private final LongSupplier nanoClock;
+
+    private final ConcurrentMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final TokenBucket overflow;
+    private final AtomicLong nextSweep;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final Counter admitted;
+    private final Counter rateLimited;
+    private final Counter overloaded;
+
+    public AdmissionControlFilter(double ratePerSecond, int burst, int maxConcurrent, int maxClients,
+                                  MeterRegistry registry) {
+        this(ratePerSecond, burst, maxConcurrent, maxClients, registry, System::nanoTime);
+    }
+
+    AdmissionControlFilter(double ratePerSecond, int burst, int maxConcurrent, int maxClients,
+                           MeterRegistry registry, LongSupplier nanoClock) {
+        this.ratePerSecond = ratePerSecond;
+        this.burst = burst;
+        this.maxConcurrent = maxConcurrent;
+        this.maxClients = maxClients;
+        this.nanoClock = nanoClock;
+        long now = nanoClock.getAsLong();
+        this.overflow = new TokenBucket(ratePerSecond, burst, now);
+        this.nextSweep = new AtomicLong(now);
+        this.admitted = registry.counter("library.admission.requests", "outcome", "admitted");
+        this.rateLimited = registry.counter("library.admission.requests", "outcome", "rate_limited");
+        this.overloaded = registry.counter("library.admission.requests", "outcome", "overloaded");
+        registry.gauge("library.admission.in_flight", inFlight);
+        registry.gaugeMapSize("library.admission.clients", Collections.emptyList(), buckets);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.POST.matches(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long now = nanoClock.getAsLong();
+        long waitNanos = bucketFor(clientKey(request), now).tryAcquire(now);
+        if (waitNanos > 0) {
+            rateLimited.increment();
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, waitNanos, "Rate limit exceeded");
+            return;
+        }
+
+        if (inFlight.incrementAndGet() > maxConcurrent) {
+            inFlight.decrementAndGet();
+            overloaded.increment();
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, TimeUnit.SECONDS.toNanos(1), "Server overloaded");
+            return;
+        }
+
+        try {
+            admitted.increment();
+            chain.doFilter(request, response);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private static String clientKey(HttpServletRequest request) {
+        Principal principal = request.getUserPrincipal();
+        return principal != null ? "user:" + principal.getName() : "addr:" + request.getRemoteAddr();
+    }
+
+    private TokenBucket bucketFor(String clientKey, long now) {
+        TokenBucket bucket = buckets.get(clientKey);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxClients && !sweep(now)) {
+            return overflow;
+        }
+        return buckets.computeIfAbsent(clientKey, key -> new TokenBucket(ratePerSecond, burst, now));
+    }
+
+    /**
+     * Drops the buckets that refilled completely, which is the same as keeping them.
+     *
+     * @return {@code true} when there is room for a new bucket
+     */
+    private boolean sweep(long now) {
+        long next = nextSweep.get();
+        if (now - next >= 0 && nextSweep.compareAndSet(next, now + SWEEP_INTERVAL_NANOS)) {
+            buckets.values().removeIf(bucket -> bucket.isIdle(now));
+        }
+        return buckets.size() < maxClients;
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status, long retryAfterNanos, String message)
+            throws IOException {
+        response.setStatus(status.value());
+        response.setHeader("Retry-After", String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(retryAfterNanos) + 1)));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"errors\":[\"" + message + "\"]}");
+    }
+}
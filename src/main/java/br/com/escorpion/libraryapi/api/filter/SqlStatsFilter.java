@@ -0,0 +1,76 @@
+package br.com.escorpion.libraryapi.api.filter;
+
+import br.com.escorpion.libraryapi.config.SqlStats;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opens a {@link SqlStats} scope per request and records its statements, rows and JDBC time
+ * as metrics tagged with the matched route. With {@code headers} on (the dev profile) the
+ * totals are also returned as {@code X-Sql-*} response headers.
+ */
+public class SqlStatsFilter extends OncePerRequestFilter {
+
+    public static final String STATEMENTS_HEADER = "X-Sql-Statements";
+    public static final String ROWS_HEADER = "X-Sql-Rows";
+    public static final String TIME_HEADER = "X-Sql-Time-Ms";
+    public static final String MAX_REPEATS_HEADER = "X-Sql-Max-Repeats";
+
+    private final MeterRegistry meterRegistry;
+    private final boolean headers;
+
+    public SqlStatsFilter(MeterRegistry meterRegistry, boolean headers) {
+        this.meterRegistry = meterRegistry;
+        this.headers = headers;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        try (SqlStats.Scope scope = SqlStats.open()) {
+            try {
+                chain.doFilter(request, response);
+                if (headers) {
+                    writeHeaders(scope, response);
+                }
+            } finally {
+                // requests that fail are often the expensive ones
+                record(scope, request);
+            }
+        }
+    }
+
+    /**
+     * Called once more right before a response body is written, since the headers cannot be
+     * added after the body has committed the response.
+     */
+    public static void writeHeaders(SqlStats.Scope scope, HttpServletResponse response) {
+        if (response.isCommitted()) {
+            return;
+        }
+        response.setHeader(STATEMENTS_HEADER, String.valueOf(scope.getStatements()));
+        response.setHeader(ROWS_HEADER, String.valueOf(scope.getRows()));
+        response.setHeader(TIME_HEADER, String.valueOf(TimeUnit.NANOSECONDS.toMillis(scope.getJdbcNanos())));
+        response.setHeader(MAX_REPEATS_HEADER, String.valueOf(scope.getMaxRepeats()));
+    }
+
+    private void record(SqlStats.Scope scope, HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        Tags tags = Tags.of("method", request.getMethod(), "uri", pattern == null ? "UNKNOWN" : pattern.toString());
+        DistributionSummary.builder("library.sql.request.statements").tags(tags).register(meterRegistry)
+                .record(scope.getStatements());
+        DistributionSummary.builder("library.sql.request.rows").tags(tags).register(meterRegistry)
+                .record(scope.getRows());
+        meterRegistry.timer("library.sql.request.jdbc", tags).record(scope.getJdbcNanos(), TimeUnit.NANOSECONDS);
+    }
+}
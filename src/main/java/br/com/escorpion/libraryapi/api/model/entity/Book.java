@@ -11,7 +11,9 @@ import java.util.List;
 @AllArgsConstructor
 @RequiredArgsConstructor
 @Entity
-@Table
+@Table(indexes = {
+        @Index(name = "idx_book_isbn_key", columnList = "isbn_key", unique = true),
+        @Index(name = "idx_book_isbn", columnList = "isbn")})
 public class Book {
 
     @Id
@@ -24,6 +26,29 @@ public class Book {
     private String author;
     @Column
     private String isbn;
+    @Column(name = "isbn_key")
+    private Long isbnKey;
+    /**
+     * Picks the {@code LoanPolicy} loan period; books without one get the default period.
+     */
+    @Column(length = 50)
+    private String category;
+    @Column(nullable = false)
+    private int copies;
+    /**
+     * Copies not on loan. Only changed by the conditional updates in {@code BookRepository},
+     * never by saving the entity, so a stale cached copy cannot overwrite it.
+     */
+    @Column(nullable = false, updatable = false)
+    private int available;
     @OneToMany(mappedBy = "book")
     private List<Loan> loans;
+
+    @PrePersist
+    void initCopies() {
+        if (copies < 1) {
+            copies = 1;
+        }
+        available = copies;
+    }
 }
@@ -0,0 +1,26 @@
+package br.com.escorpion.libraryapi.api.model.entity;
+
+import lombok.*;
+
+import javax.persistence.*;
+
+@Builder
+@Getter
+@Setter
+@AllArgsConstructor
+@RequiredArgsConstructor
+@Entity
+@Table(indexes = @Index(name = "idx_customer_email", columnList = "email", unique = true))
+public class Customer {
+
+    @Id
+    @Column
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(length = 100)
+    private String name;
+
+    @Column(nullable = false)
+    private String email;
+}
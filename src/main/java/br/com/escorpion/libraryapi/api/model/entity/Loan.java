@@ -4,6 +4,7 @@ import lombok.*;
 
 import javax.persistence.*;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 @Builder
 @Getter
@@ -11,12 +12,22 @@ import java.time.LocalDate;
 @AllArgsConstructor
 @RequiredArgsConstructor
 @Entity
-@Table
+@Table(indexes = {
+        @Index(name = "idx_loan_next_reminder_date", columnList = "next_reminder_date"),
+        @Index(name = "idx_loan_due_date", columnList = "due_date, returned"),
+        @Index(name = "idx_loan_customer_id", columnList = "id_customer, id")})
 public class Loan {
 
+    /**
+     * A sequence lets new loans be inserted in JDBC batches, where identity ids force one
+     * insert per loan as soon as it is persisted. Ids are taken one at a time, not in blocks
+     * per JVM, so they keep following creation order across replicas (the customer history
+     * pages newest first by id).
+     */
     @Id
     @Column
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "loan_seq")
+    @SequenceGenerator(name = "loan_seq", sequenceName = "loan_seq", allocationSize = 1)
     private Long id;
 
     @Column
@@ -27,6 +38,10 @@ public class Loan {
 
     @Column(name = "customer_email")
     private String customerEmail;
+
+    @JoinColumn(name = "id_customer")
+    @ManyToOne(fetch = FetchType.LAZY)
+    private Customer borrower;
     @JoinColumn(name = "id_book")
     @ManyToOne
     private Book book;
@@ -36,4 +51,20 @@ public class Loan {
 
     @Column
     private boolean returned;
+
+    @Column(name = "reminder_count")
+    private int reminderCount;
+
+    @Column(name = "last_notified_at")
+    private LocalDateTime lastNotifiedAt;
+
+    @Column(name = "next_reminder_date")
+    private LocalDate nextReminderDate;
+
+    /**
+     * Set from the {@code LoanPolicy} when the loan is created, so overdue and due-soon queries
+     * are range scans on this column instead of date arithmetic over {@link #loanDate}.
+     */
+    @Column(name = "due_date")
+    private LocalDate dueDate;
 }
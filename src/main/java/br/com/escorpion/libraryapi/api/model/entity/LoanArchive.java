@@ -0,0 +1,63 @@
+package br.com.escorpion.libraryapi.api.model.entity;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Cold copy of a returned {@link Loan}. Rows keep the original loan id and
+ * columns so history queries can union both tables without remapping.
+ */
+@Builder
+@Getter
+@Setter
+@AllArgsConstructor
+@RequiredArgsConstructor
+@Entity
+@Table(name = "loan_archive", indexes = {
+        @Index(name = "idx_loan_archive_customer_id", columnList = "id_customer, id"),
+        @Index(name = "idx_loan_archive_book_id", columnList = "id_book")})
+public class LoanArchive {
+
+    @Id
+    @Column
+    private Long id;
+
+    @Column
+    private String isbn;
+
+    @Column(length = 100)
+    private String customer;
+
+    @Column(name = "customer_email")
+    private String customerEmail;
+
+    @Column(name = "id_customer")
+    private Long customerId;
+
+    @Column(name = "id_book")
+    private Long bookId;
+
+    @Column
+    private LocalDate loanDate;
+
+    @Column
+    private boolean returned;
+
+    @Column(name = "reminder_count")
+    private int reminderCount;
+
+    @Column(name = "last_notified_at")
+    private LocalDateTime lastNotifiedAt;
+
+    @Column(name = "next_reminder_date")
+    private LocalDate nextReminderDate;
+
+    @Column(name = "due_date")
+    private LocalDate dueDate;
+
+    @Column
+    private LocalDate archivedDate;
+}
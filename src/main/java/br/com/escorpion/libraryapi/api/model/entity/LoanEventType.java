@@ -0,0 +1,6 @@
+package br.com.escorpion.libraryapi.api.model.entity;
+
+public enum LoanEventType {
+    CREATED,
+    RETURNED
+}
@@ -0,0 +1,52 @@
+package br.com.escorpion.libraryapi.api.model.entity;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * A customer waiting for a loaned book. Holds of a book are served in id order: when the book
+ * is returned, the oldest waiting hold is fulfilled with a new loan to its customer.
+ */
+@Builder
+@Getter
+@Setter
+@AllArgsConstructor
+@RequiredArgsConstructor
+@Entity
+@Table(name = "loan_hold", indexes = @Index(name = "idx_loan_hold_book_status", columnList = "id_book, status, id"))
+public class LoanHold {
+
+    @Id
+    @Column
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @JoinColumn(name = "id_book", nullable = false)
+    @ManyToOne(fetch = FetchType.LAZY)
+    private Book book;
+
+    @JoinColumn(name = "id_customer", nullable = false)
+    @ManyToOne(fetch = FetchType.LAZY)
+    private Customer borrower;
+
+    @Column(length = 100)
+    private String customer;
+
+    @Column(name = "customer_email")
+    private String customerEmail;
+
+    @Column(length = 20, nullable = false)
+    @Enumerated(EnumType.STRING)
+    private HoldStatus status;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "fulfilled_at")
+    private LocalDateTime fulfilledAt;
+
+    @Column(name = "loan_id")
+    private Long loanId;
+}
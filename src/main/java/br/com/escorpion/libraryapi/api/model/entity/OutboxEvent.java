@@ -0,0 +1,77 @@
+package br.com.escorpion.libraryapi.api.model.entity;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Loan lifecycle change written in the same transaction as the loan itself and delivered to
+ * {@link br.com.escorpion.libraryapi.api.service.LoanEventListener}s afterwards by the outbox
+ * relay. Carries a snapshot of the loan so consumers do not need to read it back.
+ */
+@Builder
+@Getter
+@Setter
+@AllArgsConstructor
+@RequiredArgsConstructor
+@Entity
+@Table(name = "outbox_event", indexes = @Index(name = "idx_outbox_event_pending", columnList = "processed_at, id"))
+public class OutboxEvent {
+
+    /**
+     * Taken one at a time from a shared sequence, so ids follow creation order across
+     * replicas; the event stream and its resume cursor rely on it.
+     */
+    @Id
+    @Column
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_event_seq")
+    @SequenceGenerator(name = "outbox_event_seq", sequenceName = "outbox_event_seq", allocationSize = 1)
+    private Long id;
+
+    @Column(length = 20, nullable = false)
+    @Enumerated(EnumType.STRING)
+    private LoanEventType type;
+
+    @Column(name = "loan_id")
+    private Long loanId;
+
+    @Column(name = "id_book")
+    private Long bookId;
+
+    @Column(length = 100)
+    private String customer;
+
+    @Column(name = "customer_email")
+    private String customerEmail;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+
+    @Column
+    private int attempts;
+
+    /**
+     * Relay batch that took the event for delivery, and until when. Once that passed, e.g. when
+     * its node died in the middle of the batch, another batch may take the event again.
+     */
+    @Column(name = "claimed_by", length = 100)
+    private String claimedBy;
+
+    @Column(name = "claimed_until")
+    private LocalDateTime claimedUntil;
+
+    public static OutboxEvent of(LoanEventType type, Loan loan) {
+        return OutboxEvent.builder()
+                .type(type)
+                .loanId(loan.getId())
+                .bookId(loan.getBook() == null ? null : loan.getBook().getId())
+                .customer(loan.getCustomer())
+                .customerEmail(loan.getCustomerEmail())
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,33 @@
+package br.com.escorpion.libraryapi.api.model.entity;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Cluster-wide lock for a scheduled job. A node owns the job while {@code lockedUntil} is in
+ * the future; taking it over is a single conditional update, so at most one node wins.
+ */
+@Builder
+@Getter
+@Setter
+@AllArgsConstructor
+@RequiredArgsConstructor
+@Entity
+@Table(name = "scheduler_lease")
+public class SchedulerLease {
+
+    @Id
+    @Column(length = 64)
+    private String name;
+
+    @Column(length = 100)
+    private String owner;
+
+    @Column(name = "locked_at")
+    private LocalDateTime lockedAt;
+
+    @Column(name = "locked_until", nullable = false)
+    private LocalDateTime lockedUntil;
+}
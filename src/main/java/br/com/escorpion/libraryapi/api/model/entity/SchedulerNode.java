@@ -0,0 +1,27 @@
+package br.com.escorpion.libraryapi.api.model.entity;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Live application node, kept current by a heartbeat. Used to split partitioned jobs among
+ * the nodes that are up.
+ */
+@Builder
+@Getter
+@Setter
+@AllArgsConstructor
+@RequiredArgsConstructor
+@Entity
+@Table(name = "scheduler_node", indexes = @Index(name = "idx_scheduler_node_heartbeat", columnList = "heartbeat_at"))
+public class SchedulerNode {
+
+    @Id
+    @Column(length = 100)
+    private String id;
+
+    @Column(name = "heartbeat_at", nullable = false)
+    private LocalDateTime heartbeatAt;
+}
@@ -2,11 +2,69 @@ package br.com.escorpion.libraryapi.api.repository;
 
 import br.com.escorpion.libraryapi.api.model.entity.Book;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface BookRepository extends JpaRepository<Book, Long> {
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+public interface BookRepository extends JpaRepository<Book, Long>, BookRepositoryCustom {
     boolean existsByIsbn(String isbn);
 
     Optional<Book> findByIsbn(String isbn);
+
+    boolean existsByIsbnKey(Long isbnKey);
+
+    Optional<Book> findByIsbnKey(Long isbnKey);
+
+    List<Book> findByIsbnIn(Collection<String> isbns);
+
+    List<Book> findByIsbnKeyIn(Collection<Long> isbnKeys);
+
+    @Query("select b.isbn from Book b where b.isbn is not null")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    Stream<String> streamAllIsbns();
+
+    /**
+     * Takes one copy of the book, in the same statement that checks there is one left.
+     *
+     * @return 1 when a copy was taken, 0 when none was available
+     */
+    @Modifying
+    @Query("update Book b set b.available = b.available - 1 where b.id = :id and b.available > 0")
+    int checkout(@Param("id") Long id);
+
+    /**
+     * Puts a returned copy back on the shelf.
+     *
+     * @return 1 when the copy was counted, 0 when all copies were already available
+     */
+    @Modifying
+    @Query("update Book b set b.available = b.available + 1 where b.id = :id and b.available < b.copies")
+    int giveBack(@Param("id") Long id);
+
+    /**
+     * Locks the book's row until the end of the transaction, only when no copy is left. A hold
+     * taken under this lock and a {@link #giveBack} of the same book run one after the other,
+     * so a return always sees the holds committed before it.
+     *
+     * @return 1 when the book is out of copies and now locked, 0 when a copy is available
+     */
+    @Modifying
+    @Query("update Book b set b.available = b.available where b.id = :id and b.available = 0")
+    int lockUnavailable(@Param("id") Long id);
+
+    @Query("select b.available from Book b where b.id = :id")
+    int findAvailableById(@Param("id") Long id);
+
+    @Query("select b.isbnKey, b.id from Book b where b.isbnKey is not null")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    Stream<Object[]> streamIsbnKeys();
 }
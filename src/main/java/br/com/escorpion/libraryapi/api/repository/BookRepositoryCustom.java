@@ -0,0 +1,17 @@
+package br.com.escorpion.libraryapi.api.repository;
+
+import br.com.escorpion.libraryapi.api.model.entity.Book;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.Tuple;
+import java.util.List;
+
+public interface BookRepositoryCustom {
+
+    /**
+     * @return only the given attributes of the matching books, in that order
+     */
+    Page<Tuple> findProjected(Specification<Book> where, List<String> attributes, Pageable pageable);
+}
@@ -0,0 +1,22 @@
+package br.com.escorpion.libraryapi.api.repository;
+
+import br.com.escorpion.libraryapi.api.model.entity.Book;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import java.util.List;
+
+class BookRepositoryCustomImpl implements BookRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<Tuple> findProjected(Specification<Book> where, List<String> attributes, Pageable pageable) {
+        return ProjectionQueries.findPage(entityManager, Book.class, where, attributes, pageable);
+    }
+}
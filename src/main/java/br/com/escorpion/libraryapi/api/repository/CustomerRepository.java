@@ -0,0 +1,11 @@
+package br.com.escorpion.libraryapi.api.repository;
+
+import br.com.escorpion.libraryapi.api.model.entity.Customer;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
+
+public interface CustomerRepository extends JpaRepository<Customer, Long> {
+
+    Optional<Customer> findByEmail(String email);
+}
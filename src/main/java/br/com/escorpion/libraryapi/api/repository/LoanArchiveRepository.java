@@ -0,0 +1,21 @@
+package br.com.escorpion.libraryapi.api.repository;
+
+import br.com.escorpion.libraryapi.api.model.entity.LoanArchive;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface LoanArchiveRepository extends JpaRepository<LoanArchive, Long> {
+
+    @Modifying
+    @Query(value = "insert into loan_archive (id, isbn, customer, customer_email, id_customer, id_book, loan_date, returned, " +
+            "reminder_count, last_notified_at, next_reminder_date, due_date, archived_date) " +
+            "select l.id, l.isbn, l.customer, l.customer_email, l.id_customer, l.id_book, l.loan_date, l.returned, " +
+            "l.reminder_count, l.last_notified_at, l.next_reminder_date, l.due_date, :archivedDate " +
+            "from loan l where l.id in (:ids)", nativeQuery = true)
+    int copyFromLoans(@Param("ids") List<Long> ids, @Param("archivedDate") LocalDate archivedDate);
+}
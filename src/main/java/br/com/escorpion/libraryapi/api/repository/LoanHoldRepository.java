@@ -0,0 +1,47 @@
+package br.com.escorpion.libraryapi.api.repository;
+
+import br.com.escorpion.libraryapi.api.model.entity.Book;
+import br.com.escorpion.libraryapi.api.model.entity.Customer;
+import br.com.escorpion.libraryapi.api.model.entity.HoldStatus;
+import br.com.escorpion.libraryapi.api.model.entity.LoanHold;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import javax.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+public interface LoanHoldRepository extends JpaRepository<LoanHold, Long> {
+
+    boolean existsByBookAndBorrowerAndStatus(Book book, Customer borrower, HoldStatus status);
+
+    boolean existsByBookAndStatus(Book book, HoldStatus status);
+
+    Optional<LoanHold> findFirstByBookAndStatusOrderByIdAsc(Book book, HoldStatus status);
+
+    /**
+     * @return 1-based place of the hold among the book's waiting holds
+     */
+    @Query("select count(h.id) from LoanHold h where h.book = :book and h.status = :status and h.id <= :id")
+    long countQueuedUpTo(@Param("book") Book book, @Param("status") HoldStatus status, @Param("id") Long id);
+
+    @Query("select h.book.id, h.id from LoanHold h where h.status = :status order by h.id")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    Stream<Object[]> streamByStatus(@Param("status") HoldStatus status);
+
+    /**
+     * Claims a waiting hold. Conditional on its status, so of two replicas handing the same
+     * hold over only one gets 1.
+     */
+    @Modifying
+    @Query("update LoanHold h set h.status = :fulfilled, h.fulfilledAt = :fulfilledAt " +
+            "where h.id = :id and h.status = :waiting")
+    int claim(@Param("id") Long id, @Param("waiting") HoldStatus waiting, @Param("fulfilled") HoldStatus fulfilled,
+              @Param("fulfilledAt") LocalDateTime fulfilledAt);
+}
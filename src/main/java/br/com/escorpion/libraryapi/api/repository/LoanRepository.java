@@ -3,27 +3,160 @@ package br.com.escorpion.libraryapi.api.repository;
 
 import br.com.escorpion.libraryapi.api.model.entity.Book;
 import br.com.escorpion.libraryapi.api.model.entity.Loan;
+import br.com.escorpion.libraryapi.api.service.support.OverdueLoan;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
-public interface LoanRepository extends JpaRepository<Loan, Long> {
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+public interface LoanRepository extends JpaRepository<Loan, Long>, LoanRepositoryCustom {
     @Query("select case when (count(l.id) > 0) then true else false end " +
             "from Loan l " +
             "where l.book = :book and (l.returned is null or l.returned is false)")
     boolean existsByBookAndNotReturned(@Param("book") Book book);
 
 
+    @EntityGraph(attributePaths = "book")
     @Query(value = "select l from Loan as l join l.book as b where b.isbn =:isbn or l.customer =:customer")
     Page<Loan> findByBookIsbnOrCustomer(@Param("isbn") String isbn,@Param("customer") String customer, Pageable pageable);
 
+    @EntityGraph(attributePaths = "book")
     Page<Loan> findByBook(Book book, Pageable pageable);
 
     @Query(value = "select l from Loan as l where l.loanDate <= :threeDaysAgo and (l.returned is null or l.returned is false)")
     List<Loan> findByLoanDateLessThanAndNotReturned(@Param("threeDaysAgo") LocalDate threeDaysAgo);
+
+    /**
+     * Range scan on the (due_date, returned) index, like {@link #findNotReturnedDueBefore}.
+     */
+    @Query(value = "select l from Loan as l where l.returned = false and l.dueDate <= :date")
+    List<Loan> findNotReturnedDueUpTo(@Param("date") LocalDate date);
+
+    /**
+     * Range scan on the (due_date, returned) index, earliest due first. {@code returned} comes second
+     * so the index is not picked for the archiver, which selects returned loans by loan date.
+     */
+    @EntityGraph(attributePaths = "book")
+    @Query(value = "select l from Loan as l where l.returned = false and l.dueDate < :before order by l.dueDate, l.id",
+            countQuery = "select count(l.id) from Loan as l where l.returned = false and l.dueDate < :before")
+    Page<Loan> findNotReturnedDueBefore(@Param("before") LocalDate before, Pageable pageable);
+
+    /**
+     * Loans of partition {@code index} of {@code count}, split by customer id so that all of a
+     * customer's loans land in one partition; loans without a customer go to partition 0.
+     */
+    @Query(value = "select new br.com.escorpion.libraryapi.api.service.support.OverdueLoan(" +
+            "l.id, l.customerEmail, l.customer, b.title, l.loanDate, l.dueDate, l.reminderCount) " +
+            "from Loan as l join l.book as b " +
+            "where l.nextReminderDate <= :today and l.returned = false and l.customerEmail is not null " +
+            "and mod(coalesce(l.borrower.id, 0), :count) = :index " +
+            "order by l.customerEmail, l.loanDate")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    Stream<OverdueLoan> streamDueReminders(@Param("today") LocalDate today,
+                                           @Param("count") int count, @Param("index") int index);
+
+    /**
+     * Records a sent reminder. Conditional on the count read when the reminder was selected,
+     * so a loan picked up twice (e.g. by overlapping partitions) advances only once.
+     */
+    @Modifying
+    @Query("update Loan l set l.reminderCount = l.reminderCount + 1, l.lastNotifiedAt = :notifiedAt, " +
+            "l.nextReminderDate = :nextReminderDate where l.id = :id and l.reminderCount = :reminderCount")
+    int markReminded(@Param("id") Long id, @Param("reminderCount") int reminderCount,
+                     @Param("notifiedAt") LocalDateTime notifiedAt, @Param("nextReminderDate") LocalDate nextReminderDate);
+
+    /**
+     * Returns the loan, in the same statement that checks it is still out, so of two concurrent
+     * returns only one counts.
+     *
+     * @return 1 when the loan was returned now, 0 when it already was
+     */
+    @Modifying
+    @Query("update Loan l set l.returned = true, l.nextReminderDate = null where l.id = :id and l.returned = false")
+    int markReturned(@Param("id") Long id);
+
+    /**
+     * Locks the loan's row until the end of the transaction, only while it is not returned, so
+     * an update that keeps it out cannot overwrite a concurrent return.
+     *
+     * @return 1 when the loan is out and now locked, 0 when it is returned
+     */
+    @Modifying
+    @Query("update Loan l set l.returned = l.returned where l.id = :id and l.returned = false")
+    int lockNotReturned(@Param("id") Long id);
+
+    @Query(value = "select l.id from Loan as l where l.returned = true and l.loanDate <= :cutoff order by l.id")
+    List<Long> findReturnedIdsUpTo(@Param("cutoff") LocalDate cutoff, Pageable pageable);
+
+    @Modifying
+    @Query(value = "delete from Loan l where l.id in :ids")
+    int deleteByIds(@Param("ids") List<Long> ids);
+
+    /**
+     * Live and archived loans of one book, oldest first. The order is fixed in the query, so
+     * the pageable must not carry a sort (see {@code LoanServiceImpl}).
+     */
+    @Query(value = "select h.* from (" +
+            "select l.id, l.isbn, l.customer, l.customer_email, l.id_customer, l.id_book, l.loan_date, l.returned, " +
+            "l.reminder_count, l.last_notified_at, l.next_reminder_date, l.due_date from loan l where l.id_book = :bookId " +
+            "union all " +
+            "select a.id, a.isbn, a.customer, a.customer_email, a.id_customer, a.id_book, a.loan_date, a.returned, " +
+            "a.reminder_count, a.last_notified_at, a.next_reminder_date, a.due_date from loan_archive a where a.id_book = :bookId" +
+            ") h order by h.id",
+            countQuery = "select count(*) from (" +
+                    "select l.id from loan l where l.id_book = :bookId " +
+                    "union all " +
+                    "select a.id from loan_archive a where a.id_book = :bookId" +
+                    ") h",
+            nativeQuery = true)
+    Page<Loan> findHistoryByBook(@Param("bookId") Long bookId, Pageable pageable);
+
+    /**
+     * Same as {@link #findHistoryByBook}, for {@code findByBookIsbnOrCustomer}'s filter.
+     */
+    @Query(value = "select h.* from (" +
+            "select l.id, l.isbn, l.customer, l.customer_email, l.id_customer, l.id_book, l.loan_date, l.returned, " +
+            "l.reminder_count, l.last_notified_at, l.next_reminder_date, l.due_date from loan l " +
+            "join book b on b.id = l.id_book where b.isbn = :isbn or l.customer = :customer " +
+            "union all " +
+            "select a.id, a.isbn, a.customer, a.customer_email, a.id_customer, a.id_book, a.loan_date, a.returned, " +
+            "a.reminder_count, a.last_notified_at, a.next_reminder_date, a.due_date from loan_archive a " +
+            "join book b on b.id = a.id_book where b.isbn = :isbn or a.customer = :customer" +
+            ") h order by h.id",
+            countQuery = "select count(*) from (" +
+                    "select l.id from loan l join book b on b.id = l.id_book where b.isbn = :isbn or l.customer = :customer " +
+                    "union all " +
+                    "select a.id from loan_archive a join book b on b.id = a.id_book where b.isbn = :isbn or a.customer = :customer" +
+                    ") h",
+            nativeQuery = true)
+    Page<Loan> findHistoryByBookIsbnOrCustomer(@Param("isbn") String isbn, @Param("customer") String customer, Pageable pageable);
+
+    /**
+     * Keyset page over live and archived loans of one customer, newest first. Each branch is a
+     * range scan on its (id_customer, id) index, whatever the depth of the page.
+     */
+    @Query(value = "select h.* from (" +
+            "(select l.id, l.isbn, l.customer, l.customer_email, l.id_customer, l.id_book, l.loan_date, l.returned, " +
+            "l.reminder_count, l.last_notified_at, l.next_reminder_date, l.due_date from loan l " +
+            "where l.id_customer = :customerId and l.id < :beforeId order by l.id desc limit :size) " +
+            "union all " +
+            "(select a.id, a.isbn, a.customer, a.customer_email, a.id_customer, a.id_book, a.loan_date, a.returned, " +
+            "a.reminder_count, a.last_notified_at, a.next_reminder_date, a.due_date from loan_archive a " +
+            "where a.id_customer = :customerId and a.id < :beforeId order by a.id desc limit :size)" +
+            ") h order by h.id desc limit :size",
+            nativeQuery = true)
+    List<Loan> findHistoryByCustomerBefore(@Param("customerId") Long customerId, @Param("beforeId") Long beforeId,
+                                           @Param("size") int size);
 }
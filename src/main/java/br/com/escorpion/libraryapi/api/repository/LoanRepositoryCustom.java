@@ -0,0 +1,17 @@
+package br.com.escorpion.libraryapi.api.repository;
+
+import br.com.escorpion.libraryapi.api.model.entity.Loan;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.Tuple;
+import java.util.List;
+
+public interface LoanRepositoryCustom {
+
+    /**
+     * @return only the given attributes of the matching loans, in that order
+     */
+    Page<Tuple> findProjected(Specification<Loan> where, List<String> attributes, Pageable pageable);
+}
@@ -0,0 +1,66 @@
+package br.com.escorpion.libraryapi.api.repository;
+
+import br.com.escorpion.libraryapi.api.model.entity.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    @Query("select e.id from OutboxEvent e where e.processedAt is null and e.attempts < :maxAttempts " +
+            "and (e.claimedUntil is null or e.claimedUntil < :now) order by e.id")
+    List<Long> findPendingIds(@Param("maxAttempts") int maxAttempts, @Param("now") LocalDateTime now,
+                              Pageable pageable);
+
+    /**
+     * Takes the events for one relay batch, in the same statement that checks no other batch
+     * holds them, so of the nodes that read the same pending ids only one delivers each event.
+     *
+     * @return how many of {@code ids} the batch took
+     */
+    @Modifying
+    @Query("update OutboxEvent e set e.claimedBy = :claimedBy, e.claimedUntil = :until " +
+            "where e.id in :ids and e.processedAt is null and (e.claimedUntil is null or e.claimedUntil < :now)")
+    int claim(@Param("ids") List<Long> ids, @Param("claimedBy") String claimedBy,
+              @Param("now") LocalDateTime now, @Param("until") LocalDateTime until);
+
+    @Query("select e from OutboxEvent e where e.claimedBy = :claimedBy and e.processedAt is null order by e.id")
+    List<OutboxEvent> findClaimed(@Param("claimedBy") String claimedBy);
+
+    @Query("select e from OutboxEvent e where e.id > :afterId order by e.id")
+    List<OutboxEvent> findAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("select e from OutboxEvent e where e.id > :afterId and e.id <= :upTo order by e.id")
+    List<OutboxEvent> findBetween(@Param("afterId") Long afterId, @Param("upTo") Long upTo, Pageable pageable);
+
+    @Query("select max(e.id) from OutboxEvent e")
+    Long findMaxId();
+
+    @Modifying
+    @Query("update OutboxEvent e set e.processedAt = :processedAt where e.id in :ids")
+    int markProcessed(@Param("ids") List<Long> ids, @Param("processedAt") LocalDateTime processedAt);
+
+    @Modifying
+    @Query("update OutboxEvent e set e.attempts = e.attempts + 1, e.claimedUntil = null where e.id = :id")
+    int incrementAttempts(@Param("id") Long id);
+
+    @Modifying
+    @Query("delete from OutboxEvent e where e.processedAt < :cutoff")
+    int deleteProcessedBefore(@Param("cutoff") LocalDateTime cutoff);
+
+    /**
+     * Dead letters: events the relay gave up on after {@code maxAttempts} failed deliveries.
+     */
+    @Query("select count(e.id) from OutboxEvent e where e.processedAt is null and e.attempts >= :maxAttempts")
+    long countDead(@Param("maxAttempts") int maxAttempts);
+
+    @Modifying
+    @Query("delete from OutboxEvent e where e.processedAt is null and e.attempts >= :maxAttempts " +
+            "and e.createdAt < :cutoff")
+    int deleteDeadBefore(@Param("maxAttempts") int maxAttempts, @Param("cutoff") LocalDateTime cutoff);
+}
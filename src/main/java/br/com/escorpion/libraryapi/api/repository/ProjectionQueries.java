@@ -0,0 +1,97 @@
+package br.com.escorpion.libraryapi.api.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.repository.support.PageableExecutionUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.From;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Paged criteria queries that select only some attributes of an entity, as {@link Tuple}s in the
+ * order given. A nested attribute such as {@code book.title} reuses a join made by the
+ * specification or adds a left join; {@code book.id} reads the foreign key, without a join.
+ */
+final class ProjectionQueries {
+
+    private ProjectionQueries() {
+    }
+
+    static <T> Page<Tuple> findPage(EntityManager entityManager, Class<T> type, Specification<T> where,
+                                    List<String> attributes, Pageable pageable) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<T> root = query.from(type);
+        Predicate predicate = where.toPredicate(root, query, builder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        List<Selection<?>> selections = new ArrayList<>(attributes.size());
+        for (String attribute : attributes) {
+            selections.add(path(root, attribute));
+        }
+        query.multiselect(selections);
+        if (pageable.getSort().isSorted()) {
+            query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, builder));
+        }
+
+        TypedQuery<Tuple> select = entityManager.createQuery(query);
+        if (pageable.isPaged()) {
+            select.setFirstResult((int) pageable.getOffset());
+            select.setMaxResults(pageable.getPageSize());
+        }
+        return PageableExecutionUtils.getPage(select.getResultList(), pageable,
+                () -> count(entityManager, type, where));
+    }
+
+    private static <T> long count(EntityManager entityManager, Class<T> type, Specification<T> where) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = builder.createQuery(Long.class);
+        Root<T> root = query.from(type);
+        Predicate predicate = where.toPredicate(root, query, builder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.select(builder.count(root));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    private static Path<?> path(Root<?> root, String attribute) {
+        String[] names = attribute.split("\\.");
+        if (names.length == 1) {
+            return root.get(attribute);
+        }
+        if (names.length == 2 && "id".equals(names[1]) && join(root, names[0]) == null) {
+            return root.get(names[0]).get(names[1]);
+        }
+        From<?, ?> from = root;
+        for (int i = 0; i < names.length - 1; i++) {
+            Join<?, ?> join = join(from, names[i]);
+            from = join != null ? join : from.join(names[i], JoinType.LEFT);
+        }
+        return from.get(names[names.length - 1]);
+    }
+
+    private static Join<?, ?> join(From<?, ?> from, String name) {
+        for (Join<?, ?> join : from.getJoins()) {
+            if (join.getAttribute().getName().equals(name)) {
+                return join;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,32 @@
+package br.com.escorpion.libraryapi.api.repository;
+
+import br.com.escorpion.libraryapi.api.model.entity.SchedulerLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+
+public interface SchedulerLeaseRepository extends JpaRepository<SchedulerLease, String> {
+
+    @Modifying
+    @Query("update SchedulerLease l set l.owner = :owner, l.lockedAt = :now, l.lockedUntil = :until " +
+            "where l.name = :name and l.lockedUntil <= :now")
+    int tryAcquire(@Param("name") String name, @Param("owner") String owner,
+                   @Param("now") LocalDateTime now, @Param("until") LocalDateTime until);
+
+    /**
+     * Plain insert rather than {@code save}, which would merge over a row another node just
+     * created; a duplicate name fails with a constraint violation instead.
+     */
+    @Modifying
+    @Query(value = "insert into scheduler_lease (name, owner, locked_at, locked_until) " +
+            "values (:name, :owner, :now, :until)", nativeQuery = true)
+    int insert(@Param("name") String name, @Param("owner") String owner,
+               @Param("now") LocalDateTime now, @Param("until") LocalDateTime until);
+
+    @Modifying
+    @Query("update SchedulerLease l set l.lockedUntil = :until where l.name = :name and l.owner = :owner")
+    int release(@Param("name") String name, @Param("owner") String owner, @Param("until") LocalDateTime until);
+}
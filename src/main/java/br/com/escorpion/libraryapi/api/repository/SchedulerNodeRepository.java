@@ -0,0 +1,24 @@
+package br.com.escorpion.libraryapi.api.repository;
+
+import br.com.escorpion.libraryapi.api.model.entity.SchedulerNode;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface SchedulerNodeRepository extends JpaRepository<SchedulerNode, String> {
+
+    @Query("select n.id from SchedulerNode n where n.heartbeatAt > :since order by n.id")
+    List<String> findLiveIds(@Param("since") LocalDateTime since);
+
+    @Modifying
+    @Query("update SchedulerNode n set n.heartbeatAt = :now where n.id = :id")
+    int touch(@Param("id") String id, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("delete from SchedulerNode n where n.heartbeatAt <= :before")
+    int deleteStale(@Param("before") LocalDateTime before);
+}
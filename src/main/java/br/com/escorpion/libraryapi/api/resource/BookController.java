@@ -1,11 +1,20 @@
 package br.com.escorpion.libraryapi.api.resource;
 
 import br.com.escorpion.libraryapi.api.dto.BookDTO;
+import br.com.escorpion.libraryapi.api.dto.BookLookupDTO;
+import br.com.escorpion.libraryapi.api.dto.BookPageDTO;
+import br.com.escorpion.libraryapi.api.dto.FieldSet;
+import br.com.escorpion.libraryapi.api.dto.HoldDTO;
 import br.com.escorpion.libraryapi.api.dto.LoanDTO;
+import br.com.escorpion.libraryapi.api.dto.LoanPageDTO;
+import br.com.escorpion.libraryapi.api.dto.StreamingPage;
 import br.com.escorpion.libraryapi.api.exception.ApiErros;
 import br.com.escorpion.libraryapi.api.model.entity.Book;
+import br.com.escorpion.libraryapi.api.model.entity.Customer;
 import br.com.escorpion.libraryapi.api.model.entity.Loan;
+import br.com.escorpion.libraryapi.api.model.entity.LoanHold;
 import br.com.escorpion.libraryapi.api.service.BookService;
+import br.com.escorpion.libraryapi.api.service.CustomerService;
 import br.com.escorpion.libraryapi.api.service.LoanService;
 import br.com.escorpion.libraryapi.exception.BusinessException;
 import io.swagger.annotations.Api;
@@ -16,16 +25,20 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import springfox.documentation.annotations.ApiIgnore;
 
 import javax.validation.Valid;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Api("Book API")
@@ -37,6 +50,7 @@ public class BookController {
 
     private final LoanService loanService;
     private final BookService bookService;
+    private final CustomerService customerService;
     private final ModelMapper modelMapper;
 
     @ApiOperation("Create a Book")
@@ -49,12 +63,44 @@ public class BookController {
         return modelMapper.map(entity, BookDTO.class);
     }
 
-    @ApiOperation("Obtains a book details by id")
+    @ApiOperation(value = "Obtains a book details by id", response = BookDTO.class)
     @GetMapping("{id}")
-    public BookDTO get(@PathVariable Long id) {
+    public Object get(@PathVariable Long id, @RequestParam(required = false) String fields) {
         log.info("obtaining details for book id {}", id);
-        return bookService.getById(id).map(book -> modelMapper.map(book, BookDTO.class))
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        Optional<FieldSet<Book>> selected = FieldSet.parse(fields, BookDTO.FIELDS);
+        Book book = bookService.getById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        // served from the cache, so the selection only trims the response
+        return selected.<Object>map(fieldSet -> fieldSet.view(book))
+                .orElseGet(() -> modelMapper.map(book, BookDTO.class));
+    }
+
+    /**
+     * Left out of the docs: Swagger 2 has one GET per path, and this one would replace the page
+     * {@link #find} documents. {@code POST /api/books/lookup} documents the same lookup.
+     */
+    @ApiIgnore
+    @GetMapping(params = "ids")
+    public List<BookDTO> getAll(@RequestParam List<Long> ids) {
+        return bookService.getByIds(ids).stream()
+                .map(book -> modelMapper.map(book, BookDTO.class))
+                .collect(Collectors.toList());
+    }
+
+    @ApiOperation("Obtains several books by ids and/or isbns, in the order given, ids first")
+    @PostMapping("lookup")
+    public List<BookDTO> lookup(@RequestBody BookLookupDTO lookup) {
+        List<Book> books = new ArrayList<>();
+        if (lookup.getIds() != null) {
+            books.addAll(bookService.getByIds(lookup.getIds()));
+        }
+        if (lookup.getIsbns() != null) {
+            books.addAll(bookService.getByIsbns(lookup.getIsbns()));
+        }
+        Set<Long> listed = new HashSet<>();
+        return books.stream()
+                .filter(book -> listed.add(book.getId()))
+                .map(book -> modelMapper.map(book, BookDTO.class))
+                .collect(Collectors.toList());
     }
 
     @ApiOperation("Deletes a book by id")
@@ -81,33 +127,52 @@ public class BookController {
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
     }
 
-    @ApiOperation("Find books by params")
+    @ApiOperation(value = "Find books by params", response = BookPageDTO.class)
     @GetMapping
-    public Page<BookDTO> find(BookDTO bookDTO, Pageable pageRequest){
+    public StreamingPage<?> find(BookDTO bookDTO, @RequestParam(required = false) String fields, Pageable pageRequest){
+        Optional<FieldSet<Book>> selected = FieldSet.parse(fields, BookDTO.FIELDS);
         Book filter = modelMapper.map(bookDTO, Book.class);
-        Page<Book> result = bookService.find(filter, pageRequest);
-        List<BookDTO> list = result.getContent()
-                .stream()
-                .map(book -> modelMapper.map(book, BookDTO.class))
-                .collect(Collectors.toList());
-
-        return new PageImpl<>(list, pageRequest, result.getTotalElements());
+        if (selected.isPresent()) {
+            FieldSet<Book> fieldSet = selected.get();
+            return StreamingPage.of(bookService.find(filter, fieldSet.attributes(), pageRequest), fieldSet::writeTuple);
+        }
+        return StreamingPage.of(bookService.find(filter, pageRequest), BookDTO::write);
     }
 
+    @ApiOperation(value = "Obtains the loans of a book", response = LoanPageDTO.class)
     @GetMapping("{id}/loans")
-    public Page<LoanDTO> loansByBook(@PathVariable Long id, Pageable pageable){
+    public StreamingPage<?> loansByBook(@PathVariable Long id,
+                                     @RequestParam(defaultValue = "false") boolean fullHistory,
+                                     @RequestParam(required = false) String fields,
+                                     Pageable pageable){
+        Optional<FieldSet<Loan>> selected = FieldSet.parse(fields, LoanDTO.FIELDS);
         Book book = bookService.getById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
 
-        Page<Loan> result = loanService.getLoansByBook(book, pageable);
+        if (selected.isPresent() && !fullHistory) {
+            FieldSet<Loan> fieldSet = selected.get();
+            return StreamingPage.of(loanService.getLoansByBook(book, fieldSet.attributes(), pageable), fieldSet::writeTuple);
+        }
+        Page<Loan> result = fullHistory
+                ? loanService.getLoanHistoryByBook(book, pageable)
+                : loanService.getLoansByBook(book, pageable);
 
-        List<LoanDTO> list = result.getContent().stream().map(loan -> {
-            Book loanBook = loan.getBook();
-            BookDTO bookDTO = modelMapper.map(loanBook, BookDTO.class);
-            LoanDTO loanDTO = modelMapper.map(loan, LoanDTO.class);
-            loanDTO.setBook(bookDTO);
-            return loanDTO;
-        }).collect(Collectors.toList());
+        // the history is a native union of whole rows, so its selection only trims the response
+        return selected.<StreamingPage<?>>map(fieldSet -> StreamingPage.of(result, fieldSet::writeEntity))
+                .orElseGet(() -> StreamingPage.of(result, LoanDTO::write));
+    }
 
-        return new PageImpl<>(list, pageable, result.getTotalElements());
+    @ApiOperation("Joins the waiting list of a loaned book; the book is lent to the oldest hold on return")
+    @PostMapping("{id}/holds")
+    @ResponseStatus(code = HttpStatus.CREATED)
+    public HoldDTO hold(@PathVariable Long id, @RequestBody @Valid HoldDTO dto) {
+        Book book = bookService.getById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        Customer customer = customerService.getOrCreate(dto.getCustomer(), dto.getEmail());
+        LoanHold hold = loanService.hold(book, customer);
+        return HoldDTO.builder()
+                .id(hold.getId())
+                .customer(hold.getCustomer())
+                .email(hold.getCustomerEmail())
+                .position(loanService.getHoldPosition(hold))
+                .build();
     }
 }
@@ -0,0 +1,52 @@
+package br.com.escorpion.libraryapi.api.resource;
+
+import br.com.escorpion.libraryapi.api.dto.BookDTO;
+import br.com.escorpion.libraryapi.api.dto.LoanDTO;
+import br.com.escorpion.libraryapi.api.dto.LoanSliceDTO;
+import br.com.escorpion.libraryapi.api.model.entity.Customer;
+import br.com.escorpion.libraryapi.api.model.entity.Loan;
+import br.com.escorpion.libraryapi.api.service.CustomerService;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import lombok.RequiredArgsConstructor;
+import org.modelmapper.ModelMapper;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Api("Customer API")
+@RestController
+@RequestMapping("/api/customers")
+@RequiredArgsConstructor
+public class CustomerController {
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final CustomerService customerService;
+    private final ModelMapper modelMapper;
+
+    @ApiOperation("Customer loan history, newest first; pass the returned 'next' as 'before' for the following page")
+    @GetMapping("{id}/loans")
+    public LoanSliceDTO loans(@PathVariable Long id,
+                              @RequestParam(required = false) Long before,
+                              @RequestParam(defaultValue = "20") int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Tamanho da página deve estar entre 1 e " + MAX_PAGE_SIZE);
+        }
+        Customer customer = customerService.getById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        List<Loan> loans = customerService.getLoans(customer, before, size);
+        List<LoanDTO> content = loans.stream()
+                .map(loan -> {
+                    LoanDTO loanDTO = modelMapper.map(loan, LoanDTO.class);
+                    loanDTO.setBook(modelMapper.map(loan.getBook(), BookDTO.class));
+                    return loanDTO;
+                })
+                .collect(Collectors.toList());
+        Long next = loans.size() < size ? null : loans.get(loans.size() - 1).getId();
+        return new LoanSliceDTO(content, next);
+    }
+}
@@ -1,26 +1,31 @@
 package br.com.escorpion.libraryapi.api.resource;
 
-import br.com.escorpion.libraryapi.api.dto.BookDTO;
+import br.com.escorpion.libraryapi.api.dto.FieldSet;
 import br.com.escorpion.libraryapi.api.dto.LoanDTO;
 import br.com.escorpion.libraryapi.api.dto.LoanFilterDTO;
+import br.com.escorpion.libraryapi.api.dto.LoanPageDTO;
 import br.com.escorpion.libraryapi.api.dto.ReturnedLoanDTO;
+import br.com.escorpion.libraryapi.api.dto.StreamingPage;
 import br.com.escorpion.libraryapi.api.model.entity.Book;
+import br.com.escorpion.libraryapi.api.model.entity.Customer;
 import br.com.escorpion.libraryapi.api.model.entity.Loan;
 import br.com.escorpion.libraryapi.api.service.BookService;
+import br.com.escorpion.libraryapi.api.service.CustomerService;
 import br.com.escorpion.libraryapi.api.service.LoanService;
+import br.com.escorpion.libraryapi.api.service.support.LoanEventStream;
+import io.swagger.annotations.ApiOperation;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDate;
-import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/loans")
@@ -29,16 +34,20 @@ public class LoanController {
 
     private final LoanService loanService;
     private final BookService bookService;
-    private final ModelMapper modelMapper;
+    private final CustomerService customerService;
+    private final LoanEventStream loanEventStream;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public Long create(@RequestBody LoanDTO dto){
         Book book = bookService.getBookByIsbn(dto.getIsbn())
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Book not found for passed isbn"));
+        Customer customer = customerService.getOrCreate(dto.getCustomer(), dto.getEmail());
         Loan loan = Loan.builder()
                 .book(book)
                 .customer(dto.getCustomer())
+                .customerEmail(customer.getEmail())
+                .borrower(customer)
                 .loanDate(LocalDate.now())
                 .build();
 
@@ -53,20 +62,42 @@ public class LoanController {
         loanService.update(loan);
     }
 
-    @GetMapping
-    public Page<LoanDTO> find(LoanFilterDTO dto, Pageable pageRequest){
-        Page<Loan> result = loanService.find(dto, pageRequest);
-        List<LoanDTO> list = result.getContent()
-                .stream()
-                .map(entity -> {
-                    Book book = entity.getBook();
-                    BookDTO bookDTO = modelMapper.map(book, BookDTO.class);
-                    LoanDTO loanDTO = modelMapper.map(entity, LoanDTO.class);
-                    loanDTO.setBook(bookDTO);
-                    return loanDTO;
-                })
-                .collect(Collectors.toList());
+    /**
+     * Live feed of loan created/returned events. Reconnecting clients send the standard
+     * Last-Event-ID header and get the events they missed first.
+     */
+    @GetMapping(value = "stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        try {
+            return loanEventStream.subscribe(lastEventId);
+        } catch (RejectedExecutionException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+        }
+    }
 
-        return new PageImpl<LoanDTO>(list, pageRequest, result.getTotalElements());
+    /**
+     * Loans not returned that are due before {@code before}: with today's date the overdue
+     * ones, with a later date also those due soon.
+     */
+    @ApiOperation(value = "Find loans due before a date", response = LoanPageDTO.class)
+    @GetMapping("due")
+    public StreamingPage<Loan> due(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate before,
+                                   Pageable pageRequest) {
+        return StreamingPage.of(loanService.getDueBefore(before, pageRequest), LoanDTO::write);
+    }
+
+    @ApiOperation(value = "Find loans by params", response = LoanPageDTO.class)
+    @GetMapping
+    public StreamingPage<?> find(LoanFilterDTO dto, @RequestParam(required = false) String fields, Pageable pageRequest){
+        Optional<FieldSet<Loan>> selected = FieldSet.parse(fields, LoanDTO.FIELDS);
+        if (!selected.isPresent()) {
+            return StreamingPage.of(loanService.find(dto, pageRequest), LoanDTO::write);
+        }
+        FieldSet<Loan> fieldSet = selected.get();
+        if (dto.isFullHistory()) {
+            // the history is a native union of whole rows, so the selection only trims the response
+            return StreamingPage.of(loanService.find(dto, pageRequest), fieldSet::writeEntity);
+        }
+        return StreamingPage.of(loanService.find(dto, fieldSet.attributes(), pageRequest), fieldSet::writeTuple);
     }
 }
@@ -4,6 +4,8 @@ import br.com.escorpion.libraryapi.api.model.entity.Book;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import javax.persistence.Tuple;
+import java.util.List;
 import java.util.Optional;
 
 public interface BookService {
@@ -18,5 +20,22 @@ public interface BookService {
 
     Page<Book> find(Book filter, Pageable pageRequest);
 
+    /**
+     * Same filter as {@link #find(Book, Pageable)}, selecting only the given attributes.
+     */
+    Page<Tuple> find(Book filter, List<String> attributes, Pageable pageRequest);
+
     Optional<Book> getBookByIsbn(String isbn);
+
+    /**
+     * @return the books found, in the order of {@code ids} and without repeats; unknown ids are
+     * skipped
+     */
+    List<Book> getByIds(List<Long> ids);
+
+    /**
+     * @return the books found, in the order of {@code isbns} and without repeats; unknown isbns
+     * are skipped
+     */
+    List<Book> getByIsbns(List<String> isbns);
 }
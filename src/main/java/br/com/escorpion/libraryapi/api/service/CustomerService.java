@@ -0,0 +1,24 @@
+package br.com.escorpion.libraryapi.api.service;
+
+import br.com.escorpion.libraryapi.api.model.entity.Customer;
+import br.com.escorpion.libraryapi.api.model.entity.Loan;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface CustomerService {
+
+    /**
+     * @return the customer registered with {@code email}, registering it on first use
+     */
+    Customer getOrCreate(String name, String email);
+
+    Optional<Customer> getById(Long id);
+
+    /**
+     * Keyset page of the customer's loans, newest first, including archived ones.
+     *
+     * @param beforeId only loans with a smaller id; {@code null} for the first page
+     */
+    List<Loan> getLoans(Customer customer, Long beforeId, int size);
+}
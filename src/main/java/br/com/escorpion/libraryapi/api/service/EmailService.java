@@ -5,4 +5,6 @@ import java.util.List;
 
 public interface EmailService {
     void sendEmails(List<String> mailsList, String message);
+
+    void sendEmail(String to, String message);
 }
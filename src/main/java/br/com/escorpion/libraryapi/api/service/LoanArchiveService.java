@@ -0,0 +1,13 @@
+package br.com.escorpion.libraryapi.api.service;
+
+import java.time.LocalDate;
+
+public interface LoanArchiveService {
+
+    /**
+     * Moves returned loans with a loan date up to {@code cutoff} into the archive table.
+     *
+     * @return number of loans moved
+     */
+    int archiveReturnedLoans(LocalDate cutoff);
+}
@@ -0,0 +1,13 @@
+package br.com.escorpion.libraryapi.api.service;
+
+import br.com.escorpion.libraryapi.api.model.entity.OutboxEvent;
+
+/**
+ * In-process consumer of loan events relayed from the outbox. Delivery is at-least-once:
+ * an event is handed out again when any listener throws, so implementations must tolerate
+ * duplicates.
+ */
+public interface LoanEventListener {
+
+    void onLoanEvent(OutboxEvent event);
+}
@@ -2,11 +2,15 @@ package br.com.escorpion.libraryapi.api.service;
 
 import br.com.escorpion.libraryapi.api.dto.LoanFilterDTO;
 import br.com.escorpion.libraryapi.api.model.entity.Book;
+import br.com.escorpion.libraryapi.api.model.entity.Customer;
 import br.com.escorpion.libraryapi.api.model.entity.Loan;
+import br.com.escorpion.libraryapi.api.model.entity.LoanHold;
 import br.com.escorpion.libraryapi.api.resource.BookController;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import javax.persistence.Tuple;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,7 +23,34 @@ public interface LoanService {
 
     Page<Loan> find(LoanFilterDTO filter, Pageable pageable);
 
+    /**
+     * Current loans matching {@code filter}, selecting only the given attributes; the full
+     * history is not supported here.
+     */
+    Page<Tuple> find(LoanFilterDTO filter, List<String> attributes, Pageable pageable);
+
     Page<Loan> getLoansByBook(Book book, Pageable pageable);
 
+    Page<Tuple> getLoansByBook(Book book, List<String> attributes, Pageable pageable);
+
+    Page<Loan> getLoanHistoryByBook(Book book, Pageable pageable);
+
     List<Loan> getAllLateLoans();
+
+    /**
+     * Queues {@code customer} for {@code book}, which must have no copy available. When a copy
+     * is returned the oldest waiting hold gets it, as a new loan.
+     */
+    LoanHold hold(Book book, Customer customer);
+
+    /**
+     * @return 1-based place of the hold among the book's waiting holds, 0 once fulfilled
+     */
+    long getHoldPosition(LoanHold hold);
+
+    /**
+     * Loans not returned and due before {@code before}: overdue ones with today, or also those
+     * due soon with a later date.
+     */
+    Page<Loan> getDueBefore(LocalDate before, Pageable pageable);
 }
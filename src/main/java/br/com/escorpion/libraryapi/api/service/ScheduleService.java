@@ -1,36 +1,51 @@
 package br.com.escorpion.libraryapi.api.service;
 
-import br.com.escorpion.libraryapi.api.model.entity.Loan;
+import br.com.escorpion.libraryapi.api.service.support.OverdueNotifier;
+import br.com.escorpion.libraryapi.api.service.support.SchedulerCoordinator;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
-import java.util.stream.Collectors;
+import java.time.LocalDate;
 
+@Slf4j
 @Service
+@Lazy(false)
 @EnableScheduling
 @RequiredArgsConstructor
 public class ScheduleService {
 
     private static final String CRON_LATE_LOANS = "0 0 0 1/1 * ?";
+    private static final String CRON_ARCHIVE_LOANS = "${application.loans.archive.cron:0 30 2 * * ?}";
 
-    @Value("${application.mail.lateloans.message}")
-    private String message;
-    private final LoanService loanService;
-    private final EmailService emailService;
+    @Value("${application.loans.archive.max-age-days:90}")
+    private int archiveMaxAgeDays;
+    @Value("${application.scheduler.late-loans.partitioned:false}")
+    private boolean partitionLateLoans;
+    private final OverdueNotifier overdueNotifier;
+    private final LoanArchiveService loanArchiveService;
+    private final SchedulerCoordinator coordinator;
 
     @Scheduled(cron = CRON_LATE_LOANS)
     public void sendEmailToLateLoans() {
-        List<Loan> allLateLoans = loanService.getAllLateLoans();
-
-        List<String> mailsList = allLateLoans.stream()
-                .map(Loan::getCustomerEmail)
-                .collect(Collectors.toList());
+        LocalDate today = LocalDate.now();
+        if (!partitionLateLoans) {
+            coordinator.runExclusively("late-loans", () -> overdueNotifier.notifyOverdue(today));
+            return;
+        }
+        coordinator.partition().ifPresentOrElse(
+                partition -> overdueNotifier.notifyOverdue(today, partition),
+                () -> log.warn("skipping late-loans: node {} is not registered yet", coordinator.getNodeId()));
+    }
 
-        emailService.sendEmails(mailsList, message);
+    @Scheduled(cron = CRON_ARCHIVE_LOANS)
+    public void archiveReturnedLoans() {
+        coordinator.runExclusively("archive-loans",
+                () -> loanArchiveService.archiveReturnedLoans(LocalDate.now().minusDays(archiveMaxAgeDays)));
     }
 
 }
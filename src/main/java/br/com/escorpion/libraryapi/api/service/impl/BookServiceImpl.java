@@ -3,35 +3,101 @@ package br.com.escorpion.libraryapi.api.service.impl;
 import br.com.escorpion.libraryapi.api.model.entity.Book;
 import br.com.escorpion.libraryapi.api.repository.BookRepository;
 import br.com.escorpion.libraryapi.api.service.BookService;
+import br.com.escorpion.libraryapi.api.service.support.BookCache;
+import br.com.escorpion.libraryapi.api.service.support.BookIsbnFilter;
+import br.com.escorpion.libraryapi.api.service.support.BookIsbnIndex;
+import br.com.escorpion.libraryapi.api.service.support.Isbn;
+import br.com.escorpion.libraryapi.api.service.support.SingleFlight;
 import br.com.escorpion.libraryapi.exception.BusinessException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.ExampleMatcher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.convert.QueryByExamplePredicateBuilder;
 import org.springframework.stereotype.Service;
 
+import javax.persistence.Tuple;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class BookServiceImpl implements BookService {
 
     private final BookRepository repository;
+    private final BookIsbnFilter isbnFilter;
+    private final BookIsbnIndex isbnIndex;
+    private final BookCache cache;
+    private final SingleFlight<Long, Optional<Book>> lookupsById;
+    private final SingleFlight<String, Optional<Book>> lookupsByIsbn;
+    private final int lookupMaxSize;
+    private final int lookupChunkSize;
 
-    public BookServiceImpl(BookRepository repository) {
+    public BookServiceImpl(BookRepository repository,
+                           BookIsbnFilter isbnFilter,
+                           BookIsbnIndex isbnIndex,
+                           BookCache cache,
+                           MeterRegistry meterRegistry,
+                           @Value("${application.books.single-flight.timeout-ms:500}") long singleFlightTimeoutMillis,
+                           @Value("${application.books.lookup.max-size:200}") int lookupMaxSize,
+                           @Value("${application.books.lookup.chunk-size:100}") int lookupChunkSize) {
         this.repository = repository;
+        this.isbnFilter = isbnFilter;
+        this.isbnIndex = isbnIndex;
+        this.cache = cache;
+        this.lookupMaxSize = lookupMaxSize;
+        this.lookupChunkSize = lookupChunkSize;
+        this.lookupsById = new SingleFlight<>(singleFlightTimeoutMillis,
+                meterRegistry.counter("library.books.lookups.coalesced", "key", "id"));
+        this.lookupsByIsbn = new SingleFlight<>(singleFlightTimeoutMillis,
+                meterRegistry.counter("library.books.lookups.coalesced", "key", "isbn"));
     }
 
     @Override
     public Book save(Book book) {
-        if (repository.existsByIsbn(book.getIsbn())) {
+        OptionalLong key = Isbn.toKey(book.getIsbn());
+        // the filter holds normalized ISBNs, which only match the ones that have a key
+        boolean exists = key.isPresent()
+                ? isbnFilter.exists(Isbn.normalize(book.getIsbn()), isbn -> repository.existsByIsbnKey(key.getAsLong()))
+                : repository.existsByIsbn(book.getIsbn());
+        if (exists) {
             throw new BusinessException("Isbn já cadastrado");
         }
-        return repository.save(book);
+        isbnFilter.put(Isbn.normalize(book.getIsbn()));
+        book.setIsbnKey(key.isPresent() ? key.getAsLong() : null);
+        try {
+            book = repository.save(book);
+        } catch (DataIntegrityViolationException e) {
+            // the same ISBN saved concurrently, caught by the unique key
+            if (key.isPresent() && repository.existsByIsbnKey(key.getAsLong())) {
+                throw new BusinessException("Isbn já cadastrado");
+            }
+            throw e;
+        }
+        index(book);
+        return book;
     }
 
     @Override
     public Optional<Book> getById(long id) {
-        return this.repository.findById(id);
+        Optional<Book> cached = cache.get(id);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        // the flight's result is shared by every waiting caller, so each one gets its own copy
+        return lookupsById.execute(id, () -> cached(this.repository.findById(id))).map(BookCache::copy);
     }
 
     @Override
@@ -40,6 +106,10 @@ public class BookServiceImpl implements BookService {
             throw new IllegalArgumentException("Id do livro não pode ser nulo");
         }
         repository.delete(book);
+        cache.invalidate(book.getId());
+        if (book.getIsbnKey() != null) {
+            isbnIndex.remove(book.getIsbnKey());
+        }
     }
 
     @Override
@@ -47,23 +117,176 @@ public class BookServiceImpl implements BookService {
         if (book == null || book.getId() == null){
             throw new IllegalArgumentException("Livro Inexistente na base");
         }
+        OptionalLong key = Isbn.toKey(book.getIsbn());
+        book.setIsbnKey(key.isPresent() ? key.getAsLong() : null);
         book = repository.save(book);
+        index(book);
         return book;
     }
 
     @Override
     public Page<Book> find(Book filter, Pageable pageRequest) {
-        Example<Book> example = Example.of(filter,
+        return repository.findAll(example(filter), pageRequest);
+    }
+
+    @Override
+    public Page<Tuple> find(Book filter, List<String> attributes, Pageable pageRequest) {
+        Example<Book> example = example(filter);
+        return repository.findProjected(
+                (root, query, builder) -> QueryByExamplePredicateBuilder.getPredicate(root, builder, example),
+                attributes, pageRequest);
+    }
+
+    private Example<Book> example(Book filter) {
+        return Example.of(filter,
                 ExampleMatcher
                         .matching()
                         .withIgnoreCase()
                         .withIgnoreNullValues()
+                        // primitive counters are never null, so they would always filter
+                        .withIgnorePaths("copies", "available")
                         .withStringMatcher(ExampleMatcher.StringMatcher.CONTAINING));
-        return repository.findAll(example, pageRequest);
     }
 
     @Override
     public Optional<Book> getBookByIsbn(String isbn) {
-        return repository.findByIsbn(isbn);
+        OptionalLong key = Isbn.parse(isbn);
+        if (!key.isPresent()) {
+            return lookupsByIsbn.execute(isbn, () -> repository.findByIsbn(isbn).map(BookCache::copy))
+                    .map(BookCache::copy);
+        }
+        long isbnKey = key.getAsLong();
+        return lookupsByIsbn.execute(Long.toString(isbnKey), () -> findByIsbnKey(isbnKey)).map(BookCache::copy);
+    }
+
+    /**
+     * Serves what it can from the cache and loads the rest with one {@code in} query per chunk.
+     */
+    @Override
+    public List<Book> getByIds(List<Long> ids) {
+        Set<Long> distinct = distinct(ids);
+        Map<Long, Book> found = new HashMap<>(distinct.size() * 2);
+        List<Long> misses = new ArrayList<>();
+        for (Long id : distinct) {
+            Optional<Book> cached = cache.get(id);
+            if (cached.isPresent()) {
+                found.put(id, cached.get());
+            } else {
+                misses.add(id);
+            }
+        }
+        loadChunked(misses, repository::findAllById, found);
+        return distinct.stream().map(found::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    /**
+     * Isbns known to the index resolve like {@link #getByIds(List)}; the others, and any the
+     * index points at a book that no longer has that isbn, are loaded by isbn in chunks.
+     */
+    @Override
+    public List<Book> getByIsbns(List<String> isbns) {
+        Set<String> distinct = distinct(isbns);
+        Map<String, Long> keys = new HashMap<>(distinct.size() * 2);
+        Map<String, Long> indexed = new HashMap<>(distinct.size() * 2);
+        for (String isbn : distinct) {
+            OptionalLong key = Isbn.parse(isbn);
+            if (key.isPresent()) {
+                keys.put(isbn, key.getAsLong());
+                isbnIndex.find(key.getAsLong()).ifPresent(id -> indexed.put(isbn, id));
+            }
+        }
+        Map<Long, Book> byKey = new HashMap<>(distinct.size() * 2);
+        for (Book book : getByIds(new ArrayList<>(indexed.values()))) {
+            if (book.getIsbnKey() != null) {
+                byKey.put(book.getIsbnKey(), book);
+            }
+        }
+
+        Set<Long> keyMisses = new LinkedHashSet<>();
+        List<String> plainMisses = new ArrayList<>();
+        for (String isbn : distinct) {
+            Long key = keys.get(isbn);
+            if (key == null) {
+                plainMisses.add(isbn);
+            } else if (!byKey.containsKey(key)) {
+                keyMisses.add(key);
+            }
+        }
+        Map<Long, Book> loaded = new HashMap<>();
+        loadChunked(new ArrayList<>(keyMisses), repository::findByIsbnKeyIn, loaded);
+        loadChunked(plainMisses, repository::findByIsbnIn, loaded);
+        Map<String, Book> byIsbn = new HashMap<>();
+        for (Book book : loaded.values()) {
+            if (book.getIsbnKey() != null) {
+                byKey.put(book.getIsbnKey(), book);
+            }
+            byIsbn.put(book.getIsbn(), book);
+        }
+
+        // two spellings of one isbn resolve to the same book, listed once
+        Set<Long> listed = new HashSet<>();
+        return distinct.stream()
+                .map(isbn -> keys.containsKey(isbn) ? byKey.get(keys.get(isbn)) : byIsbn.get(isbn))
+                .filter(book -> book != null && listed.add(book.getId()))
+                .collect(Collectors.toList());
+    }
+
+    private <T> Set<T> distinct(List<T> values) {
+        Set<T> distinct = new LinkedHashSet<>();
+        if (values != null) {
+            values.stream().filter(Objects::nonNull).forEach(distinct::add);
+        }
+        if (distinct.size() > lookupMaxSize) {
+            throw new IllegalArgumentException("Máximo de " + lookupMaxSize + " livros por consulta");
+        }
+        return distinct;
+    }
+
+    private <T> void loadChunked(List<T> keys, Function<List<T>, ? extends Iterable<Book>> query, Map<Long, Book> found) {
+        for (int from = 0; from < keys.size(); from += lookupChunkSize) {
+            for (Book book : query.apply(keys.subList(from, Math.min(from + lookupChunkSize, keys.size())))) {
+                index(book);
+                found.put(book.getId(), book);
+            }
+        }
+    }
+
+    private Optional<Book> findByIsbnKey(long isbnKey) {
+        OptionalLong id = isbnIndex.find(isbnKey);
+        if (id.isPresent()) {
+            Optional<Book> book = cache.get(id.getAsLong())
+                    .filter(found -> found.getIsbnKey() != null && found.getIsbnKey() == isbnKey);
+            if (book.isPresent()) {
+                return book;
+            }
+            book = repository.findById(id.getAsLong())
+                    .filter(found -> found.getIsbnKey() != null && found.getIsbnKey() == isbnKey);
+            if (book.isPresent()) {
+                return cached(book);
+            }
+        }
+        return cached(repository.findByIsbnKey(isbnKey));
+    }
+
+    /**
+     * Caches a loaded book and returns it detached: the managed instance belongs to this
+     * thread's persistence context and must not reach callers served by a single flight.
+     */
+    private Optional<Book> cached(Optional<Book> book) {
+        book.ifPresent(cache::put);
+        return book.map(BookCache::copy);
+    }
+
+    /**
+     * Keeps the isbn index and the cache in line with a book just written.
+     */
+    private void index(Book book) {
+        if (book == null || book.getId() == null) {
+            return;
+        }
+        cache.put(book);
+        if (book.getIsbnKey() != null) {
+            isbnIndex.put(book.getIsbnKey(), book.getId());
+        }
     }
 }
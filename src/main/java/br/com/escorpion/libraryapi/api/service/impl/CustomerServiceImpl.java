@@ -0,0 +1,48 @@
+package br.com.escorpion.libraryapi.api.service.impl;
+
+import br.com.escorpion.libraryapi.api.model.entity.Customer;
+import br.com.escorpion.libraryapi.api.model.entity.Loan;
+import br.com.escorpion.libraryapi.api.repository.CustomerRepository;
+import br.com.escorpion.libraryapi.api.repository.LoanRepository;
+import br.com.escorpion.libraryapi.api.service.CustomerService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+@Service
+@RequiredArgsConstructor
+public class CustomerServiceImpl implements CustomerService {
+
+    private final CustomerRepository repository;
+    private final LoanRepository loanRepository;
+
+    @Override
+    public Customer getOrCreate(String name, String email) {
+        if (email == null || email.trim().isEmpty()) {
+            throw new IllegalArgumentException("Email do cliente não pode ser vazio");
+        }
+        String normalizedEmail = email.trim().toLowerCase(Locale.ROOT);
+        return repository.findByEmail(normalizedEmail).orElseGet(() -> {
+            try {
+                return repository.saveAndFlush(Customer.builder().name(name).email(normalizedEmail).build());
+            } catch (DataIntegrityViolationException e) {
+                return repository.findByEmail(normalizedEmail).orElseThrow(() -> e);
+            }
+        });
+    }
+
+    @Override
+    public Optional<Customer> getById(Long id) {
+        return repository.findById(id);
+    }
+
+    @Override
+    public List<Loan> getLoans(Customer customer, Long beforeId, int size) {
+        return loanRepository.findHistoryByCustomerBefore(customer.getId(),
+                beforeId == null ? Long.MAX_VALUE : beforeId, size);
+    }
+}
@@ -21,7 +21,15 @@ public class EmailServiceImpl implements EmailService {
     public void sendEmails(List<String> mailsList, String message) {
 
         String[] mails = mailsList.toArray(new String[mailsList.size()]);
+        send(mails, message);
+    }
+
+    @Override
+    public void sendEmail(String to, String message) {
+        send(new String[]{to}, message);
+    }
 
+    private void send(String[] mails, String message) {
         SimpleMailMessage mailMessage = new SimpleMailMessage();
         mailMessage.setFrom(remetent);
         mailMessage.setSubject("Livro com empréstimo atrasado");
@@ -0,0 +1,133 @@
+package br.com.escorpion.libraryapi.api.service.impl;
+
+import br.com.escorpion.libraryapi.api.dto.LoanFilterDTO;
+import br.com.escorpion.libraryapi.api.model.entity.Book;
+import br.com.escorpion.libraryapi.api.model.entity.Customer;
+import br.com.escorpion.libraryapi.api.model.entity.Loan;
+import br.com.escorpion.libraryapi.api.model.entity.LoanHold;
+import br.com.escorpion.libraryapi.api.service.LoanService;
+import br.com.escorpion.libraryapi.api.service.support.GroupCommit;
+import br.com.escorpion.libraryapi.exception.BusinessException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.Tuple;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Opt-in {@link LoanService} that sends loan creations and returns through a
+ * {@link GroupCommit}, trading a few milliseconds of latency for one transaction per batch of
+ * concurrent writes instead of one per request. Everything else goes straight to
+ * {@link LoanServiceImpl}.
+ * <p>
+ * A creation takes its copy of the book in the batch, in the same transaction as the loan. A
+ * book with no copy left is refused without throwing inside the batch, so it fails only its
+ * own caller instead of rolling back the writes batched with it.
+ */
+@Primary
+@Service
+@ConditionalOnProperty(name = "application.loans.group-commit.enabled", havingValue = "true")
+public class GroupCommitLoanService implements LoanService {
+
+    private final LoanServiceImpl delegate;
+    private final GroupCommit writes;
+
+    public GroupCommitLoanService(LoanServiceImpl delegate,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${application.loans.group-commit.max-batch:64}") int maxBatch,
+                                  @Value("${application.loans.group-commit.max-wait-ms:5}") long maxWaitMillis,
+                                  @Value("${application.loans.group-commit.queue-capacity:10000}") int capacity) {
+        this.delegate = delegate;
+        this.writes = new GroupCommit("loans", new TransactionTemplate(transactionManager), maxBatch, maxWaitMillis,
+                capacity, meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        writes.close();
+    }
+
+    @Override
+    public Loan save(Loan loan) {
+        Optional<String> refused = writes.execute(() -> {
+            // persisting assigns the id even if the batch then rolls back and is applied again
+            loan.setId(null);
+            Optional<String> reason = delegate.reserveCopy(loan);
+            if (!reason.isPresent()) {
+                delegate.saveReserved(loan);
+            }
+            return reason;
+        });
+        refused.ifPresent(reason -> {
+            throw new BusinessException(reason);
+        });
+        // a new loan is persisted in place
+        return loan;
+    }
+
+    @Override
+    public Loan update(Loan loan) {
+        return writes.execute(() -> delegate.update(loan));
+    }
+
+    @Override
+    public Optional<Loan> getById(Long id) {
+        return delegate.getById(id);
+    }
+
+    @Override
+    public Page<Loan> find(LoanFilterDTO filter, Pageable pageable) {
+        return delegate.find(filter, pageable);
+    }
+
+    @Override
+    public Page<Tuple> find(LoanFilterDTO filter, List<String> attributes, Pageable pageable) {
+        return delegate.find(filter, attributes, pageable);
+    }
+
+    @Override
+    public Page<Loan> getLoansByBook(Book book, Pageable pageable) {
+        return delegate.getLoansByBook(book, pageable);
+    }
+
+    @Override
+    public Page<Tuple> getLoansByBook(Book book, List<String> attributes, Pageable pageable) {
+        return delegate.getLoansByBook(book, attributes, pageable);
+    }
+
+    @Override
+    public Page<Loan> getLoanHistoryByBook(Book book, Pageable pageable) {
+        return delegate.getLoanHistoryByBook(book, pageable);
+    }
+
+    @Override
+    public List<Loan> getAllLateLoans() {
+        return delegate.getAllLateLoans();
+    }
+
+    @Override
+    public LoanHold hold(Book book, Customer customer) {
+        return delegate.hold(book, customer);
+    }
+
+    @Override
+    public long getHoldPosition(LoanHold hold) {
+        return delegate.getHoldPosition(hold);
+    }
+
+    @Override
+    public Page<Loan> getDueBefore(LocalDate before, Pageable pageable) {
+        return delegate.getDueBefore(before, pageable);
+    }
+}
@@ -0,0 +1,56 @@
+package br.com.escorpion.libraryapi.api.service.impl;
+
+import br.com.escorpion.libraryapi.api.repository.LoanArchiveRepository;
+import br.com.escorpion.libraryapi.api.repository.LoanRepository;
+import br.com.escorpion.libraryapi.api.service.LoanArchiveService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Slf4j
+@Service
+public class LoanArchiveServiceImpl implements LoanArchiveService {
+
+    private final LoanRepository loanRepository;
+    private final LoanArchiveRepository archiveRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    public LoanArchiveServiceImpl(LoanRepository loanRepository,
+                                  LoanArchiveRepository archiveRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${application.loans.archive.batch-size:500}") int batchSize) {
+        this.loanRepository = loanRepository;
+        this.archiveRepository = archiveRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public int archiveReturnedLoans(LocalDate cutoff) {
+        int total = 0;
+        int moved;
+        do {
+            moved = transactionTemplate.execute(status -> archiveBatch(cutoff));
+            total += moved;
+        } while (moved == batchSize);
+        log.info("archived {} returned loans up to {}", total, cutoff);
+        return total;
+    }
+
+    private int archiveBatch(LocalDate cutoff) {
+        List<Long> ids = loanRepository.findReturnedIdsUpTo(cutoff, PageRequest.of(0, batchSize));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        archiveRepository.copyFromLoans(ids, LocalDate.now());
+        loanRepository.deleteByIds(ids);
+        return ids.size();
+    }
+}
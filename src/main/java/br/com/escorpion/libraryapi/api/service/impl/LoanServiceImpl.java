@@ -2,21 +2,47 @@ package br.com.escorpion.libraryapi.api.service.impl;
 
 import br.com.escorpion.libraryapi.api.dto.LoanFilterDTO;
 import br.com.escorpion.libraryapi.api.model.entity.Book;
+import br.com.escorpion.libraryapi.api.model.entity.Customer;
+import br.com.escorpion.libraryapi.api.model.entity.HoldStatus;
 import br.com.escorpion.libraryapi.api.model.entity.Loan;
+import br.com.escorpion.libraryapi.api.model.entity.LoanEventType;
+import br.com.escorpion.libraryapi.api.model.entity.LoanHold;
+import br.com.escorpion.libraryapi.api.model.entity.OutboxEvent;
+import br.com.escorpion.libraryapi.api.repository.BookRepository;
+import br.com.escorpion.libraryapi.api.repository.LoanHoldRepository;
 import br.com.escorpion.libraryapi.api.repository.LoanRepository;
+import br.com.escorpion.libraryapi.api.repository.OutboxEventRepository;
 import br.com.escorpion.libraryapi.api.service.LoanService;
+import br.com.escorpion.libraryapi.api.service.support.LoanHoldQueues;
+import br.com.escorpion.libraryapi.api.service.support.LoanPolicy;
+import br.com.escorpion.libraryapi.api.service.support.ReminderPolicy;
 import br.com.escorpion.libraryapi.exception.BusinessException;
 import lombok.AllArgsConstructor;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.persistence.Tuple;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.Predicate;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalLong;
 
+@Slf4j
 @RequiredArgsConstructor
 @AllArgsConstructor
 @Service
@@ -24,13 +50,67 @@ public class LoanServiceImpl implements LoanService {
 
     @Autowired
     private LoanRepository repository;
+    @Autowired
+    private OutboxEventRepository outboxRepository;
+    @Autowired
+    private ReminderPolicy reminderPolicy;
+    @Autowired
+    private LoanPolicy loanPolicy;
+    @Autowired
+    private LoanHoldRepository holdRepository;
+    @Autowired
+    private LoanHoldQueues holdQueues;
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
 
     @Override
+    @Transactional
     public Loan save(Loan loan) {
-        if (repository.existsByBookAndNotReturned(loan.getBook())) {
-            throw new BusinessException("Book already loaned");
+        reserveCopy(loan).ifPresent(reason -> {
+            throw new BusinessException(reason);
+        });
+        return saveReserved(loan);
+    }
+
+    /**
+     * Takes the copy {@code loan} is for, the first half of {@link #save}. A refusal is returned
+     * instead of thrown and leaves the book as it was, so the transaction it runs in can go on
+     * and commit other writes.
+     *
+     * @return why the book cannot be lent, empty when the copy is taken
+     */
+    @Transactional
+    public Optional<String> reserveCopy(Loan loan) {
+        if (loan.getBook() == null) {
+            return Optional.empty();
+        }
+        if (bookRepository.checkout(loan.getBook().getId()) == 0) {
+            return Optional.of("Book already loaned");
+        }
+        // checked once the copy is taken: holds are only queued on a book with none left
+        if (holdRepository.existsByBookAndStatus(loan.getBook(), HoldStatus.WAITING)) {
+            bookRepository.giveBack(loan.getBook().getId());
+            return Optional.of("Book reserved for waiting customers");
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Saves a loan whose copy is already taken, the second half of {@link #save}.
+     */
+    @Transactional
+    public Loan saveReserved(Loan loan) {
+        if (loan.getLoanDate() != null && loan.getDueDate() == null) {
+            loan.setDueDate(loanPolicy.dueDate(loan));
         }
-        return repository.save(loan);
+        if (loan.getDueDate() != null && loan.getNextReminderDate() == null && !loan.isReturned()) {
+            loan.setNextReminderDate(reminderPolicy.nextReminder(loan.getDueDate(), loan.getReminderCount()));
+        }
+        Loan saved = repository.save(loan);
+        outboxRepository.save(OutboxEvent.of(LoanEventType.CREATED, saved));
+        return saved;
     }
 
     @Override
@@ -38,25 +118,196 @@ public class LoanServiceImpl implements LoanService {
         return repository.findById(id);
     }
 
+    /**
+     * The return itself is a conditional update, so when the same loan is returned twice at once
+     * only one of them gives the copy back. A returned loan cannot be taken out again.
+     */
     @Override
+    @Transactional
     public Loan update(Loan loan) {
-        return repository.save(loan);
+        boolean returning = false;
+        if (loan.isReturned()) {
+            returning = repository.markReturned(loan.getId()) == 1;
+            loan.setNextReminderDate(null);
+        } else if (repository.lockNotReturned(loan.getId()) == 0) {
+            throw new BusinessException("Loan already returned");
+        }
+        Loan saved = repository.save(loan);
+        if (returning) {
+            outboxRepository.save(OutboxEvent.of(LoanEventType.RETURNED, saved));
+            if (saved.getBook() != null && bookRepository.giveBack(saved.getBook().getId()) == 1) {
+                handOver(saved.getBook());
+            }
+        }
+        return saved;
+    }
+
+    @Override
+    @Transactional
+    public LoanHold hold(Book book, Customer customer) {
+        if (bookRepository.lockUnavailable(book.getId()) == 0) {
+            throw new BusinessException("Book available for loan");
+        }
+        if (holdRepository.existsByBookAndBorrowerAndStatus(book, customer, HoldStatus.WAITING)) {
+            throw new BusinessException("Customer already waiting for this book");
+        }
+        LoanHold hold = holdRepository.save(LoanHold.builder()
+                .book(book)
+                .borrower(customer)
+                .customer(customer.getName())
+                .customerEmail(customer.getEmail())
+                .status(HoldStatus.WAITING)
+                .createdAt(LocalDateTime.now())
+                .build());
+        holdQueues.add(book.getId(), hold.getId());
+        afterCommit(() -> handOverIfAvailable(book));
+        return hold;
+    }
+
+    @Override
+    public long getHoldPosition(LoanHold hold) {
+        return holdRepository.countQueuedUpTo(hold.getBook(), HoldStatus.WAITING, hold.getId());
     }
 
     @Override
     public Page<Loan> find(LoanFilterDTO dto, Pageable page) {
+        if (dto.isFullHistory()) {
+            return repository.findHistoryByBookIsbnOrCustomer(dto.getIsbn(), dto.getCustomer(), historyPage(page));
+        }
         return repository.findByBookIsbnOrCustomer(dto.getIsbn(), dto.getCustomer(), page);
     }
 
+    @Override
+    public Page<Tuple> find(LoanFilterDTO dto, List<String> attributes, Pageable pageable) {
+        if (dto.isFullHistory()) {
+            throw new IllegalArgumentException("Seleção de campos não suportada com fullHistory");
+        }
+        Specification<Loan> isbnOrCustomer = (root, query, builder) -> {
+            // same as findByBookIsbnOrCustomer, where a null parameter matches nothing; the book
+            // is only joined when filtered on, or when book fields other than its id are selected
+            List<Predicate> matches = new ArrayList<>(2);
+            if (dto.getIsbn() != null) {
+                Join<Loan, Book> book = root.join("book");
+                matches.add(builder.equal(book.get("isbn"), dto.getIsbn()));
+            }
+            if (dto.getCustomer() != null) {
+                matches.add(builder.equal(root.get("customer"), dto.getCustomer()));
+            }
+            return builder.or(matches.toArray(new Predicate[0]));
+        };
+        return repository.findProjected(isbnOrCustomer, attributes, pageable);
+    }
+
     @Override
     public Page<Loan> getLoansByBook(Book book, Pageable pageable) {
         return repository.findByBook(book, pageable);
     }
 
+    @Override
+    public Page<Tuple> getLoansByBook(Book book, List<String> attributes, Pageable pageable) {
+        // compared as an entity so the id is bound, where a Long would be inlined into the SQL
+        Specification<Loan> byBook = (root, query, builder) -> builder.equal(root.get("book"), book);
+        return repository.findProjected(byBook, attributes, pageable);
+    }
+
+    @Override
+    public Page<Loan> getLoanHistoryByBook(Book book, Pageable pageable) {
+        return repository.findHistoryByBook(book.getId(), historyPage(pageable));
+    }
+
+    /**
+     * The history unions are ordered by id in SQL; a requested sort would be appended to the
+     * native query with entity property names, which are not its column names.
+     */
+    private static Pageable historyPage(Pageable pageable) {
+        if (pageable.getSort().isSorted()) {
+            throw new IllegalArgumentException("Ordenação não suportada com fullHistory");
+        }
+        return pageable;
+    }
+
+    /**
+     * Lends a returned book to its oldest waiting hold. The in-memory queue names the candidate
+     * and the conditional claim makes sure no other replica served it first; holds queued on
+     * another replica are only in the table, so it is read when the queue runs out.
+     */
+    private void handOver(Book book) {
+        for (OptionalLong next = holdQueues.poll(book.getId()); next.isPresent(); next = holdQueues.poll(book.getId())) {
+            Optional<LoanHold> hold = holdRepository.findById(next.getAsLong());
+            if (hold.isPresent() && claim(hold.get())) {
+                lendTo(hold.get(), book);
+                return;
+            }
+        }
+        holdRepository.findFirstByBookAndStatusOrderByIdAsc(book, HoldStatus.WAITING)
+                .filter(this::claim)
+                .ifPresent(hold -> lendTo(hold, book));
+    }
+
+    /**
+     * Second chance for a copy that came back while no hold was visible to the return, so it
+     * is not left on the shelf while the queue waits. Runs after the hold commits, in a
+     * transaction of its own; the hold stays queued if this fails.
+     */
+    private void handOverIfAvailable(Book book) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        try {
+            transaction.execute(status -> {
+                if (bookRepository.findAvailableById(book.getId()) > 0) {
+                    handOver(book);
+                }
+                return null;
+            });
+        } catch (RuntimeException e) {
+            log.warn("hand over of book {} after a hold failed", book.getId(), e);
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private boolean claim(LoanHold hold) {
+        LocalDateTime now = LocalDateTime.now();
+        if (holdRepository.claim(hold.getId(), HoldStatus.WAITING, HoldStatus.FULFILLED, now) != 1) {
+            return false;
+        }
+        hold.setStatus(HoldStatus.FULFILLED);
+        hold.setFulfilledAt(now);
+        return true;
+    }
+
+    private void lendTo(LoanHold hold, Book book) {
+        if (bookRepository.checkout(book.getId()) == 0) {
+            throw new BusinessException("Book already loaned");
+        }
+        Loan loan = saveReserved(Loan.builder()
+                .book(book)
+                .customer(hold.getCustomer())
+                .customerEmail(hold.getCustomerEmail())
+                .borrower(hold.getBorrower())
+                .loanDate(LocalDate.now())
+                .build());
+        hold.setLoanId(loan.getId());
+    }
+
     @Override
     public List<Loan> getAllLateLoans() {
-        final Integer loanDays = 4;
-        LocalDate threeDaysAgo = LocalDate.now().minusDays(loanDays);
-        return repository.findByLoanDateLessThanAndNotReturned(threeDaysAgo);
+        return repository.findNotReturnedDueUpTo(LocalDate.now());
+    }
+
+    @Override
+    public Page<Loan> getDueBefore(LocalDate before, Pageable pageable) {
+        return repository.findNotReturnedDueBefore(before, pageable);
     }
 }
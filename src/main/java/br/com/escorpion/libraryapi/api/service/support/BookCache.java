@@ -0,0 +1,140 @@
+package br.com.escorpion.libraryapi.api.service.support;
+
+import br.com.escorpion.libraryapi.api.model.entity.Book;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Bounded in-memory cache of books by id, with a hit count per entry so the hottest books can
+ * be snapshotted and preloaded on the next start (see {@link BookCacheWarmer}).
+ * <p>
+ * Entries are copies and every read returns a fresh copy, so callers may modify what they get
+ * (the update endpoint does) without touching the cache. Entries expire after the TTL, which
+ * bounds how stale a book changed by another replica can be. When full, the least hit of a
+ * small sample of entries is evicted.
+ */
+@Component
+public class BookCache {
+
+    private static final int EVICTION_SAMPLE = 16;
+
+    private final Map<Long, Entry> books = new ConcurrentHashMap<>();
+    private final int maximumSize;
+    private final long ttlNanos;
+    private final Counter hits;
+    private final Counter misses;
+
+    public BookCache(MeterRegistry meterRegistry,
+                     @Value("${application.books.cache.maximum-size:10000}") int maximumSize,
+                     @Value("${application.books.cache.ttl-seconds:300}") long ttlSeconds) {
+        this.maximumSize = maximumSize;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.hits = meterRegistry.counter("library.books.cache.requests", "result", "hit");
+        this.misses = meterRegistry.counter("library.books.cache.requests", "result", "miss");
+        meterRegistry.gauge("library.books.cache.size", books, Map::size);
+    }
+
+    public Optional<Book> get(long id) {
+        Entry entry = books.get(id);
+        if (entry == null || System.nanoTime() - entry.loadedAt > ttlNanos) {
+            misses.increment();
+            return Optional.empty();
+        }
+        entry.hits.incrementAndGet();
+        hits.increment();
+        return Optional.of(copy(entry.book));
+    }
+
+    /**
+     * Caches a copy of {@code book}, keeping the hit count of the entry it replaces.
+     */
+    public void put(Book book) {
+        if (book == null || book.getId() == null) {
+            return;
+        }
+        Entry previous = books.put(book.getId(), new Entry(copy(book), books.get(book.getId())));
+        if (previous == null && books.size() > maximumSize) {
+            evictOne();
+        }
+    }
+
+    public void invalidate(long id) {
+        books.remove(id);
+    }
+
+    public int size() {
+        return books.size();
+    }
+
+    /**
+     * @return copies of up to {@code limit} cached books, most hit first
+     */
+    public List<Book> hottest(int limit) {
+        return books.values().stream()
+                .sorted(Comparator.comparingInt((Entry entry) -> entry.hits.get()).reversed())
+                .limit(limit)
+                .map(entry -> copy(entry.book))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Halves every hit count, so hotness follows recent traffic instead of all-time totals.
+     */
+    public void decay() {
+        books.values().forEach(entry -> entry.hits.updateAndGet(hits -> hits >> 1));
+    }
+
+    private void evictOne() {
+        Iterator<Map.Entry<Long, Entry>> iterator = books.entrySet().iterator();
+        Map.Entry<Long, Entry> coldest = null;
+        for (int i = 0; i < EVICTION_SAMPLE && iterator.hasNext(); i++) {
+            Map.Entry<Long, Entry> candidate = iterator.next();
+            if (coldest == null || candidate.getValue().hits.get() < coldest.getValue().hits.get()) {
+                coldest = candidate;
+            }
+        }
+        if (coldest != null) {
+            books.remove(coldest.getKey(), coldest.getValue());
+        }
+    }
+
+    /**
+     * @return a detached copy of {@code book}'s columns, without its loans
+     */
+    public static Book copy(Book book) {
+        return Book.builder()
+                .id(book.getId())
+                .title(book.getTitle())
+                .author(book.getAuthor())
+                .isbn(book.getIsbn())
+                .isbnKey(book.getIsbnKey())
+                .category(book.getCategory())
+                .copies(book.getCopies())
+                .available(book.getAvailable())
+                .build();
+    }
+
+    private static final class Entry {
+
+        private final Book book;
+        private final long loadedAt = System.nanoTime();
+        private final AtomicInteger hits;
+
+        private Entry(Book book, Entry previous) {
+            this.book = book;
+            this.hits = new AtomicInteger(previous == null ? 0 : previous.hits.get());
+        }
+    }
+}
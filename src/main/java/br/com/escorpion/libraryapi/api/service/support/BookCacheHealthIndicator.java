@@ -0,0 +1,31 @@
+package br.com.escorpion.libraryapi.api.service.support;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports OUT_OF_SERVICE while {@link BookCacheWarmer} is still preloading the snapshot, and
+ * exposes how long the warm-up took and how many books it loaded.
+ */
+@Component
+@RequiredArgsConstructor
+public class BookCacheHealthIndicator implements HealthIndicator {
+
+    private final BookCacheWarmer warmer;
+    private final BookCache cache;
+
+    @Override
+    public Health health() {
+        Health.Builder builder = warmer.isWarm() ? Health.up() : Health.outOfService();
+        builder.withDetail("entriesLoaded", warmer.getEntriesLoaded())
+                .withDetail("warmUpMs", warmer.getWarmUpMillis())
+                .withDetail("cacheSize", cache.size())
+                .withDetail("snapshot", warmer.getSnapshot().toString());
+        if (warmer.getFailure() != null) {
+            builder.withDetail("failure", warmer.getFailure());
+        }
+        return builder.build();
+    }
+}
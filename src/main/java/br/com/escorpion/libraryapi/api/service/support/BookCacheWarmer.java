@@ -0,0 +1,206 @@
+package br.com.escorpion.libraryapi.api.service.support;
+
+import br.com.escorpion.libraryapi.api.model.entity.Book;
+import br.com.escorpion.libraryapi.api.repository.BookRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the {@link BookCache} warm across restarts. The hottest books are periodically written
+ * to a local snapshot file, one {@code id,isbn} line each; on startup the ids in it are loaded
+ * in parallel chunks, and {@link BookCacheHealthIndicator} reports OUT_OF_SERVICE until that
+ * is done, so a load balancer keeps traffic away from the cold instance.
+ * <p>
+ * A missing or unreadable snapshot only means starting cold.
+ */
+@Slf4j
+@Component
+@Lazy(false)
+public class BookCacheWarmer {
+
+    private static final String HEADER = "# id,isbn";
+
+    private final BookRepository repository;
+    private final BookCache cache;
+    private final Path snapshot;
+    private final boolean enabled;
+    private final int snapshotSize;
+    private final int chunkSize;
+    private final ExecutorService pool;
+    private final Timer warmUpTimer;
+
+    private volatile boolean warm;
+    private volatile int entriesLoaded;
+    private volatile long warmUpMillis = -1;
+    private volatile String failure;
+
+    public BookCacheWarmer(BookRepository repository,
+                           BookCache cache,
+                           MeterRegistry meterRegistry,
+                           @Value("${application.books.cache.snapshot.enabled:true}") boolean enabled,
+                           @Value("${application.books.cache.snapshot.path:${java.io.tmpdir}/library-api/hot-books.snapshot}") String snapshot,
+                           @Value("${application.books.cache.snapshot.size:2000}") int snapshotSize,
+                           @Value("${application.books.cache.warm-up.parallelism:4}") int parallelism,
+                           @Value("${application.books.cache.warm-up.chunk-size:200}") int chunkSize) {
+        this.repository = repository;
+        this.cache = cache;
+        this.enabled = enabled;
+        this.snapshot = Paths.get(snapshot);
+        this.snapshotSize = snapshotSize;
+        this.chunkSize = chunkSize;
+        this.pool = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "book-cache-warm-up");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.warmUpTimer = meterRegistry.timer("library.books.cache.warm_up");
+        meterRegistry.gauge("library.books.cache.warm_up.entries", this, BookCacheWarmer::getEntriesLoaded);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        start();
+    }
+
+    /**
+     * Loads the snapshotted books without blocking the caller.
+     *
+     * @return the number of books loaded, once all chunks are done
+     */
+    CompletableFuture<Integer> start() {
+        long start = System.nanoTime();
+        List<Long> ids = enabled ? readSnapshot() : Collections.emptyList();
+        AtomicInteger loaded = new AtomicInteger();
+        List<CompletableFuture<Void>> chunks = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            List<Long> chunk = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+            chunks.add(CompletableFuture.runAsync(() -> loaded.addAndGet(load(chunk)), pool));
+        }
+        return CompletableFuture.allOf(chunks.toArray(new CompletableFuture[0]))
+                .handle((ignored, error) -> {
+                    long elapsed = System.nanoTime() - start;
+                    warmUpTimer.record(elapsed, TimeUnit.NANOSECONDS);
+                    entriesLoaded = loaded.get();
+                    warmUpMillis = TimeUnit.NANOSECONDS.toMillis(elapsed);
+                    if (error != null) {
+                        failure = error.getCause() != null ? error.getCause().toString() : error.toString();
+                        log.warn("book cache warm-up failed after {} books: {}", entriesLoaded, failure);
+                    } else {
+                        log.info("book cache warmed with {} of {} snapshotted books in {} ms",
+                                entriesLoaded, ids.size(), warmUpMillis);
+                    }
+                    warm = true;
+                    return entriesLoaded;
+                });
+    }
+
+    @Scheduled(initialDelayString = "${application.books.cache.snapshot.interval-ms:60000}",
+            fixedDelayString = "${application.books.cache.snapshot.interval-ms:60000}")
+    public void writeSnapshot() {
+        if (!enabled || !warm) {
+            return;
+        }
+        List<Book> hottest = cache.hottest(snapshotSize);
+        cache.decay();
+        if (hottest.isEmpty()) {
+            return;
+        }
+        try {
+            Files.createDirectories(snapshot.toAbsolutePath().getParent());
+            Path temporary = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+                writer.write(HEADER);
+                writer.newLine();
+                for (Book book : hottest) {
+                    writer.write(book.getId() + "," + (book.getIsbn() == null ? "" : book.getIsbn()));
+                    writer.newLine();
+                }
+            }
+            Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("could not write book cache snapshot {}: {}", snapshot, e.toString());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writeSnapshot();
+        pool.shutdownNow();
+    }
+
+    public boolean isWarm() {
+        return warm;
+    }
+
+    public int getEntriesLoaded() {
+        return entriesLoaded;
+    }
+
+    /**
+     * @return how long the warm-up took, or -1 while it is still running
+     */
+    public long getWarmUpMillis() {
+        return warmUpMillis;
+    }
+
+    public String getFailure() {
+        return failure;
+    }
+
+    public Path getSnapshot() {
+        return snapshot;
+    }
+
+    private int load(List<Long> ids) {
+        List<Book> books = repository.findAllById(ids);
+        books.forEach(cache::put);
+        return books.size();
+    }
+
+    private List<Long> readSnapshot() {
+        if (!Files.isReadable(snapshot)) {
+            return Collections.emptyList();
+        }
+        List<Long> ids = new ArrayList<>();
+        try (Stream<String> lines = Files.lines(snapshot, StandardCharsets.UTF_8)) {
+            lines.filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                    .limit(snapshotSize)
+                    .forEach(line -> {
+                        int comma = line.indexOf(',');
+                        try {
+                            ids.add(Long.parseLong(comma < 0 ? line : line.substring(0, comma)));
+                        } catch (NumberFormatException e) {
+                            log.debug("skipping malformed snapshot line {}", line);
+                        }
+                    });
+        } catch (IOException | RuntimeException e) {
+            log.warn("could not read book cache snapshot {}: {}", snapshot, e.toString());
+        }
+        return ids;
+    }
+}
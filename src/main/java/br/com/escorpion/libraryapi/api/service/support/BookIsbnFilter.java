@@ -0,0 +1,115 @@
+package br.com.escorpion.libraryapi.api.service.support;
+
+import br.com.escorpion.libraryapi.api.repository.BookRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Bloom filter over every stored ISBN, used to answer "is this ISBN taken?" without a query
+ * when the answer is no. Until the first build finishes every check goes to the database.
+ * <p>
+ * Deleted ISBNs cannot be removed from a Bloom filter; they only cost one extra query until
+ * the scheduled rebuild drops them.
+ */
+@Slf4j
+@Component
+public class BookIsbnFilter {
+
+    private final BookRepository repository;
+    private final long expectedInsertions;
+    private final double falsePositiveRate;
+
+    private volatile BloomFilter current;
+    private volatile BloomFilter building;
+
+    private final Counter definiteNo;
+    private final Counter confirmed;
+    private final Counter falsePositives;
+
+    public BookIsbnFilter(BookRepository repository,
+                          MeterRegistry meterRegistry,
+                          @Value("${application.books.isbn-filter.expected-insertions:1000000}") long expectedInsertions,
+                          @Value("${application.books.isbn-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.repository = repository;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+        this.definiteNo = meterRegistry.counter("library.books.isbn_filter.checks", "result", "definite_no");
+        this.confirmed = meterRegistry.counter("library.books.isbn_filter.checks", "result", "confirmed");
+        this.falsePositives = meterRegistry.counter("library.books.isbn_filter.checks", "result", "false_positive");
+        meterRegistry.gauge("library.books.isbn_filter.false_positive_rate", this, BookIsbnFilter::observedFalsePositiveRate);
+        meterRegistry.gauge("library.books.isbn_filter.expected_false_positive_rate", this, BookIsbnFilter::expectedFalsePositiveRate);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${application.books.isbn-filter.rebuild-cron:0 0 4 * * ?}")
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        BloomFilter filter = new BloomFilter(expectedInsertions, falsePositiveRate);
+        building = filter;
+        LongAdder count = new LongAdder();
+        try (Stream<String> isbns = repository.streamAllIsbns()) {
+            isbns.forEach(isbn -> {
+                filter.put(Isbn.normalize(isbn));
+                count.increment();
+            });
+            // published before building is cleared, so a put in between reaches one of them
+            current = filter;
+        } finally {
+            building = null;
+        }
+        log.info("isbn filter built with {} isbns in {} ms", count, System.currentTimeMillis() - start);
+    }
+
+    public void put(String isbn) {
+        BloomFilter filter = current;
+        if (filter != null) {
+            filter.put(isbn);
+        }
+        BloomFilter next = building;
+        if (next != null) {
+            next.put(isbn);
+        }
+    }
+
+    /**
+     * Answers from the filter when it rules the ISBN out and asks {@code database} otherwise.
+     */
+    public boolean exists(String isbn, Predicate<String> database) {
+        BloomFilter filter = current;
+        if (filter == null) {
+            return database.test(isbn);
+        }
+        if (!filter.mightContain(isbn)) {
+            definiteNo.increment();
+            return false;
+        }
+        boolean exists = database.test(isbn);
+        (exists ? confirmed : falsePositives).increment();
+        return exists;
+    }
+
+    /**
+     * Share of absent ISBNs that the filter failed to rule out.
+     */
+    public double observedFalsePositiveRate() {
+        double negatives = definiteNo.count() + falsePositives.count();
+        return negatives == 0 ? 0 : falsePositives.count() / negatives;
+    }
+
+    public double expectedFalsePositiveRate() {
+        BloomFilter filter = current;
+        return filter == null ? 0 : filter.expectedFalsePositiveRate();
+    }
+}
@@ -0,0 +1,68 @@
+package br.com.escorpion.libraryapi.api.service.support;
+
+import br.com.escorpion.libraryapi.api.repository.BookRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.OptionalLong;
+import java.util.stream.Stream;
+
+/**
+ * In-memory {@code isbnKey -> bookId} index, so resolving an ISBN to a book (every loan
+ * creation does it) is a primitive map probe plus a primary-key fetch instead of a lookup on
+ * the ISBN column. Entries can go stale when a book's ISBN changes; callers verify the fetched
+ * book and fall back to the database.
+ */
+@Slf4j
+@Component
+public class BookIsbnIndex {
+
+    private final BookRepository repository;
+    private final LongLongHashMap ids;
+
+    private volatile boolean ready;
+
+    public BookIsbnIndex(BookRepository repository,
+                         MeterRegistry meterRegistry,
+                         @Value("${application.books.isbn-index.expected-size:100000}") int expectedSize) {
+        this.repository = repository;
+        this.ids = new LongLongHashMap(expectedSize);
+        meterRegistry.gauge("library.books.isbn_index.size", ids, LongLongHashMap::size);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        try (Stream<Object[]> rows = repository.streamIsbnKeys()) {
+            rows.forEach(row -> ids.put((Long) row[0], (Long) row[1]));
+        }
+        ready = true;
+        log.info("isbn index built with {} books in {} ms", ids.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * @return the id indexed for {@code isbnKey}, or empty when it is unknown or the index is
+     * still being built
+     */
+    public OptionalLong find(long isbnKey) {
+        if (!ready) {
+            return OptionalLong.empty();
+        }
+        long id = ids.get(isbnKey);
+        return id == LongLongHashMap.MISSING ? OptionalLong.empty() : OptionalLong.of(id);
+    }
+
+    public void put(long isbnKey, long bookId) {
+        ids.put(isbnKey, bookId);
+    }
+
+    public void remove(long isbnKey) {
+        ids.remove(isbnKey);
+    }
+}
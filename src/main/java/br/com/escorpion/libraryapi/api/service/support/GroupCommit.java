@@ -0,0 +1,167 @@
+package br.com.escorpion.libraryapi.api.service.support;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Group commit for concurrent writes: callers queue their write and wait, a single writer
+ * thread takes what arrived within a short window, up to a batch size, and applies it in one
+ * transaction, so the batch shares one flush, JDBC batches and one commit.
+ * <p>
+ * A write that fails rolls back its whole batch, which is then applied again one write per
+ * transaction; every caller gets its own result or exception. Writes must therefore be safe to
+ * run again after a rollback. When the queue is full or closed the caller applies its write
+ * itself, in its own transaction.
+ */
+@Slf4j
+public class GroupCommit {
+
+    private static final class Pending<R> {
+
+        private final Supplier<R> write;
+        private final CompletableFuture<R> result = new CompletableFuture<>();
+
+        private Pending(Supplier<R> write) {
+            this.write = write;
+        }
+    }
+
+    private final TransactionTemplate transactions;
+    private final BlockingQueue<Pending<?>> queue;
+    private final int maxBatch;
+    private final long maxWaitNanos;
+    private final DistributionSummary batchSizes;
+    private final Counter fallbacks;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public GroupCommit(String name, TransactionTemplate transactions, int maxBatch, long maxWaitMillis,
+                       int capacity, MeterRegistry meterRegistry) {
+        this.transactions = transactions;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxBatch = maxBatch;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.batchSizes = DistributionSummary.builder("library.group_commit.batch_size").tag("name", name)
+                .register(meterRegistry);
+        this.fallbacks = meterRegistry.counter("library.group_commit.fallbacks", "name", name);
+        this.writer = new Thread(this::run, name + "-group-commit");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Applies {@code write} in the next batch and waits for it to commit.
+     *
+     * @return what {@code write} returned
+     */
+    public <R> R execute(Supplier<R> write) {
+        Pending<R> pending = new Pending<>(write);
+        if (!running || !queue.offer(pending)) {
+            return transactions.execute(status -> write.get());
+        }
+        // closed meanwhile: the writer may be gone, so take the write back unless it has it
+        if (!running && queue.remove(pending)) {
+            return transactions.execute(status -> write.get());
+        }
+        try {
+            return pending.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Applies what is already queued and stops the writer; later writes run on their callers.
+     * Writes the writer did not get to in time fail instead of leaving their callers waiting.
+     */
+    public void close() throws InterruptedException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+        List<Pending<?>> stragglers = new ArrayList<>();
+        queue.drainTo(stragglers);
+        IllegalStateException closed = new IllegalStateException("group commit closed");
+        stragglers.forEach(pending -> pending.result.completeExceptionally(closed));
+    }
+
+    private void run() {
+        List<Pending<?>> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending<?> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < maxBatch) {
+                    Pending<?> next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                apply(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            } catch (RuntimeException | Error e) {
+                log.error("group commit writer failed", e);
+                batch.forEach(pending -> pending.result.completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void apply(List<Pending<?>> batch) {
+        batchSizes.record(batch.size());
+        if (batch.size() > 1) {
+            try {
+                List<Object> results = transactions.execute(status -> {
+                    List<Object> applied = new ArrayList<>(batch.size());
+                    batch.forEach(pending -> applied.add(pending.write.get()));
+                    return applied;
+                });
+                for (int i = 0; i < batch.size(); i++) {
+                    complete(batch.get(i), results.get(i));
+                }
+                return;
+            } catch (RuntimeException e) {
+                log.debug("batch of {} writes rolled back, applying them one by one: {}", batch.size(), e.toString());
+                fallbacks.increment();
+            }
+        }
+        batch.forEach(this::applyAlone);
+    }
+
+    private <R> void applyAlone(Pending<R> pending) {
+        try {
+            pending.result.complete(transactions.execute(status -> pending.write.get()));
+        } catch (RuntimeException e) {
+            pending.result.completeExceptionally(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <R> void complete(Pending<R> pending, Object result) {
+        pending.result.complete((R) result);
+    }
+}
@@ -0,0 +1,122 @@
+package br.com.escorpion.libraryapi.api.service.support;
+
+import java.util.OptionalLong;
+
+/**
+ * ISBN normalization. ISBN-10 and ISBN-13 values, with or without hyphens and spaces, map to
+ * one canonical 13-digit {@code long} key, so "0-306-40615-2", "978-0-306-40615-7" and
+ * "9780306406157" are all the same book.
+ */
+public final class Isbn {
+
+    private Isbn() {
+    }
+
+    /**
+     * @return the canonical ISBN-13 key, or empty when the value does not have the shape of an
+     * ISBN at all (free-form identifiers are still accepted as plain strings)
+     * @throws IllegalArgumentException when the value has the shape of an ISBN but its check
+     *                                  digit is wrong
+     */
+    public static OptionalLong toKey(String raw) {
+        String compact = compact(raw);
+        if (compact == null) {
+            return OptionalLong.empty();
+        }
+        long key = canonical(compact);
+        if (key < 0) {
+            throw new IllegalArgumentException("Isbn inválido");
+        }
+        return OptionalLong.of(key);
+    }
+
+    /**
+     * Lenient form of {@link #toKey(String)} for lookups: empty for anything that is not a valid
+     * ISBN instead of an exception.
+     */
+    public static OptionalLong parse(String raw) {
+        String compact = compact(raw);
+        if (compact == null) {
+            return OptionalLong.empty();
+        }
+        long key = canonical(compact);
+        return key < 0 ? OptionalLong.empty() : OptionalLong.of(key);
+    }
+
+    /**
+     * @return the canonical 13 digits when the value is a valid ISBN, otherwise the value unchanged
+     */
+    public static String normalize(String raw) {
+        OptionalLong key = parse(raw);
+        return key.isPresent() ? Long.toString(key.getAsLong()) : raw;
+    }
+
+    /**
+     * Strips separators and returns the remaining 10 or 13 characters when they look like an
+     * ISBN, otherwise {@code null}.
+     */
+    private static String compact(String raw) {
+        if (raw == null) {
+            return null;
+        }
+        StringBuilder compact = new StringBuilder(13);
+        for (int i = 0; i < raw.length(); i++) {
+            char c = raw.charAt(i);
+            if (c == '-' || c == ' ') {
+                continue;
+            }
+            boolean checkX = (c == 'X' || c == 'x') && compact.length() == 9;
+            if (!Character.isDigit(c) && !checkX) {
+                return null;
+            }
+            compact.append(Character.toUpperCase(c));
+        }
+        int length = compact.length();
+        if (length == 10) {
+            return compact.toString();
+        }
+        if (length == 13 && compact.indexOf("X") < 0
+                && (compact.indexOf("978") == 0 || compact.indexOf("979") == 0)) {
+            return compact.toString();
+        }
+        return null;
+    }
+
+    private static long canonical(String compact) {
+        return compact.length() == 10 ? fromIsbn10(compact) : fromIsbn13(compact);
+    }
+
+    private static long fromIsbn10(String isbn) {
+        int sum = 0;
+        for (int i = 0; i < 10; i++) {
+            char c = isbn.charAt(i);
+            int digit = c == 'X' ? 10 : c - '0';
+            sum += digit * (10 - i);
+        }
+        if (sum % 11 != 0) {
+            return -1;
+        }
+        long body = 9_780_000_000_000L + Long.parseLong(isbn.substring(0, 9)) * 10;
+        return body + ean13CheckDigit(body);
+    }
+
+    private static long fromIsbn13(String isbn) {
+        long value = Long.parseLong(isbn);
+        long body = value - value % 10;
+        return ean13CheckDigit(body) == value % 10 ? value : -1;
+    }
+
+    /**
+     * @param body the 13-digit value with a zero in the check-digit position
+     */
+    private static long ean13CheckDigit(long body) {
+        long rest = body / 10;
+        int sum = 0;
+        for (int position = 12; position >= 1; position--) {
+            int digit = (int) (rest % 10);
+            sum += position % 2 == 0 ? digit * 3 : digit;
+            rest /= 10;
+        }
+        return (10 - sum % 10) % 10;
+    }
+}
@@ -0,0 +1,22 @@
+package br.com.escorpion.libraryapi.api.service.support;
+
+import br.com.escorpion.libraryapi.api.model.entity.OutboxEvent;
+import br.com.escorpion.libraryapi.api.service.LoanEventListener;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts loan events by type, fed from the outbox rather than the request path.
+ */
+@Component
+@RequiredArgsConstructor
+public class LoanEventMetrics implements LoanEventListener {
+
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    public void onLoanEvent(OutboxEvent event) {
+        meterRegistry.counter("library.loans.events", "type", event.getType().name().toLowerCase()).increment();
+    }
+}
@@ -0,0 +1,315 @@
+package br.com.escorpion.libraryapi.api.service.support;
+
+import br.com.escorpion.libraryapi.api.dto.LoanEventDTO;
+import br.com.escorpion.libraryapi.api.model.entity.OutboxEvent;
+import br.com.escorpion.libraryapi.api.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Server-Sent Events fan-out of loan events. Every node tails the outbox table on its own
+ * (see {@link OutboxTail}), independently of the relay that marks events processed, so the
+ * subscribers of every node see every event.
+ * <p>
+ * Every subscriber has its own bounded buffer drained on a shared pool, so one slow client
+ * never holds up the poll or the others. When a buffer is full the oldest events are
+ * dropped and the client gets a {@code dropped} event instead.
+ * <p>
+ * The SSE id of an event is a resume position, not the event id: ids do not commit in order,
+ * so it is the highest id below which this client has been sent everything. A client that
+ * reconnects with {@code Last-Event-ID} gets every event above it replayed from the outbox
+ * table; delivery is at-least-once and the event id in the data tells repeats apart.
+ */
+@Slf4j
+@Component
+public class LoanEventStream {
+
+    private static final int MAX_REPLAY = 1000;
+    private static final int POLL_BATCH = 500;
+
+    private final OutboxEventRepository repository;
+    private final Executor executor;
+    private final int bufferSize;
+    private final int maxSubscribers;
+    private final long timeoutMillis;
+    private final OutboxTail tail;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final Counter dropped;
+
+    @Autowired
+    public LoanEventStream(OutboxEventRepository repository,
+                           MeterRegistry meterRegistry,
+                           @Value("${application.loans.stream.buffer-size:256}") int bufferSize,
+                           @Value("${application.loans.stream.max-subscribers:1000}") int maxSubscribers,
+                           @Value("${application.loans.stream.timeout-ms:1800000}") long timeoutMillis,
+                           @Value("${application.loans.stream.commit-grace-ms:10000}") long commitGraceMillis) {
+        this(repository, meterRegistry, Executors.newFixedThreadPool(4, daemonThreads()),
+                bufferSize, maxSubscribers, timeoutMillis, commitGraceMillis);
+    }
+
+    LoanEventStream(OutboxEventRepository repository, MeterRegistry meterRegistry, Executor executor,
+                    int bufferSize, int maxSubscribers, long timeoutMillis, long commitGraceMillis) {
+        this.repository = repository;
+        this.executor = executor;
+        this.bufferSize = bufferSize;
+        this.maxSubscribers = maxSubscribers;
+        this.timeoutMillis = timeoutMillis;
+        Long start = repository.findMaxId();
+        this.tail = new OutboxTail(start == null ? 0 : start, commitGraceMillis);
+        this.dropped = meterRegistry.counter("library.loans.stream.dropped");
+        meterRegistry.gaugeCollectionSize("library.loans.stream.subscribers", Tags.empty(), subscribers);
+    }
+
+    /**
+     * @param lastEventId SSE id of the last event the client saw, to replay what it missed
+     * @throws RejectedExecutionException when the subscriber limit is reached
+     */
+    public SseEmitter subscribe(Long lastEventId) {
+        return subscribe(new SseEmitter(timeoutMillis), lastEventId);
+    }
+
+    SseEmitter subscribe(SseEmitter emitter, Long lastEventId) {
+        if (subscribers.size() >= maxSubscribers) {
+            throw new RejectedExecutionException("Limite de assinantes atingido");
+        }
+        Subscriber subscriber = new Subscriber(emitter, bufferSize);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(error -> subscribers.remove(subscriber));
+        // registered together with the tail position, so everything the tail reads later is
+        // delivered live and everything it read before is replayed; the subscriber lock keeps
+        // live delivery waiting until the replay is out
+        synchronized (subscriber) {
+            long lowWater;
+            long highest;
+            synchronized (this) {
+                subscribers.add(subscriber);
+                lowWater = tail.lowWater();
+                highest = tail.highest();
+            }
+            subscriber.lastPosition = lastEventId == null ? lowWater : lastEventId;
+            if (lastEventId != null) {
+                replay(subscriber, lastEventId, lowWater, highest);
+            }
+        }
+        return emitter;
+    }
+
+    /**
+     * Sends what committed after {@code lastEventId} up to what the tail has read. Rows above
+     * {@code lowWater} may still come live once the gaps below them fill, so they are
+     * remembered and skipped then.
+     */
+    private void replay(Subscriber subscriber, long lastEventId, long lowWater, long highest) {
+        List<OutboxEvent> missed = repository.findBetween(lastEventId, highest, PageRequest.of(0, MAX_REPLAY));
+        for (OutboxEvent event : missed) {
+            if (!subscriber.send(new Delivery(event, Math.min(event.getId(), lowWater)))) {
+                subscribers.remove(subscriber);
+                return;
+            }
+            if (event.getId() > lowWater) {
+                subscriber.replayed.add(event.getId());
+            }
+        }
+        if (missed.size() == MAX_REPLAY) {
+            subscriber.sendDropped(-1);
+        }
+    }
+
+    /**
+     * Reads what committed in the outbox since the last poll and hands it to the subscribers.
+     */
+    @Scheduled(fixedDelayString = "${application.loans.stream.poll-ms:500}")
+    public void poll() {
+        List<OutboxEvent> newer;
+        do {
+            List<OutboxEvent> filled = tail.gaps().isEmpty()
+                    ? List.of() : repository.findAllById(new ArrayList<>(tail.gaps()));
+            newer = repository.findAfter(tail.highest(), PageRequest.of(0, POLL_BATCH));
+            synchronized (this) {
+                List<OutboxEvent> events = tail.advance(filled, newer, System.nanoTime());
+                long lowWater = tail.lowWater();
+                for (int i = 0; i < events.size(); i++) {
+                    // what lies between this event and the next one was read by earlier polls
+                    long upTo = i + 1 < events.size() ? events.get(i + 1).getId() - 1 : lowWater;
+                    publish(new Delivery(events.get(i), Math.min(upTo, lowWater)));
+                }
+            }
+        } while (newer.size() == POLL_BATCH);
+    }
+
+    private void publish(Delivery delivery) {
+        for (Subscriber subscriber : subscribers) {
+            int lost = subscriber.offer(delivery);
+            if (lost > 0) {
+                dropped.increment(lost);
+            }
+            if (subscriber.draining.compareAndSet(false, true)) {
+                executor.execute(() -> drain(subscriber));
+            }
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        do {
+            synchronized (subscriber) {
+                int lost = subscriber.lost.getAndSet(0);
+                if (lost > 0 && !subscriber.sendDropped(lost)) {
+                    subscribers.remove(subscriber);
+                    return;
+                }
+                Delivery delivery;
+                while ((delivery = subscriber.buffer.poll()) != null) {
+                    if (!subscriber.send(delivery)) {
+                        subscribers.remove(subscriber);
+                        return;
+                    }
+                }
+            }
+            subscriber.draining.set(false);
+        } while (!subscriber.buffer.isEmpty() && subscriber.draining.compareAndSet(false, true));
+    }
+
+    /**
+     * Comment line every few seconds, so dead connections are noticed and proxies keep the
+     * stream open.
+     */
+    @Scheduled(fixedDelayString = "${application.loans.stream.heartbeat-ms:15000}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            synchronized (subscriber) {
+                try {
+                    subscriber.emitter.send(SseEmitter.event().comment("keep-alive"));
+                } catch (IOException | IllegalStateException e) {
+                    subscribers.remove(subscriber);
+                }
+            }
+        }
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        if (executor instanceof ExecutorService) {
+            ((ExecutorService) executor).shutdown();
+        }
+    }
+
+    private static ThreadFactory daemonThreads() {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "loan-stream-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * An event and the resume position once it is sent: everything up to {@code position} has
+     * been read by the tail, and so was queued for the subscribers before this event.
+     */
+    private static final class Delivery {
+
+        final OutboxEvent event;
+        final long position;
+
+        Delivery(OutboxEvent event, long position) {
+            this.event = event;
+            this.position = position;
+        }
+    }
+
+    private static final class Subscriber {
+
+        final SseEmitter emitter;
+        final ArrayBlockingQueue<Delivery> buffer;
+        final AtomicBoolean draining = new AtomicBoolean();
+        final AtomicInteger lost = new AtomicInteger();
+        final TreeSet<Long> replayed = new TreeSet<>();
+        /**
+         * Highest position this client may resume from: just below the first event it lost.
+         */
+        volatile long resumeLimit = Long.MAX_VALUE;
+        long lastPosition;
+
+        Subscriber(SseEmitter emitter, int bufferSize) {
+            this.emitter = emitter;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        /**
+         * @return how many buffered events had to be dropped to make room
+         */
+        int offer(Delivery delivery) {
+            int dropped = 0;
+            while (!buffer.offer(delivery)) {
+                Delivery oldest = buffer.poll();
+                if (oldest != null) {
+                    dropped++;
+                    resumeLimit = Math.min(resumeLimit, Math.min(oldest.event.getId() - 1, oldest.position));
+                }
+            }
+            lost.addAndGet(dropped);
+            return dropped;
+        }
+
+        /**
+         * Skips events already sent by a replay that overlapped with live delivery.
+         */
+        boolean send(Delivery delivery) {
+            long id = delivery.event.getId();
+            boolean repeated = replayed.remove(id);
+            replayed.headSet(delivery.position, true).clear();
+            if (repeated) {
+                return true;
+            }
+            try {
+                long position = Math.min(delivery.position, resumeLimit);
+                emitter.send(SseEmitter.event()
+                        .id(String.valueOf(position))
+                        .name(delivery.event.getType().name().toLowerCase())
+                        .data(LoanEventDTO.of(delivery.event)));
+                lastPosition = position;
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                return false;
+            }
+        }
+
+        /**
+         * @param count dropped events, or -1 when the replay was cut short
+         */
+        boolean sendDropped(int count) {
+            try {
+                long position = Math.min(lastPosition, resumeLimit);
+                emitter.send(SseEmitter.event().name("dropped").data(Map.of("dropped", count, "lastEventId", position)));
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                return false;
+            }
+        }
+    }
+}
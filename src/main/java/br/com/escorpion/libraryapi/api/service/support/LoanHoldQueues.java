@@ -0,0 +1,107 @@
+package br.com.escorpion.libraryapi.api.service.support;
+
+import br.com.escorpion.libraryapi.api.model.entity.HoldStatus;
+import br.com.escorpion.libraryapi.api.repository.LoanHoldRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Deque;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.stream.Stream;
+
+/**
+ * In-memory mirror of the waiting holds: one FIFO of hold ids per book, so a return finds the
+ * next holder with a poll instead of a query. The table stays the source of truth; holds
+ * are added once their transaction commits, a poll is undone if its transaction rolls back,
+ * and callers claim the polled hold in the database before acting on it.
+ * <p>
+ * Holds taken on another replica are not mirrored here, so an empty queue is only a hint:
+ * callers fall back to the table (see {@code LoanServiceImpl}).
+ */
+@Slf4j
+@Component
+public class LoanHoldQueues {
+
+    private final LoanHoldRepository repository;
+    private final Map<Long, Deque<Long>> queues = new ConcurrentHashMap<>();
+
+    public LoanHoldQueues(LoanHoldRepository repository) {
+        this.repository = repository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        queues.clear();
+        try (Stream<Object[]> rows = repository.streamByStatus(HoldStatus.WAITING)) {
+            rows.forEach(row -> queue((Long) row[0]).addLast((Long) row[1]));
+        }
+        log.info("hold queues built for {} books in {} ms", queues.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Queues {@code holdId} behind the book's other holds once the current transaction commits.
+     */
+    public void add(long bookId, long holdId) {
+        afterCompletion(status -> {
+            if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                queue(bookId).addLast(holdId);
+            }
+        });
+    }
+
+    /**
+     * @return the book's oldest hold id, or empty when none is queued here; put back in front
+     * if the current transaction rolls back
+     */
+    public OptionalLong poll(long bookId) {
+        Deque<Long> queue = queues.get(bookId);
+        Long holdId = queue == null ? null : queue.pollFirst();
+        if (holdId == null) {
+            return OptionalLong.empty();
+        }
+        afterCompletion(status -> {
+            if (status == TransactionSynchronization.STATUS_ROLLED_BACK) {
+                queue(bookId).addFirst(holdId);
+            }
+        });
+        return OptionalLong.of(holdId);
+    }
+
+    public int size(long bookId) {
+        Deque<Long> queue = queues.get(bookId);
+        return queue == null ? 0 : queue.size();
+    }
+
+    private Deque<Long> queue(long bookId) {
+        return queues.computeIfAbsent(bookId, id -> new ConcurrentLinkedDeque<>());
+    }
+
+    private static void afterCompletion(StatusCallback callback) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            callback.completed(TransactionSynchronization.STATUS_COMMITTED);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+                callback.completed(status);
+            }
+        });
+    }
+
+    @FunctionalInterface
+    private interface StatusCallback {
+        void completed(int status);
+    }
+}
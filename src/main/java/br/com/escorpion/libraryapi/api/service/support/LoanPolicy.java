@@ -0,0 +1,54 @@
+package br.com.escorpion.libraryapi.api.service.support;
+
+import br.com.escorpion.libraryapi.api.model.entity.Book;
+import br.com.escorpion.libraryapi.api.model.entity.Loan;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * How long a loan lasts: {@code application.loans.loan-days} by default, or the period set for
+ * the book's category in {@code application.loans.category-loan-days}, written as
+ * {@code category:days} pairs (e.g. {@code reference:1,new-release:7}). Categories are matched
+ * ignoring case.
+ */
+@Component
+public class LoanPolicy {
+
+    private final int loanDays;
+    private final Map<String, Integer> loanDaysByCategory = new HashMap<>();
+
+    public LoanPolicy(@Value("${application.loans.loan-days:4}") int loanDays,
+                      @Value("${application.loans.category-loan-days:}") String[] categoryLoanDays) {
+        if (loanDays <= 0) {
+            throw new IllegalArgumentException("Prazo de empréstimo deve ser positivo: " + loanDays);
+        }
+        this.loanDays = loanDays;
+        for (String entry : categoryLoanDays) {
+            String[] parts = entry.split(":");
+            if (parts.length != 2 || Integer.parseInt(parts[1].trim()) <= 0) {
+                throw new IllegalArgumentException("Prazo por categoria inválido: " + entry);
+            }
+            loanDaysByCategory.put(key(parts[0]), Integer.parseInt(parts[1].trim()));
+        }
+    }
+
+    public int loanDays(Book book) {
+        if (book == null || book.getCategory() == null) {
+            return loanDays;
+        }
+        return loanDaysByCategory.getOrDefault(key(book.getCategory()), loanDays);
+    }
+
+    public LocalDate dueDate(Loan loan) {
+        return loan.getLoanDate().plusDays(loanDays(loan.getBook()));
+    }
+
+    private static String key(String category) {
+        return category.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,171 @@
+package br.com.escorpion.libraryapi.api.service.support;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Open-addressing {@code long -> long} hash map over a single primitive array (key and value
+ * interleaved), so an entry costs 16 bytes and lookups create no garbage. Key {@code 0} marks
+ * an empty slot and cannot be stored.
+ * <p>
+ * Reads are optimistic, validated against a {@link StampedLock} stamp and retried under the
+ * read lock when a write raced them; writes take the write lock. Deletion shifts the following
+ * cluster back, so no tombstones accumulate.
+ */
+public class LongLongHashMap {
+
+    public static final long MISSING = Long.MIN_VALUE;
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private final StampedLock lock = new StampedLock();
+    private long[] table;
+    private int size;
+
+    public LongLongHashMap(int expectedSize) {
+        int slots = Integer.highestOneBit(Math.max(16, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        table = new long[slots * 2];
+    }
+
+    /**
+     * @return the value for {@code key}, or {@link #MISSING}
+     */
+    public long get(long key) {
+        long stamp = lock.tryOptimisticRead();
+        long value = find(table, key);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                value = find(table, key);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return value;
+    }
+
+    public void put(long key, long value) {
+        checkKey(key);
+        long stamp = lock.writeLock();
+        try {
+            if (size + 1 > (table.length / 2) * LOAD_FACTOR) {
+                resize(table.length * 2);
+            }
+            if (insert(table, key, value)) {
+                size++;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void remove(long key) {
+        checkKey(key);
+        long stamp = lock.writeLock();
+        try {
+            int mask = table.length / 2 - 1;
+            int slot = slot(key, mask);
+            while (table[slot * 2] != 0) {
+                if (table[slot * 2] == key) {
+                    shiftBack(slot, mask);
+                    size--;
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            Arrays.fill(table, 0);
+            size = 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private static long find(long[] table, long key) {
+        int mask = table.length / 2 - 1;
+        int slot = slot(key, mask);
+        for (int probes = 0; probes <= mask; probes++) {
+            long current = table[slot * 2];
+            if (current == key) {
+                return table[slot * 2 + 1];
+            }
+            if (current == 0) {
+                return MISSING;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return MISSING;
+    }
+
+    private static boolean insert(long[] table, long key, long value) {
+        int mask = table.length / 2 - 1;
+        int slot = slot(key, mask);
+        while (table[slot * 2] != 0) {
+            if (table[slot * 2] == key) {
+                table[slot * 2 + 1] = value;
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        table[slot * 2 + 1] = value;
+        table[slot * 2] = key;
+        return true;
+    }
+
+    private void shiftBack(int hole, int mask) {
+        int slot = hole;
+        while (true) {
+            slot = (slot + 1) & mask;
+            long key = table[slot * 2];
+            if (key == 0) {
+                break;
+            }
+            int home = slot(key, mask);
+            boolean movable = hole <= slot ? (home <= hole || home > slot) : (home <= hole && home > slot);
+            if (movable) {
+                table[hole * 2] = key;
+                table[hole * 2 + 1] = table[slot * 2 + 1];
+                hole = slot;
+            }
+        }
+        table[hole * 2] = 0;
+        table[hole * 2 + 1] = 0;
+    }
+
+    private void resize(int length) {
+        long[] resized = new long[length];
+        for (int i = 0; i < table.length; i += 2) {
+            if (table[i] != 0) {
+                insert(resized, table[i], table[i + 1]);
+            }
+        }
+        table = resized;
+    }
+
+    private static int slot(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private static void checkKey(long key) {
+        if (key == 0) {
+            throw new IllegalArgumentException("key 0 is reserved for empty slots");
+        }
+    }
+}
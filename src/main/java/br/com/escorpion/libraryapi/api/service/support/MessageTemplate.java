@@ -0,0 +1,64 @@
+package br.com.escorpion.libraryapi.api.service.support;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Text template with {@code {name}} placeholders, parsed once into literal and variable
+ * segments so rendering is a single pass over precomputed parts with no scanning or regex.
+ * Values are passed positionally, in the order the variables were declared at compile time.
+ */
+public final class MessageTemplate {
+
+    private final String[] literals;
+    private final int[] variables;
+    private final int length;
+
+    private MessageTemplate(String[] literals, int[] variables) {
+        this.literals = literals;
+        this.variables = variables;
+        this.length = Arrays.stream(literals).mapToInt(String::length).sum();
+    }
+
+    /**
+     * @throws IllegalArgumentException when the template references an undeclared variable
+     */
+    public static MessageTemplate compile(String template, String... variableNames) {
+        List<String> names = Arrays.asList(variableNames);
+        List<String> literals = new ArrayList<>();
+        List<Integer> variables = new ArrayList<>();
+        int position = 0;
+        while (true) {
+            int open = template.indexOf('{', position);
+            int close = open < 0 ? -1 : template.indexOf('}', open);
+            if (close < 0) {
+                literals.add(template.substring(position));
+                break;
+            }
+            String name = template.substring(open + 1, close);
+            int index = names.indexOf(name);
+            if (index < 0) {
+                throw new IllegalArgumentException("Variável desconhecida no template: " + name);
+            }
+            literals.add(template.substring(position, open));
+            variables.add(index);
+            position = close + 1;
+        }
+        return new MessageTemplate(literals.toArray(new String[0]),
+                variables.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    public String render(Object... values) {
+        StringBuilder out = new StringBuilder(length + 16 * variables.length);
+        renderTo(out, values);
+        return out.toString();
+    }
+
+    public void renderTo(StringBuilder out, Object... values) {
+        for (int i = 0; i < variables.length; i++) {
+            out.append(literals[i]).append(values[variables[i]]);
+        }
+        out.append(literals[variables.length]);
+    }
+}
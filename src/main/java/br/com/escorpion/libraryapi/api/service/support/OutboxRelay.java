@@ -0,0 +1,159 @@
+package br.com.escorpion.libraryapi.api.service.support;
+
+import br.com.escorpion.libraryapi.api.model.entity.OutboxEvent;
+import br.com.escorpion.libraryapi.api.repository.OutboxEventRepository;
+import br.com.escorpion.libraryapi.api.service.LoanEventListener;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Polls the outbox in batches and hands each pending event to every {@link LoanEventListener}.
+ * An event is marked processed only after all listeners accepted it; when one throws, the
+ * event stays pending with one more attempt and is retried on the next poll, up to
+ * {@code application.outbox.max-attempts}.
+ * <p>
+ * Every replica runs the relay. A batch first claims its events for
+ * {@code application.outbox.claim-timeout-seconds}, so each event goes to one node; when that
+ * node dies before marking them processed, the claim runs out and another node sends them.
+ * <p>
+ * An event that used up its attempts is a dead letter: it is no longer polled, it is logged as
+ * an error, counted by the {@code library.outbox.dead_letters} gauge and deleted after
+ * {@code application.outbox.dead-letter-retention-days}. Resetting its attempts sends it
+ * again.
+ */
+@Slf4j
+@Component
+@Lazy(false)
+public class OutboxRelay {
+
+    private final OutboxEventRepository repository;
+    private final ObjectProvider<LoanEventListener> listeners;
+    private final TransactionTemplate transactionTemplate;
+    private final String nodeId;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final int retentionDays;
+    private final int deadLetterRetentionDays;
+    private final Duration claimTimeout;
+    private long batches;
+
+    private final Counter dispatched;
+    private final Counter failed;
+    private final Counter deadLettered;
+    private final AtomicLong deadLetters;
+    private volatile boolean deadLettersCounted;
+
+    public OutboxRelay(OutboxEventRepository repository,
+                       ObjectProvider<LoanEventListener> listeners,
+                       PlatformTransactionManager transactionManager,
+                       SchedulerCoordinator coordinator,
+                       MeterRegistry meterRegistry,
+                       @Value("${application.outbox.batch-size:200}") int batchSize,
+                       @Value("${application.outbox.max-attempts:10}") int maxAttempts,
+                       @Value("${application.outbox.retention-days:7}") int retentionDays,
+                       @Value("${application.outbox.dead-letter-retention-days:30}") int deadLetterRetentionDays,
+                       @Value("${application.outbox.claim-timeout-seconds:60}") long claimTimeoutSeconds) {
+        this.repository = repository;
+        this.listeners = listeners;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.nodeId = coordinator.getNodeId();
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retentionDays = retentionDays;
+        this.deadLetterRetentionDays = deadLetterRetentionDays;
+        this.claimTimeout = Duration.ofSeconds(claimTimeoutSeconds);
+        this.dispatched = meterRegistry.counter("library.outbox.events", "outcome", "dispatched");
+        this.failed = meterRegistry.counter("library.outbox.events", "outcome", "failed");
+        this.deadLettered = meterRegistry.counter("library.outbox.events", "outcome", "dead_lettered");
+        this.deadLetters = meterRegistry.gauge("library.outbox.dead_letters", new AtomicLong());
+    }
+
+    @Scheduled(fixedDelayString = "${application.outbox.poll-delay-ms:1000}")
+    public void relay() {
+        List<OutboxEvent> batch;
+        boolean failures;
+        do {
+            batch = claimBatch();
+            failures = !dispatch(batch);
+        } while (batch.size() == batchSize && !failures);
+        // the count only changes when an attempt fails or dead letters are purged
+        if (failures || !deadLettersCounted) {
+            countDeadLetters();
+        }
+    }
+
+    private List<OutboxEvent> claimBatch() {
+        String claim = nodeId + "#" + ++batches;
+        LocalDateTime now = LocalDateTime.now();
+        return transactionTemplate.execute(status -> {
+            List<Long> ids = repository.findPendingIds(maxAttempts, now, PageRequest.of(0, batchSize));
+            if (ids.isEmpty() || repository.claim(ids, claim, now, now.plus(claimTimeout)) == 0) {
+                return Collections.emptyList();
+            }
+            return repository.findClaimed(claim);
+        });
+    }
+
+    /**
+     * @return {@code false} when at least one event of the batch failed
+     */
+    private boolean dispatch(List<OutboxEvent> batch) {
+        List<LoanEventListener> consumers = listeners.orderedStream().collect(Collectors.toList());
+        List<Long> processed = new ArrayList<>(batch.size());
+        boolean allDispatched = true;
+        for (OutboxEvent event : batch) {
+            try {
+                consumers.forEach(consumer -> consumer.onLoanEvent(event));
+                processed.add(event.getId());
+                dispatched.increment();
+            } catch (RuntimeException e) {
+                transactionTemplate.execute(status -> repository.incrementAttempts(event.getId()));
+                failed.increment();
+                if (event.getAttempts() + 1 >= maxAttempts) {
+                    log.error("outbox event {} ({} of loan {}) dead-lettered after {} attempts",
+                            event.getId(), event.getType(), event.getLoanId(), maxAttempts, e);
+                    deadLettered.increment();
+                } else {
+                    log.warn("outbox event {} failed on attempt {}", event.getId(), event.getAttempts() + 1, e);
+                }
+                allDispatched = false;
+            }
+        }
+        if (!processed.isEmpty()) {
+            transactionTemplate.execute(status -> repository.markProcessed(processed, LocalDateTime.now()));
+        }
+        return allDispatched;
+    }
+
+    @Scheduled(cron = "${application.outbox.purge-cron:0 15 3 * * ?}")
+    public void purgeProcessed() {
+        int purged = transactionTemplate.execute(status ->
+                repository.deleteProcessedBefore(LocalDateTime.now().minusDays(retentionDays)));
+        int purgedDead = transactionTemplate.execute(status -> repository.deleteDeadBefore(maxAttempts,
+                LocalDateTime.now().minusDays(deadLetterRetentionDays)));
+        log.info("purged {} processed and {} dead-lettered outbox events", purged, purgedDead);
+        countDeadLetters();
+    }
+
+    private void countDeadLetters() {
+        deadLetters.set(transactionTemplate.execute(status -> repository.countDead(maxAttempts)));
+        deadLettersCounted = true;
+    }
+}
@@ -0,0 +1,87 @@
+package br.com.escorpion.libraryapi.api.service.support;
+
+import br.com.escorpion.libraryapi.api.model.entity.OutboxEvent;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read position of one node in the outbox table.
+ * <p>
+ * Ids come from a sequence, so they follow the order transactions started in, not the order
+ * they committed in: while id 7 is read, id 6 may still be in flight. Every id skipped below the
+ * highest one read is kept as a gap and looked up again on the following polls, until it shows
+ * up or the commit grace has passed (a rolled back insert burns its id for good).
+ * <p>
+ * {@link #lowWater()} is the position below which nothing is pending any more: every id up to
+ * it was either read or given up, so it is safe to resume from.
+ */
+class OutboxTail {
+
+    /**
+     * Most ids kept as gaps for one jump of the sequence; a larger jump is a restart or a
+     * cache skip of the sequence, not transactions in flight.
+     */
+    private static final int MAX_GAPS = 1000;
+
+    private final long graceNanos;
+    private final TreeMap<Long, Long> gaps = new TreeMap<>();
+    private long highest;
+
+    /**
+     * @param start id the tail starts after, usually the highest one in the table
+     */
+    OutboxTail(long start, long graceMillis) {
+        this.highest = start;
+        this.graceNanos = TimeUnit.MILLISECONDS.toNanos(graceMillis);
+    }
+
+    long highest() {
+        return highest;
+    }
+
+    /**
+     * Ids skipped by earlier reads that may still commit.
+     */
+    Set<Long> gaps() {
+        return gaps.keySet();
+    }
+
+    long lowWater() {
+        return gaps.isEmpty() ? highest : gaps.firstKey() - 1;
+    }
+
+    /**
+     * Records a poll and drops the gaps that outlived the grace.
+     *
+     * @param filled rows found for {@link #gaps()}
+     * @param newer  rows above {@link #highest()}, in id order
+     * @param now    {@link System#nanoTime()} of the poll
+     * @return the events not read before, in id order
+     */
+    List<OutboxEvent> advance(List<OutboxEvent> filled, List<OutboxEvent> newer, long now) {
+        List<OutboxEvent> events = new ArrayList<>(filled.size() + newer.size());
+        for (OutboxEvent event : filled) {
+            if (gaps.remove(event.getId()) != null) {
+                events.add(event);
+            }
+        }
+        for (OutboxEvent event : newer) {
+            if (event.getId() <= highest) {
+                continue;
+            }
+            for (long skipped = Math.max(highest + 1, event.getId() - MAX_GAPS); skipped < event.getId(); skipped++) {
+                gaps.put(skipped, now);
+            }
+            highest = event.getId();
+            events.add(event);
+        }
+        gaps.values().removeIf(noticed -> now - noticed > graceNanos);
+        events.sort(Comparator.comparing(OutboxEvent::getId));
+        return events;
+    }
+}
@@ -0,0 +1,23 @@
+package br.com.escorpion.libraryapi.api.service.support;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDate;
+
+/**
+ * Row of the overdue notification stream: just what the message needs, without loading
+ * {@code Loan} and {@code Book} entities into the persistence context.
+ */
+@Getter
+@AllArgsConstructor
+public class OverdueLoan {
+
+    private final Long id;
+    private final String customerEmail;
+    private final String customer;
+    private final String title;
+    private final LocalDate loanDate;
+    private final LocalDate dueDate;
+    private final int reminderCount;
+}
@@ -0,0 +1,153 @@
+package br.com.escorpion.libraryapi.api.service.support;
+
+import br.com.escorpion.libraryapi.api.repository.LoanRepository;
+import br.com.escorpion.libraryapi.api.service.EmailService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Sends one personalized overdue message per customer, listing each late title and how many
+ * days it is late. Only loans whose next reminder is due are read (an indexed predicate on
+ * {@code next_reminder_date}), and each sent reminder moves that watermark forward along the
+ * {@link ReminderPolicy} cadence, so a run costs what it sends, not the whole overdue
+ * backlog. Loans are streamed ordered by email, so a customer's loans are grouped in
+ * one pass without holding the whole result; each group is rendered and sent on a bounded
+ * fork-join pool while the stream keeps reading. A semaphore caps the groups in flight so a
+ * slow mail server throttles the reader instead of filling the heap.
+ */
+@Slf4j
+@Component
+public class OverdueNotifier {
+
+    private final LoanRepository repository;
+    private final EmailService emailService;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate writeTemplate;
+    private final MessageTemplate messageTemplate;
+    private final MessageTemplate lineTemplate;
+    private final ReminderPolicy reminderPolicy;
+    private final ForkJoinPool pool;
+    private final int maxInFlight;
+    private final Timer renderTimer;
+    private final MeterRegistry meterRegistry;
+
+    public OverdueNotifier(LoanRepository repository,
+                           EmailService emailService,
+                           PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry,
+                           @Value("${application.mail.lateloans.template}") String template,
+                           @Value("${application.mail.lateloans.line-template}") String lineTemplate,
+                           ReminderPolicy reminderPolicy,
+                           @Value("${application.mail.lateloans.parallelism:4}") int parallelism) {
+        this.repository = repository;
+        this.emailService = emailService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.writeTemplate = new TransactionTemplate(transactionManager);
+        this.messageTemplate = MessageTemplate.compile(template, "customer", "count", "loans");
+        this.lineTemplate = MessageTemplate.compile(lineTemplate, "title", "loanDate", "daysLate");
+        this.reminderPolicy = reminderPolicy;
+        this.pool = new ForkJoinPool(parallelism);
+        this.maxInFlight = parallelism * 8;
+        this.renderTimer = meterRegistry.timer("library.mail.overdue.render");
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * @return the number of customers notified
+     */
+    public long notifyOverdue(LocalDate today) {
+        return notifyOverdue(today, Partition.ALL);
+    }
+
+    /**
+     * Notifies only the customers whose id falls into {@code partition}, so replicas can split
+     * the work without a customer's loans ending up in two messages. The partition is part of
+     * the query, so each replica reads only its own share.
+     *
+     * @return the number of customers notified
+     */
+    public long notifyOverdue(LocalDate today, Partition partition) {
+        long start = System.currentTimeMillis();
+        LongAdder sent = new LongAdder();
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        transactionTemplate.execute(status -> {
+            try (Stream<OverdueLoan> rows = repository.streamDueReminders(today, partition.getCount(), partition.getIndex())) {
+                List<OverdueLoan> group = new ArrayList<>();
+                rows.forEachOrdered(row -> {
+                    if (!group.isEmpty() && !group.get(0).getCustomerEmail().equals(row.getCustomerEmail())) {
+                        submit(new ArrayList<>(group), today, inFlight, sent);
+                        group.clear();
+                    }
+                    group.add(row);
+                });
+                if (!group.isEmpty()) {
+                    submit(group, today, inFlight, sent);
+                }
+            }
+            return null;
+        });
+        inFlight.acquireUninterruptibly(maxInFlight);
+        log.info("sent overdue notices to {} customers of partition {} in {} ms",
+                sent, partition, System.currentTimeMillis() - start);
+        return sent.sum();
+    }
+
+    private void submit(List<OverdueLoan> loans, LocalDate today, Semaphore inFlight, LongAdder sent) {
+        inFlight.acquireUninterruptibly();
+        pool.execute(() -> {
+            try {
+                String message = renderTimer.record(() -> render(loans, today));
+                emailService.sendEmail(loans.get(0).getCustomerEmail(), message);
+                markReminded(loans);
+                sent.increment();
+            } catch (RuntimeException e) {
+                meterRegistry.counter("library.mail.overdue.failures").increment();
+                log.warn("overdue notice to {} failed", loans.get(0).getCustomerEmail(), e);
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    private void markReminded(List<OverdueLoan> loans) {
+        LocalDateTime now = LocalDateTime.now();
+        writeTemplate.execute(status -> {
+            for (OverdueLoan loan : loans) {
+                LocalDate next = reminderPolicy.nextReminder(loan.getDueDate(), loan.getReminderCount() + 1);
+                repository.markReminded(loan.getId(), loan.getReminderCount(), now, next);
+            }
+            return null;
+        });
+    }
+
+    String render(List<OverdueLoan> loans, LocalDate today) {
+        StringBuilder lines = new StringBuilder(loans.size() * 64);
+        for (OverdueLoan loan : loans) {
+            long daysLate = reminderPolicy.daysLate(loan.getDueDate(), today);
+            lineTemplate.renderTo(lines, loan.getTitle(), loan.getLoanDate(), daysLate);
+            lines.append('\n');
+        }
+        return messageTemplate.render(loans.get(0).getCustomer(), loans.size(), lines);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,28 @@
+package br.com.escorpion.libraryapi.api.service.support;
+
+import lombok.Getter;
+
+/**
+ * Share {@code index} of {@code count} of a partitioned job's work.
+ */
+@Getter
+public final class Partition {
+
+    public static final Partition ALL = new Partition(0, 1);
+
+    private final int index;
+    private final int count;
+
+    public Partition(int index, int count) {
+        if (count < 1 || index < 0 || index >= count) {
+            throw new IllegalArgumentException("Partição inválida: " + index + "/" + count);
+        }
+        this.index = index;
+        this.count = count;
+    }
+
+    @Override
+    public String toString() {
+        return index + "/" + count;
+    }
+}
@@ -0,0 +1,39 @@
+package br.com.escorpion.libraryapi.api.service.support;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * When overdue reminders go out: a loan is reminded on each day of
+ * {@code application.loans.reminder-cadence-days} counted from its due date (1, 3 and 7 days
+ * overdue by default), then no more. The due date itself comes from {@link LoanPolicy}.
+ */
+@Component
+public class ReminderPolicy {
+
+    private final int[] cadenceDays;
+
+    public ReminderPolicy(@Value("${application.loans.reminder-cadence-days:1,3,7}") int[] cadenceDays) {
+        for (int i = 0; i < cadenceDays.length; i++) {
+            if (cadenceDays[i] < 0 || (i > 0 && cadenceDays[i] <= cadenceDays[i - 1])) {
+                throw new IllegalArgumentException("Cadência de lembretes deve ser crescente: " + i);
+            }
+        }
+        this.cadenceDays = cadenceDays.clone();
+    }
+
+    /**
+     * @return the date of the reminder that follows {@code remindersSent} reminders, or
+     * {@code null} when the cadence is exhausted
+     */
+    public LocalDate nextReminder(LocalDate dueDate, int remindersSent) {
+        return remindersSent < cadenceDays.length ? dueDate.plusDays(cadenceDays[remindersSent]) : null;
+    }
+
+    public long daysLate(LocalDate dueDate, LocalDate today) {
+        return ChronoUnit.DAYS.between(dueDate, today);
+    }
+}
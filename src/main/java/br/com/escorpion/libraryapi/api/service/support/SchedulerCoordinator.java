@@ -0,0 +1,142 @@
+package br.com.escorpion.libraryapi.api.service.support;
+
+import br.com.escorpion.libraryapi.api.model.entity.SchedulerNode;
+import br.com.escorpion.libraryapi.api.repository.SchedulerLeaseRepository;
+import br.com.escorpion.libraryapi.api.repository.SchedulerNodeRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Coordinates scheduled jobs across replicas sharing one database.
+ * <p>
+ * {@link #runExclusively} runs a job on the single node that wins the job's lease. The lease
+ * is kept for at least {@code application.scheduler.lease.min-hold-seconds} after the run
+ * starts, so a replica whose trigger fires a little later does not run the job again.
+ * <p>
+ * {@link #partition()} gives this node's share of a partitioned job, from its position among
+ * the nodes with a recent heartbeat. Nodes joining or leaving while a job starts can make two
+ * nodes briefly disagree on the count; jobs run this way must tolerate that.
+ */
+@Slf4j
+@Component
+@Lazy(false)
+public class SchedulerCoordinator {
+
+    private final SchedulerLeaseRepository leaseRepository;
+    private final SchedulerNodeRepository nodeRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final String nodeId;
+    private final Duration maxHold;
+    private final Duration minHold;
+    private final Duration nodeTtl;
+
+    public SchedulerCoordinator(SchedulerLeaseRepository leaseRepository,
+                                SchedulerNodeRepository nodeRepository,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${application.scheduler.node-id:}") String nodeId,
+                                @Value("${application.scheduler.lease.max-hold-seconds:3600}") long maxHoldSeconds,
+                                @Value("${application.scheduler.lease.min-hold-seconds:300}") long minHoldSeconds,
+                                @Value("${application.scheduler.node-ttl-seconds:30}") long nodeTtlSeconds) {
+        this.leaseRepository = leaseRepository;
+        this.nodeRepository = nodeRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.nodeId = nodeId.isEmpty() ? UUID.randomUUID().toString() : nodeId;
+        this.maxHold = Duration.ofSeconds(maxHoldSeconds);
+        this.minHold = Duration.ofSeconds(minHoldSeconds);
+        this.nodeTtl = Duration.ofSeconds(nodeTtlSeconds);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * @return {@code true} when this node won the lease and ran the job
+     */
+    public boolean runExclusively(String job, Runnable task) {
+        LocalDateTime start = LocalDateTime.now();
+        if (!tryAcquire(job, start)) {
+            log.info("skipping {}: lease held by another node", job);
+            return false;
+        }
+        try {
+            task.run();
+            return true;
+        } finally {
+            LocalDateTime until = max(LocalDateTime.now(), start.plus(minHold));
+            transactionTemplate.execute(status -> leaseRepository.release(job, nodeId, until));
+        }
+    }
+
+    boolean tryAcquire(String job, LocalDateTime now) {
+        LocalDateTime until = now.plus(maxHold);
+        Integer updated = transactionTemplate.execute(status -> leaseRepository.tryAcquire(job, nodeId, now, until));
+        if (updated != null && updated > 0) {
+            return true;
+        }
+        try {
+            return transactionTemplate.execute(status -> leaseRepository.insert(job, nodeId, now, until) > 0);
+        } catch (DataIntegrityViolationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return this node's share among the live nodes, or empty when it has not registered yet
+     */
+    public Optional<Partition> partition() {
+        List<String> live = transactionTemplate.execute(status ->
+                nodeRepository.findLiveIds(LocalDateTime.now().minus(nodeTtl)));
+        int index = live.indexOf(nodeId);
+        return index < 0 ? Optional.empty() : Optional.of(new Partition(index, live.size()));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${application.scheduler.heartbeat-ms:10000}")
+    public synchronized void heartbeat() {
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            transactionTemplate.execute(status -> {
+                if (nodeRepository.touch(nodeId, now) == 0) {
+                    nodeRepository.saveAndFlush(SchedulerNode.builder().id(nodeId).heartbeatAt(now).build());
+                }
+                return nodeRepository.deleteStale(now.minus(nodeTtl.multipliedBy(10)));
+            });
+        } catch (DataIntegrityViolationException e) {
+            log.debug("node {} registered concurrently", nodeId, e);
+        }
+    }
+
+    @PreDestroy
+    public void leave() {
+        try {
+            transactionTemplate.execute(status -> {
+                nodeRepository.deleteById(nodeId);
+                return null;
+            });
+        } catch (RuntimeException e) {
+            log.debug("could not unregister node {}", nodeId, e);
+        }
+    }
+
+    private static LocalDateTime max(LocalDateTime a, LocalDateTime b) {
+        return a.isAfter(b) ? a : b;
+    }
+}
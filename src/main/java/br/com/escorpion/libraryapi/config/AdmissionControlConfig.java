@@ -0,0 +1,30 @@
+package br.com.escorpion.libraryapi.config;
+
+import br.com.escorpion.libraryapi.api.filter.AdmissionControlFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+@Configuration
+@ConditionalOnProperty(name = "application.admission.enabled", havingValue = "true", matchIfMissing = true)
+public class AdmissionControlConfig {
+
+    @Bean
+    public FilterRegistrationBean<AdmissionControlFilter> admissionControlFilter(
+            @Value("${application.admission.rate-per-second:50}") double ratePerSecond,
+            @Value("${application.admission.burst:100}") int burst,
+            @Value("${application.admission.max-concurrent-writes:64}") int maxConcurrent,
+            @Value("${application.admission.max-clients:10000}") int maxClients,
+            MeterRegistry meterRegistry) {
+        AdmissionControlFilter filter = new AdmissionControlFilter(ratePerSecond, burst, maxConcurrent, maxClients,
+                meterRegistry);
+        FilterRegistrationBean<AdmissionControlFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.addUrlPatterns("/api/books", "/api/loans");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 20);
+        return registration;
+    }
+}
@@ -0,0 +1,43 @@
+package br.com.escorpion.libraryapi.config;
+
+import br.com.escorpion.libraryapi.api.service.impl.GroupCommitLoanService;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+/**
+ * Connection handling for {@link GroupCommitLoanService}. Its callers wait for the writer
+ * thread, which needs a pool connection of its own, so a waiting request must not hold one.
+ * With open-in-view the request's session would otherwise keep its connection until the
+ * response is written: Hibernate has to release it after each transaction, and Spring must
+ * not take it back to reset the read-only flag once a read-only transaction ends.
+ */
+@Configuration
+@ConditionalOnProperty(name = "application.loans.group-commit.enabled", havingValue = "true")
+public class GroupCommitConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer releaseConnectionAfterTransaction() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+    @Bean
+    public static BeanPostProcessor unpreparedConnectionPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof HibernateJpaVendorAdapter) {
+                    // read-only then only sets the flush mode, without touching the connection
+                    ((HibernateJpaVendorAdapter) bean).getJpaDialect().setPrepareConnection(false);
+                }
+                return bean;
+            }
+        };
+    }
+}
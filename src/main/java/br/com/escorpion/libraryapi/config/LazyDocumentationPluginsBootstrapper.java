@@ -0,0 +1,42 @@
+package br.com.escorpion.libraryapi.config;
+
+import com.fasterxml.classmate.TypeResolver;
+import org.springframework.beans.factory.annotation.Autowired;
+import springfox.documentation.spi.service.RequestHandlerProvider;
+import springfox.documentation.spi.service.contexts.Defaults;
+import springfox.documentation.spring.web.DocumentationCache;
+import springfox.documentation.spring.web.plugins.DocumentationPluginsBootstrapper;
+import springfox.documentation.spring.web.plugins.DocumentationPluginsManager;
+import springfox.documentation.spring.web.scanners.ApiDocumentationScanner;
+
+import javax.servlet.ServletContext;
+import java.util.List;
+
+/**
+ * Springfox bootstrapper that skips the request-mapping scan during context refresh.
+ * The scan runs on the first request for the API docs instead.
+ */
+public class LazyDocumentationPluginsBootstrapper extends DocumentationPluginsBootstrapper {
+
+    @Autowired
+    public LazyDocumentationPluginsBootstrapper(DocumentationPluginsManager documentationPluginsManager,
+                                                List<RequestHandlerProvider> handlerProviders,
+                                                DocumentationCache scanned,
+                                                ApiDocumentationScanner resourceListing,
+                                                TypeResolver typeResolver,
+                                                Defaults defaults,
+                                                ServletContext servletContext) {
+        super(documentationPluginsManager, handlerProviders, scanned, resourceListing, typeResolver, defaults, servletContext);
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return false;
+    }
+
+    public synchronized void startIfNecessary() {
+        if (!isRunning()) {
+            start();
+        }
+    }
+}
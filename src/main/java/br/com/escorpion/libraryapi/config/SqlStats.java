@@ -0,0 +1,95 @@
+package br.com.escorpion.libraryapi.config;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Per-thread SQL accounting. A {@link Scope} is opened around an HTTP request or a service
+ * call; statements (counted by {@link SqlStatsStatementInspector}), rows and JDBC time
+ * (measured by {@link SqlStatsDataSourceWrapper}) are added to the current scope and every
+ * scope enclosing it, so nested service calls still add up to the request totals.
+ */
+public final class SqlStats {
+
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+    private static final int MAX_DISTINCT_STATEMENTS = 200;
+
+    private SqlStats() {
+    }
+
+    public static Scope open() {
+        Scope scope = new Scope(CURRENT.get());
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    public static Optional<Scope> current() {
+        return Optional.ofNullable(CURRENT.get());
+    }
+
+    static void statement(String sql) {
+        for (Scope scope = CURRENT.get(); scope != null; scope = scope.parent) {
+            scope.statements++;
+            if (scope.repeats.size() < MAX_DISTINCT_STATEMENTS || scope.repeats.containsKey(sql)) {
+                scope.repeats.merge(sql, 1, Integer::sum);
+            }
+        }
+    }
+
+    static void rows(long rows) {
+        for (Scope scope = CURRENT.get(); scope != null; scope = scope.parent) {
+            scope.rows += rows;
+        }
+    }
+
+    static void jdbcTime(long nanos) {
+        for (Scope scope = CURRENT.get(); scope != null; scope = scope.parent) {
+            scope.jdbcNanos += nanos;
+        }
+    }
+
+    public static final class Scope implements AutoCloseable {
+
+        private final Scope parent;
+        private final Map<String, Integer> repeats = new HashMap<>();
+        private long statements;
+        private long rows;
+        private long jdbcNanos;
+
+        private Scope(Scope parent) {
+            this.parent = parent;
+        }
+
+        public long getStatements() {
+            return statements;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getJdbcNanos() {
+            return jdbcNanos;
+        }
+
+        /**
+         * Highest number of times one SQL string ran in this scope; well above 1 on a read
+         * path is the signature of an N+1.
+         */
+        public int getMaxRepeats() {
+            return repeats.values().stream().mapToInt(Integer::intValue).max().orElse(0);
+        }
+
+        @Override
+        public void close() {
+            if (CURRENT.get() == this) {
+                if (parent == null) {
+                    CURRENT.remove();
+                } else {
+                    CURRENT.set(parent);
+                }
+            }
+        }
+    }
+}
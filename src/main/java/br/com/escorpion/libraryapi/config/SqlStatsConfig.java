@@ -0,0 +1,120 @@
+package br.com.escorpion.libraryapi.config;
+
+import br.com.escorpion.libraryapi.api.filter.SqlStatsFilter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.Ordered;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SQL accounting per HTTP request and per service method, see {@link SqlStats}. Statement
+ * counting itself is wired in application.properties through Hibernate's
+ * {@code statement_inspector}; this adds the JDBC wrapper for rows and time, the request
+ * filter and the service aspect.
+ */
+@Configuration
+@ConditionalOnProperty(name = "application.sql-stats.enabled", havingValue = "true", matchIfMissing = true)
+public class SqlStatsConfig {
+
+    @Bean
+    public static BeanPostProcessor sqlStatsDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource ? SqlStatsDataSourceWrapper.wrap((DataSource) bean) : bean;
+            }
+        };
+    }
+
+    @Bean
+    public FilterRegistrationBean<SqlStatsFilter> sqlStatsFilter(
+            MeterRegistry meterRegistry,
+            @Value("${application.sql-stats.headers:false}") boolean headers) {
+        FilterRegistrationBean<SqlStatsFilter> registration =
+                new FilterRegistrationBean<>(new SqlStatsFilter(meterRegistry, headers));
+        registration.addUrlPatterns("/api/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 30);
+        return registration;
+    }
+
+    @Bean
+    public SqlStatsServiceAspect sqlStatsServiceAspect(MeterRegistry meterRegistry) {
+        return new SqlStatsServiceAspect(meterRegistry);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "application.sql-stats.headers", havingValue = "true")
+    public SqlStatsHeadersAdvice sqlStatsHeadersAdvice() {
+        return new SqlStatsHeadersAdvice();
+    }
+
+    /**
+     * Records the statements issued inside each public method of a {@code @Service}.
+     */
+    @Aspect
+    @RequiredArgsConstructor
+    public static class SqlStatsServiceAspect {
+
+        private final MeterRegistry meterRegistry;
+
+        @Around("within(br.com.escorpion.libraryapi.api.service..*) " +
+                "&& @within(org.springframework.stereotype.Service) && execution(public * *(..))")
+        public Object measure(ProceedingJoinPoint joinPoint) throws Throwable {
+            try (SqlStats.Scope scope = SqlStats.open()) {
+                try {
+                    return joinPoint.proceed();
+                } finally {
+                    String method = joinPoint.getSignature().getDeclaringType().getSimpleName()
+                            + "." + joinPoint.getSignature().getName();
+                    DistributionSummary.builder("library.sql.service.statements").tag("method", method)
+                            .register(meterRegistry).record(scope.getStatements());
+                    meterRegistry.timer("library.sql.service.jdbc", "method", method)
+                            .record(scope.getJdbcNanos(), TimeUnit.NANOSECONDS);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the {@code X-Sql-*} headers right before a response body is written.
+     */
+    @ControllerAdvice
+    public static class SqlStatsHeadersAdvice implements ResponseBodyAdvice<Object> {
+
+        @Override
+        public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+            return true;
+        }
+
+        @Override
+        public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType contentType,
+                                      Class<? extends HttpMessageConverter<?>> converterType,
+                                      ServerHttpRequest request, ServerHttpResponse response) {
+            if (response instanceof ServletServerHttpResponse) {
+                SqlStats.current().ifPresent(scope ->
+                        SqlStatsFilter.writeHeaders(scope, ((ServletServerHttpResponse) response).getServletResponse()));
+            }
+            return body;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package br.com.escorpion.libraryapi.config;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+
+/**
+ * Thin JDK-proxy layer over the pool that adds JDBC execution time and rows (read through
+ * result sets, or affected by updates) to the current {@link SqlStats} scope. Everything
+ * else, {@code unwrap} included, is passed straight to the pooled objects.
+ */
+final class SqlStatsDataSourceWrapper {
+
+    private SqlStatsDataSourceWrapper() {
+    }
+
+    static DataSource wrap(DataSource dataSource) {
+        return proxy(DataSource.class, dataSource, (target, method, args) -> {
+            Object result = invoke(target, method, args);
+            return result instanceof Connection ? connection((Connection) result) : result;
+        });
+    }
+
+    private static Connection connection(Connection connection) {
+        return proxy(Connection.class, connection, (target, method, args) -> {
+            Object result = invoke(target, method, args);
+            if (result instanceof Statement) {
+                return statement(method.getReturnType(), (Statement) result);
+            }
+            return result;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object statement(Class<?> type, Statement statement) {
+        return proxy((Class<Object>) type, statement, (target, method, args) -> {
+            if (!method.getName().startsWith("execute")) {
+                Object result = invoke(target, method, args);
+                return result instanceof ResultSet ? resultSet((ResultSet) result) : result;
+            }
+            long start = System.nanoTime();
+            try {
+                Object result = invoke(target, method, args);
+                if (result instanceof ResultSet) {
+                    return resultSet((ResultSet) result);
+                }
+                if (result instanceof Integer || result instanceof Long) {
+                    SqlStats.rows(((Number) result).longValue());
+                } else if (result instanceof int[]) {
+                    for (int count : (int[]) result) {
+                        SqlStats.rows(Math.max(count, 0));
+                    }
+                }
+                return result;
+            } finally {
+                SqlStats.jdbcTime(System.nanoTime() - start);
+            }
+        });
+    }
+
+    private static ResultSet resultSet(ResultSet resultSet) {
+        return proxy(ResultSet.class, resultSet, (target, method, args) -> {
+            Object result = invoke(target, method, args);
+            if ("next".equals(method.getName()) && Boolean.TRUE.equals(result)) {
+                SqlStats.rows(1);
+            }
+            return result;
+        });
+    }
+
+    private interface Handler<T> {
+        Object handle(T target, Method method, Object[] args) throws Throwable;
+    }
+
+    private static <T> T proxy(Class<T> type, T target, Handler<T> handler) {
+        InvocationHandler invocationHandler = (proxy, method, args) -> handler.handle(target, method, args);
+        return type.cast(Proxy.newProxyInstance(SqlStatsDataSourceWrapper.class.getClassLoader(),
+                new Class<?>[]{type}, invocationHandler));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package br.com.escorpion.libraryapi.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts every statement Hibernate prepares into the current {@link SqlStats} scope.
+ * Registered through {@code spring.jpa.properties.hibernate.session_factory.statement_inspector}.
+ */
+public class SqlStatsStatementInspector implements StatementInspector {
+
+    @Override
+    public String inspect(String sql) {
+        SqlStats.statement(sql);
+        return sql;
+    }
+}
@@ -0,0 +1,37 @@
+package br.com.escorpion.libraryapi.config;
+
+import br.com.escorpion.libraryapi.api.service.EmailService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskExecutor;
+
+import java.util.List;
+
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "application.startup.test-mail.enabled", havingValue = "true", matchIfMissing = true)
+public class StartupMailConfig {
+
+    /**
+     * Sends the smoke-test email on the task executor so a slow or unreachable SMTP server
+     * never holds up application startup.
+     */
+    @Bean
+    public ApplicationRunner startupMailRunner(EmailService emailService,
+                                               @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor,
+                                               @Value("${application.startup.test-mail.recipients}") List<String> recipients) {
+        return args -> taskExecutor.execute(() -> {
+            try {
+                emailService.sendEmails(recipients, "Testando serviço de emails");
+                log.info("startup test email sent to {}", recipients);
+            } catch (RuntimeException e) {
+                log.warn("startup test email failed: {}", e.getMessage());
+            }
+        });
+    }
+}
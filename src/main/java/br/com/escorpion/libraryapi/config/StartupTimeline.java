@@ -0,0 +1,90 @@
+package br.com.escorpion.libraryapi.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Collects startup phase timestamps and per-bean creation times. The phases are recorded by
+ * {@link StartupTimelineRunListener}, which runs before the application context exists, so the
+ * data lives in a static holder rather than in a bean.
+ */
+public final class StartupTimeline {
+
+    private static final int SLOWEST_BEANS = 20;
+
+    private static volatile long startNanos = System.nanoTime();
+    private static final List<Phase> phases = Collections.synchronizedList(new ArrayList<>());
+    private static final Map<String, Long> beanStarts = new ConcurrentHashMap<>();
+    private static final Map<String, Long> beanDurations = new ConcurrentHashMap<>();
+
+    private StartupTimeline() {
+    }
+
+    static void reset() {
+        startNanos = System.nanoTime();
+        phases.clear();
+        beanStarts.clear();
+        beanDurations.clear();
+    }
+
+    static void phase(String name) {
+        phases.add(new Phase(name, elapsedMillis()));
+    }
+
+    static void beanStarted(String beanName) {
+        beanStarts.putIfAbsent(beanName, System.nanoTime());
+    }
+
+    static void beanFinished(String beanName) {
+        Long start = beanStarts.remove(beanName);
+        if (start != null) {
+            beanDurations.put(beanName, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    private static long elapsedMillis() {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    public static Map<String, Object> report() {
+        List<Map<String, Object>> phaseList = new ArrayList<>();
+        long previous = 0;
+        synchronized (phases) {
+            for (Phase phase : phases) {
+                Map<String, Object> entry = new LinkedHashMap<>();
+                entry.put("phase", phase.name);
+                entry.put("atMs", phase.atMillis);
+                entry.put("durationMs", phase.atMillis - previous);
+                phaseList.add(entry);
+                previous = phase.atMillis;
+            }
+        }
+
+        Map<String, Long> slowest = beanDurations.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
+                .limit(SLOWEST_BEANS)
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new));
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("totalMs", previous);
+        report.put("phases", phaseList);
+        report.put("slowestBeansMs", slowest);
+        return report;
+    }
+
+    private static final class Phase {
+        private final String name;
+        private final long atMillis;
+
+        private Phase(String name, long atMillis) {
+            this.name = name;
+            this.atMillis = atMillis;
+        }
+    }
+}
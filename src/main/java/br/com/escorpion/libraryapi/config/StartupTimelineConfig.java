@@ -0,0 +1,49 @@
+package br.com.escorpion.libraryapi.config;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Map;
+
+@Configuration
+public class StartupTimelineConfig {
+
+    /**
+     * Measures how long each bean takes from instantiation to the end of its initialization,
+     * including the beans it pulls in as dependencies.
+     */
+    @Bean
+    public static BeanPostProcessor beanCreationTimer() {
+        return new InstantiationAwareBeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInstantiation(Class<?> beanClass, String beanName) {
+                StartupTimeline.beanStarted(beanName);
+                return null;
+            }
+
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                StartupTimeline.beanFinished(beanName);
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public StartupEndpoint startupEndpoint() {
+        return new StartupEndpoint();
+    }
+
+    @Endpoint(id = "startup")
+    public static class StartupEndpoint {
+
+        @ReadOperation
+        public Map<String, Object> startup() {
+            return StartupTimeline.report();
+        }
+    }
+}
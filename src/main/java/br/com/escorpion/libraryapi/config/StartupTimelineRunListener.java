@@ -0,0 +1,52 @@
+package br.com.escorpion.libraryapi.config;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.SpringApplicationRunListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.ConfigurableEnvironment;
+
+/**
+ * Registered in {@code META-INF/spring.factories}; records each phase of
+ * {@link SpringApplication#run(String...)} into {@link StartupTimeline}.
+ */
+public class StartupTimelineRunListener implements SpringApplicationRunListener {
+
+    public StartupTimelineRunListener(SpringApplication application, String[] args) {
+    }
+
+    @Override
+    public void starting() {
+        StartupTimeline.reset();
+        StartupTimeline.phase("starting");
+    }
+
+    @Override
+    public void environmentPrepared(ConfigurableEnvironment environment) {
+        StartupTimeline.phase("environment-prepared");
+    }
+
+    @Override
+    public void contextPrepared(ConfigurableApplicationContext context) {
+        StartupTimeline.phase("context-prepared");
+    }
+
+    @Override
+    public void contextLoaded(ConfigurableApplicationContext context) {
+        StartupTimeline.phase("context-loaded");
+    }
+
+    @Override
+    public void started(ConfigurableApplicationContext context) {
+        StartupTimeline.phase("context-refreshed");
+    }
+
+    @Override
+    public void running(ConfigurableApplicationContext context) {
+        StartupTimeline.phase("runners-completed");
+    }
+
+    @Override
+    public void failed(ConfigurableApplicationContext context, Throwable exception) {
+        StartupTimeline.phase("failed");
+    }
+}
@@ -1,8 +1,14 @@
 package br.com.escorpion.libraryapi.config;
 
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 import springfox.documentation.builders.ApiInfoBuilder;
 import springfox.documentation.builders.PathSelectors;
 import springfox.documentation.builders.RequestHandlerSelectors;
@@ -12,9 +18,16 @@ import springfox.documentation.spi.DocumentationType;
 import springfox.documentation.spring.web.plugins.Docket;
 import springfox.documentation.swagger2.annotations.EnableSwagger2;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
 @Configuration
 @EnableSwagger2
+@ConditionalOnProperty(name = "application.swagger.enabled", havingValue = "true", matchIfMissing = true)
 public class SwaggerConfig {
+
+    private static final String BOOTSTRAPPER_BEAN = "documentationPluginsBootstrapper";
+
     @Bean
     public Docket docket() {
         return new Docket(DocumentationType.SWAGGER_2)
@@ -25,6 +38,38 @@ public class SwaggerConfig {
                 .apiInfo(apiInfo());
     }
 
+    /**
+     * With {@code application.swagger.lazy=true} the springfox scan moves out of startup and
+     * into the first request for {@code /v2/api-docs} or {@code /swagger-resources}.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "application.swagger.lazy", havingValue = "true")
+    public static BeanFactoryPostProcessor lazyDocumentationBootstrap() {
+        return beanFactory -> {
+            if (beanFactory.containsBeanDefinition(BOOTSTRAPPER_BEAN)) {
+                beanFactory.getBeanDefinition(BOOTSTRAPPER_BEAN)
+                        .setBeanClassName(LazyDocumentationPluginsBootstrapper.class.getName());
+            }
+        };
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "application.swagger.lazy", havingValue = "true")
+    public WebMvcConfigurer lazyDocumentationInterceptor(ObjectProvider<LazyDocumentationPluginsBootstrapper> bootstrapper) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(new HandlerInterceptor() {
+                    @Override
+                    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                        bootstrapper.getObject().startIfNecessary();
+                        return true;
+                    }
+                }).addPathPatterns("/v2/api-docs", "/swagger-resources/**");
+            }
+        };
+    }
+
     private ApiInfo apiInfo(){
         return new ApiInfoBuilder()
                 .title("Library API")
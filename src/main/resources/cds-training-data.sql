@@ -0,0 +1,5 @@
+insert into book (title, author, isbn, isbn_key, copies, available) values ('Dom Casmurro', 'Machado de Assis', '9788535910667', 9788535910667, 1, 0);
+insert into book (title, author, isbn, isbn_key, copies, available) values ('Grande Sertao: Veredas', 'Joao Guimaraes Rosa', '9788535908466', 9788535908466, 2, 2);
+insert into book (title, author, isbn, isbn_key, category, copies, available) values ('Vidas Secas', 'Graciliano Ramos', '9788501114037', 9788501114037, 'reference', 1, 1);
+insert into customer (name, email) values ('Fulano', 'fulano@email.com');
+insert into loan (id, isbn, customer, customer_email, id_customer, id_book, loan_date, due_date, returned, reminder_count, next_reminder_date) values (next value for loan_seq, '9788535910667', 'Fulano', 'fulano@email.com', 1, 1, current_date, dateadd('DAY', 4, current_date), false, 0, dateadd('DAY', 5, current_date));
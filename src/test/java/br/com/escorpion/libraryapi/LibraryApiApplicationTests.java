@@ -1,13 +1,34 @@
 package br.com.escorpion.libraryapi;
 
+import br.com.escorpion.libraryapi.config.StartupTimelineConfig;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "application.startup.test-mail.enabled=false")
 class LibraryApiApplicationTests {
 
+	@Autowired
+	StartupTimelineConfig.StartupEndpoint startupEndpoint;
+
 	@Test
 	void contextLoads() {
 	}
 
+	@Test
+	@SuppressWarnings("unchecked")
+	void reportsStartupPhases() {
+		Map<String, Object> report = startupEndpoint.startup();
+
+		List<Map<String, Object>> phases = (List<Map<String, Object>>) report.get("phases");
+		assertThat(phases).extracting(phase -> phase.get("phase"))
+				.contains("starting", "environment-prepared", "context-loaded", "context-refreshed");
+		assertThat((Map<String, Long>) report.get("slowestBeansMs")).isNotEmpty();
+	}
+
 }
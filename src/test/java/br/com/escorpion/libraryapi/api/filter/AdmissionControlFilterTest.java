@@ -0,0 +1,129 @@
+package br.com.escorpion.libraryapi.api.filter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AdmissionControlFilterTest {
+
+    @Test
+    @DisplayName("Deve liberar a rajada configurada e recusar o excedente ate o balde recarregar")
+    public void tokenBucketTest() {
+        long now = 0;
+        TokenBucket bucket = new TokenBucket(10, 3, now);
+
+        assertThat(bucket.tryAcquire(now)).isZero();
+        assertThat(bucket.tryAcquire(now)).isZero();
+        assertThat(bucket.tryAcquire(now)).isZero();
+        assertThat(bucket.tryAcquire(now)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+
+        now += TimeUnit.MILLISECONDS.toNanos(100);
+        assertThat(bucket.tryAcquire(now)).isZero();
+        assertThat(bucket.isIdle(now)).isFalse();
+        assertThat(bucket.isIdle(now + TimeUnit.SECONDS.toNanos(1))).isTrue();
+    }
+
+    @Test
+    @DisplayName("Deve responder 429 quando o cliente excede sua taxa")
+    public void rateLimitedClientTest() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AdmissionControlFilter filter = new AdmissionControlFilter(1, 1, 10, 100, registry);
+
+        assertThat(post(filter, "10.0.0.1", new MockFilterChain()).getStatus()).isEqualTo(200);
+
+        MockHttpServletResponse rejected = post(filter, "10.0.0.1", new MockFilterChain());
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(rejected.getHeader("Retry-After")).isNotNull();
+
+        assertThat(post(filter, "10.0.0.2", new MockFilterChain()).getStatus()).isEqualTo(200);
+        assertThat(registry.counter("library.admission.requests", "outcome", "rate_limited").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve ignorar o cabecalho de cliente e limitar pelo usuario autenticado")
+    public void keyedOnPrincipalTest() throws Exception {
+        AdmissionControlFilter filter = new AdmissionControlFilter(1, 1, 10, 100, new SimpleMeterRegistry());
+
+        assertThat(postAs(filter, "ana", "um").getStatus()).isEqualTo(200);
+        // a fresh client id does not buy a fresh bucket
+        assertThat(postAs(filter, "ana", "dois").getStatus()).isEqualTo(429);
+        assertThat(postAs(filter, "bia", "dois").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    @DisplayName("Deve manter no maximo o numero configurado de clientes, descartando os ociosos")
+    public void sweepsIdleClientsTest() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AtomicLong now = new AtomicLong();
+        AdmissionControlFilter filter = new AdmissionControlFilter(1, 1, 10, 2, registry, now::get);
+
+        post(filter, "10.0.0.1", new MockFilterChain());
+        post(filter, "10.0.0.2", new MockFilterChain());
+        // no bucket is idle yet, so the clients beyond the limit share one
+        assertThat(post(filter, "10.0.0.3", new MockFilterChain()).getStatus()).isEqualTo(200);
+        assertThat(post(filter, "10.0.0.4", new MockFilterChain()).getStatus()).isEqualTo(429);
+        assertThat(registry.get("library.admission.clients").gauge().value()).isEqualTo(2);
+
+        now.set(TimeUnit.SECONDS.toNanos(2));
+        assertThat(post(filter, "10.0.0.3", new MockFilterChain()).getStatus()).isEqualTo(200);
+        assertThat(registry.get("library.admission.clients").gauge().value()).isEqualTo(1);
+        assertThat(post(filter, "10.0.0.3", new MockFilterChain()).getStatus()).isEqualTo(429);
+        assertThat(post(filter, "10.0.0.1", new MockFilterChain()).getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    @DisplayName("Deve responder 503 quando o limite de escritas simultaneas e atingido")
+    public void overloadedTest() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AdmissionControlFilter filter = new AdmissionControlFilter(1000, 1000, 1, 100, registry);
+
+        MockHttpServletResponse[] nested = new MockHttpServletResponse[1];
+        FilterChain chain = (request, response) -> nested[0] = post(filter, "b", new MockFilterChain());
+
+        assertThat(post(filter, "a", chain).getStatus()).isEqualTo(200);
+        assertThat(nested[0].getStatus()).isEqualTo(503);
+        assertThat(registry.counter("library.admission.requests", "outcome", "overloaded").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Nao deve limitar requisicoes de leitura")
+    public void readsAreNotFilteredTest() throws Exception {
+        AdmissionControlFilter filter = new AdmissionControlFilter(1, 1, 1, 100, new SimpleMeterRegistry());
+
+        for (int i = 0; i < 5; i++) {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/books");
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(request, response, new MockFilterChain());
+            assertThat(response.getStatus()).isEqualTo(200);
+        }
+    }
+
+    private MockHttpServletResponse postAs(AdmissionControlFilter filter, String user, String clientId)
+            throws IOException, ServletException {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/loans");
+        request.setUserPrincipal(() -> user);
+        request.addHeader("X-Client-Id", clientId);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private MockHttpServletResponse post(AdmissionControlFilter filter, String client, FilterChain chain) throws IOException, ServletException {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/loans");
+        request.setRemoteAddr(client);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+}
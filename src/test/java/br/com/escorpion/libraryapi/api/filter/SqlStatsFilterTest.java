@@ -0,0 +1,33 @@
+package br.com.escorpion.libraryapi.api.filter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class SqlStatsFilterTest {
+
+    @Test
+    @DisplayName("Deve registrar as metricas SQL tambem das requisicoes que falham")
+    public void recordsFailedRequestTest() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SqlStatsFilter filter = new SqlStatsFilter(registry, true);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/books/1");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/books/{id}");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        Throwable exception = catchThrowable(() -> filter.doFilter(request, response, (req, res) -> {
+            throw new IllegalStateException("db down");
+        }));
+
+        assertThat(exception).isInstanceOf(IllegalStateException.class);
+        assertThat(registry.get("library.sql.request.statements").tag("uri", "/api/books/{id}").summary().count())
+                .isEqualTo(1);
+        assertThat(response.getHeader(SqlStatsFilter.STATEMENTS_HEADER)).isNull();
+    }
+}
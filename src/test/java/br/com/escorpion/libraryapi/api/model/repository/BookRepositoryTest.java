@@ -94,6 +94,26 @@ public class BookRepositoryTest {
 
     }
 
+    @Test
+    @DisplayName("Deve emprestar e devolver exemplares sem passar do estoque")
+    public void checkoutAndGiveBackTest(){
+        Book book = createNewBook("123");
+        book.setCopies(2);
+        testEntityManager.persist(book);
+
+        assertThat(bookRepository.checkout(book.getId())).isEqualTo(1);
+        assertThat(bookRepository.checkout(book.getId())).isEqualTo(1);
+        assertThat(bookRepository.checkout(book.getId())).isZero();
+        assertThat(bookRepository.findAvailableById(book.getId())).isZero();
+        assertThat(bookRepository.lockUnavailable(book.getId())).isEqualTo(1);
+
+        assertThat(bookRepository.giveBack(book.getId())).isEqualTo(1);
+        assertThat(bookRepository.giveBack(book.getId())).isEqualTo(1);
+        assertThat(bookRepository.giveBack(book.getId())).isZero();
+        assertThat(bookRepository.findAvailableById(book.getId())).isEqualTo(2);
+        assertThat(bookRepository.lockUnavailable(book.getId())).isZero();
+    }
+
     public static Book createNewBook(String isbn) {
         return Book.builder()
                 .title("Aventuras")
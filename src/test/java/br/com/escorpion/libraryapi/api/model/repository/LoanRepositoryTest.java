@@ -1,9 +1,12 @@
 package br.com.escorpion.libraryapi.api.model.repository;
 
 import br.com.escorpion.libraryapi.api.model.entity.Book;
+import br.com.escorpion.libraryapi.api.model.entity.Customer;
 import br.com.escorpion.libraryapi.api.model.entity.Loan;
 import br.com.escorpion.libraryapi.api.repository.BookRepository;
+import br.com.escorpion.libraryapi.api.repository.LoanArchiveRepository;
 import br.com.escorpion.libraryapi.api.repository.LoanRepository;
+import br.com.escorpion.libraryapi.api.service.support.OverdueLoan;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -12,11 +15,18 @@ import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import javax.persistence.Tuple;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static br.com.escorpion.libraryapi.api.model.repository.BookRepositoryTest.createNewBook;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -32,6 +42,9 @@ public class LoanRepositoryTest {
     @Autowired
     LoanRepository repository;
 
+    @Autowired
+    LoanArchiveRepository archiveRepository;
+
     @Test
     @DisplayName("Deve verificar se já existe um empréstimo com um determinado livro")
     public void existsByBookTest() {
@@ -58,6 +71,21 @@ public class LoanRepositoryTest {
         assertThat(result.getTotalElements()).isEqualTo(1);
     }
 
+    @Test
+    @DisplayName("Deve buscar somente os atributos pedidos dos emprestimos de um livro")
+    public void findProjectedTest() {
+        Loan loan = createAndPersistLoan(LocalDate.now());
+        Specification<Loan> byBook = (root, query, builder) ->
+                builder.equal(root.get("book").get("id"), loan.getBook().getId());
+
+        Page<Tuple> result = repository.findProjected(byBook, Arrays.asList("id", "customer", "book.id", "book.title"),
+                PageRequest.of(0, 10, Sort.by("customer")));
+
+        assertThat(result.getTotalElements()).isEqualTo(1);
+        assertThat(result.getContent().get(0).toArray())
+                .containsExactly(loan.getId(), "Fulano", loan.getBook().getId(), loan.getBook().getTitle());
+    }
+
     @Test
     @DisplayName("Deve obter emprestimos cuja data emprestimo for menor ou igual a tres dias atras e nao retornados")
     public void findByLoanDateLessThanAndNotReturned() {
@@ -67,6 +95,28 @@ public class LoanRepositoryTest {
         assertThat(result).hasSize(1).contains(loan);
     }
 
+    @Test
+    @DisplayName("Deve obter emprestimos nao devolvidos que vencem antes de uma data, pelo vencimento")
+    public void findNotReturnedDueBeforeTest() {
+        LocalDate today = LocalDate.now();
+        Loan later = createAndPersistLoan(today.minusDays(1));
+        later.setDueDate(today.plusDays(3));
+        Loan overdue = createAndPersistLoan(today.minusDays(10));
+        overdue.setDueDate(today.minusDays(6));
+        Loan returned = createAndPersistLoan(today.minusDays(10));
+        returned.setDueDate(today.minusDays(6));
+        returned.setReturned(true);
+        Loan notDue = createAndPersistLoan(today);
+        notDue.setDueDate(today.plusDays(4));
+        entityManager.flush();
+
+        Page<Loan> result = repository.findNotReturnedDueBefore(today.plusDays(4), PageRequest.of(0, 10));
+
+        assertThat(result.getContent()).containsExactly(overdue, later);
+        assertThat(result.getTotalElements()).isEqualTo(2);
+        assertThat(repository.findNotReturnedDueUpTo(today)).containsExactly(overdue);
+    }
+
     @Test
     @DisplayName("Deve retornar vazio quando nao houver emprestimos atrasados")
     public void notFindByLoanDateLessThanAndNotReturned() {
@@ -76,6 +126,105 @@ public class LoanRepositoryTest {
         assertThat(result).isEmpty();
     }
 
+    @Test
+    @DisplayName("Deve arquivar emprestimos devolvidos e mante-los no historico completo")
+    public void archiveReturnedLoansTest() {
+        Loan loan = createAndPersistLoan(LocalDate.now().minusDays(100));
+        loan.setReturned(true);
+        entityManager.persistAndFlush(loan);
+
+        List<Long> ids = repository.findReturnedIdsUpTo(LocalDate.now().minusDays(90), PageRequest.of(0, 10));
+        assertThat(ids).containsExactly(loan.getId());
+
+        archiveRepository.copyFromLoans(ids, LocalDate.now());
+        repository.deleteByIds(ids);
+        entityManager.clear();
+
+        assertThat(repository.findByBook(loan.getBook(), PageRequest.of(0, 10)).getContent()).isEmpty();
+
+        Loan current = Loan.builder().book(loan.getBook()).customer("Fulano").loanDate(LocalDate.now()).build();
+        entityManager.persistAndFlush(current);
+
+        Page<Loan> history = repository.findHistoryByBook(loan.getBook().getId(), PageRequest.of(0, 10));
+        assertThat(history.getTotalElements()).isEqualTo(2);
+        assertThat(history.getContent()).extracting(Loan::getId).containsExactly(loan.getId(), current.getId());
+
+        Page<Loan> filtered = repository.findHistoryByBookIsbnOrCustomer("123", "Fulano", PageRequest.of(0, 1));
+        assertThat(filtered.getTotalElements()).isEqualTo(2);
+        assertThat(filtered.getContent()).extracting(Loan::getId).containsExactly(loan.getId());
+    }
+
+    @Test
+    @DisplayName("Deve listar emprestimos com lembrete vencido agrupados pelo email do cliente")
+    public void streamDueRemindersTest() {
+        LocalDate today = LocalDate.now();
+        Loan second = createAndPersistLoan(today.minusDays(6));
+        second.setCustomerEmail("b@email.com");
+        second.setNextReminderDate(today);
+        Loan first = createAndPersistLoan(today.minusDays(5));
+        first.setCustomerEmail("a@email.com");
+        first.setNextReminderDate(today.minusDays(1));
+        Loan notYet = createAndPersistLoan(today.minusDays(5));
+        notYet.setCustomerEmail("c@email.com");
+        notYet.setNextReminderDate(today.plusDays(1));
+        entityManager.flush();
+
+        try (Stream<OverdueLoan> rows = repository.streamDueReminders(today, 1, 0)) {
+            assertThat(rows.map(OverdueLoan::getCustomerEmail).collect(Collectors.toList()))
+                    .containsExactly("a@email.com", "b@email.com");
+        }
+
+        Customer customer = entityManager.persist(Customer.builder().name("Beltrano").email("b@email.com").build());
+        second.setBorrower(customer);
+        entityManager.flush();
+        int owner = (int) (customer.getId() % 2);
+        try (Stream<OverdueLoan> rows = repository.streamDueReminders(today, 2, owner)) {
+            assertThat(rows.map(OverdueLoan::getCustomerEmail).collect(Collectors.toList())).contains("b@email.com");
+        }
+        try (Stream<OverdueLoan> rows = repository.streamDueReminders(today, 2, 1 - owner)) {
+            assertThat(rows.map(OverdueLoan::getCustomerEmail).collect(Collectors.toList())).doesNotContain("b@email.com");
+        }
+
+        assertThat(repository.markReminded(first.getId(), 0, LocalDateTime.now(), today.plusDays(2))).isEqualTo(1);
+        assertThat(repository.markReminded(first.getId(), 0, LocalDateTime.now(), today.plusDays(2))).isZero();
+    }
+
+    @Test
+    @DisplayName("Deve devolver um emprestimo apenas uma vez")
+    public void markReturnedTest() {
+        Loan loan = createAndPersistLoan(LocalDate.now());
+        entityManager.flush();
+
+        assertThat(repository.lockNotReturned(loan.getId())).isEqualTo(1);
+        assertThat(repository.markReturned(loan.getId())).isEqualTo(1);
+        assertThat(repository.markReturned(loan.getId())).isZero();
+        assertThat(repository.lockNotReturned(loan.getId())).isZero();
+    }
+
+    @Test
+    @DisplayName("Deve paginar o historico do cliente por cursor incluindo emprestimos arquivados")
+    public void findHistoryByCustomerBeforeTest() {
+        Customer customer = entityManager.persist(Customer.builder().name("Fulano").email("fulano@email.com").build());
+        Loan archived = createAndPersistLoan(LocalDate.now().minusDays(100));
+        archived.setBorrower(customer);
+        archived.setReturned(true);
+        Loan older = createAndPersistLoan(LocalDate.now().minusDays(10));
+        older.setBorrower(customer);
+        Loan newer = createAndPersistLoan(LocalDate.now());
+        newer.setBorrower(customer);
+        createAndPersistLoan(LocalDate.now());
+        entityManager.flush();
+        archiveRepository.copyFromLoans(List.of(archived.getId()), LocalDate.now());
+        repository.deleteByIds(List.of(archived.getId()));
+        entityManager.clear();
+
+        List<Loan> first = repository.findHistoryByCustomerBefore(customer.getId(), Long.MAX_VALUE, 2);
+        assertThat(first).extracting(Loan::getId).containsExactly(newer.getId(), older.getId());
+
+        List<Loan> second = repository.findHistoryByCustomerBefore(customer.getId(), older.getId(), 2);
+        assertThat(second).extracting(Loan::getId).containsExactly(archived.getId());
+    }
+
     private Loan createAndPersistLoan(LocalDate loanDate) {
         Book book = createNewBook("123");
         entityManager.persist(book);
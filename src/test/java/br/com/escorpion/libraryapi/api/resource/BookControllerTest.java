@@ -2,10 +2,16 @@ package br.com.escorpion.libraryapi.api.resource;
 
 import br.com.escorpion.libraryapi.api.dto.BookDTO;
 import br.com.escorpion.libraryapi.api.model.entity.Book;
+import br.com.escorpion.libraryapi.api.model.entity.Customer;
+import br.com.escorpion.libraryapi.api.model.entity.HoldStatus;
+import br.com.escorpion.libraryapi.api.model.entity.LoanHold;
 import br.com.escorpion.libraryapi.api.service.BookService;
+import br.com.escorpion.libraryapi.api.service.CustomerService;
 import br.com.escorpion.libraryapi.api.service.LoanService;
 import br.com.escorpion.libraryapi.exception.BusinessException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -28,8 +34,10 @@ import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import java.util.List;
 import java.util.Optional;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.hasSize;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -47,6 +55,9 @@ public class BookControllerTest {
     @MockBean
     LoanService loanService;
 
+    @MockBean
+    CustomerService customerService;
+
     @Autowired
     MockMvc mockMvc;
 
@@ -153,6 +164,105 @@ public class BookControllerTest {
                 .andExpect(jsonPath("isbn").value(createNewBookDto().getIsbn()));
     }
 
+    @Test
+    @DisplayName("Deve retornar somente os campos pedidos de um livro")
+    public void getBookFieldsTest() throws Exception {
+        long id = 11L;
+
+        BDDMockito.given(service.getById(id)).willReturn(Optional.of(createNewBook()));
+
+        var request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("/" + id + "?fields=isbn,title"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("title").value(createNewBookDto().getTitle()))
+                .andExpect(jsonPath("isbn").value(createNewBookDto().getIsbn()))
+                .andExpect(jsonPath("id").doesNotExist())
+                .andExpect(jsonPath("author").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("Deve retornar bad request quando pedir um campo inexistente")
+    public void getBookInvalidFieldTest() throws Exception {
+        var request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("/1?fields=id,price"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        mockMvc.perform(request)
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("errors[0]").value("Campo inválido: price"));
+        Mockito.verify(service, Mockito.never()).getById(anyLong());
+    }
+
+    @Test
+    @DisplayName("Deve retornar varios livros por id na ordem pedida")
+    public void getBooksByIdsTest() throws Exception {
+        Book first = createNewBook();
+        first.setId(3L);
+        Book second = createNewBook();
+        second.setId(1L);
+        BDDMockito.given(service.getByIds(List.of(3L, 1L, 2L))).willReturn(List.of(first, second));
+
+        var request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("?ids=3,1,2"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("[0].id").value(3))
+                .andExpect(jsonPath("[1].id").value(1));
+    }
+
+    @Test
+    @DisplayName("Deve buscar livros por ids e isbns sem repetir")
+    public void lookupBooksTest() throws Exception {
+        Book byId = createNewBook();
+        byId.setId(1L);
+        Book byIsbn = createNewBook();
+        byIsbn.setId(2L);
+        BDDMockito.given(service.getByIds(List.of(1L))).willReturn(List.of(byId));
+        BDDMockito.given(service.getByIsbns(List.of("123", "456"))).willReturn(List.of(byIsbn, byId));
+
+        var request = MockMvcRequestBuilders
+                .post(BOOK_API.concat("/lookup"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .content("{\"ids\":[1],\"isbns\":[\"123\",\"456\"]}");
+
+        mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("[0].id").value(1))
+                .andExpect(jsonPath("[1].id").value(2));
+    }
+
+    @Test
+    @DisplayName("Deve colocar o cliente na fila de espera do livro e informar a posicao")
+    public void holdBookTest() throws Exception {
+        Book book = createNewBook();
+        Customer customer = Customer.builder().id(3L).name("Ciclano").email("ciclano@email.com").build();
+        LoanHold hold = LoanHold.builder().id(7L).book(book).borrower(customer)
+                .customer("Ciclano").customerEmail("ciclano@email.com").status(HoldStatus.WAITING).build();
+        BDDMockito.given(service.getById(10L)).willReturn(Optional.of(book));
+        BDDMockito.given(customerService.getOrCreate("Ciclano", "ciclano@email.com")).willReturn(customer);
+        BDDMockito.given(loanService.hold(book, customer)).willReturn(hold);
+        BDDMockito.given(loanService.getHoldPosition(hold)).willReturn(2L);
+
+        var request = MockMvcRequestBuilders
+                .post(BOOK_API.concat("/10/holds"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .content("{\"customer\":\"Ciclano\",\"email\":\"ciclano@email.com\"}");
+
+        mockMvc.perform(request)
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("id").value(7))
+                .andExpect(jsonPath("position").value(2));
+    }
+
     @Test
     @DisplayName("Deve retornar resource not found quando o livro procurado não existir")
     public void bookNotFoundTest() throws Exception {
@@ -272,5 +382,28 @@ public class BookControllerTest {
         ;
     }
 
+    @Test
+    @DisplayName("Deve retornar livros em CBOR quando solicitado no Accept")
+    public void findBooksAsCborTest() throws Exception {
+        Book book = createNewBook();
 
+        BDDMockito.given(service.find(Mockito.any(Book.class), Mockito.any(Pageable.class)))
+                .willReturn(new PageImpl<Book>(List.of(book), PageRequest.of(0, 100), 1));
+
+        MediaType cbor = MediaType.valueOf("application/cbor");
+        MockHttpServletRequestBuilder requestBuilder = MockMvcRequestBuilders
+                .get(BOOK_API.concat("?page=0&size=100"))
+                .accept(cbor);
+
+        byte[] body = mockMvc
+                .perform(requestBuilder)
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(cbor))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode page = new ObjectMapper(new CBORFactory()).readTree(body);
+        assertThat(page.get("content")).hasSize(1);
+        assertThat(page.get("content").get(0).get("isbn").asText()).isEqualTo(book.getIsbn());
+        assertThat(page.get("totalElements").asLong()).isEqualTo(1);
+    }
 }
@@ -0,0 +1,89 @@
+package br.com.escorpion.libraryapi.api.resource;
+
+import br.com.escorpion.libraryapi.api.model.entity.Book;
+import br.com.escorpion.libraryapi.api.model.entity.Customer;
+import br.com.escorpion.libraryapi.api.model.entity.Loan;
+import br.com.escorpion.libraryapi.api.service.CustomerService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.BDDMockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@WebMvcTest(controllers = CustomerController.class)
+@AutoConfigureMockMvc
+public class CustomerControllerTest {
+
+    static final String CUSTOMER_API = "/api/customers";
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @MockBean
+    CustomerService customerService;
+
+    private Loan loan(long id) {
+        return Loan.builder()
+                .id(id)
+                .customer("Fulano")
+                .book(Book.builder().id(1L).isbn("123").build())
+                .loanDate(LocalDate.now())
+                .build();
+    }
+
+    @Test
+    @DisplayName("Deve listar os emprestimos do cliente com cursor para a proxima pagina")
+    public void customerLoansTest() throws Exception {
+        Customer customer = Customer.builder().id(1L).email("fulano@email.com").build();
+        BDDMockito.given(customerService.getById(1L)).willReturn(Optional.of(customer));
+        BDDMockito.given(customerService.getLoans(customer, 50L, 2)).willReturn(List.of(loan(40L), loan(30L)));
+
+        mockMvc.perform(get(CUSTOMER_API + "/1/loans?before=50&size=2").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", hasSize(2)))
+                .andExpect(jsonPath("content[0].id").value(40))
+                .andExpect(jsonPath("content[0].book.isbn").value("123"))
+                .andExpect(jsonPath("next").value(30));
+    }
+
+    @Test
+    @DisplayName("Deve indicar a ultima pagina sem cursor")
+    public void lastPageTest() throws Exception {
+        Customer customer = Customer.builder().id(1L).email("fulano@email.com").build();
+        BDDMockito.given(customerService.getById(1L)).willReturn(Optional.of(customer));
+        BDDMockito.given(customerService.getLoans(customer, null, 20)).willReturn(List.of(loan(10L)));
+
+        mockMvc.perform(get(CUSTOMER_API + "/1/loans").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", hasSize(1)))
+                .andExpect(jsonPath("next").value(nullValue()));
+    }
+
+    @Test
+    @DisplayName("Deve retornar 404 para cliente inexistente")
+    public void customerNotFoundTest() throws Exception {
+        BDDMockito.given(customerService.getById(1L)).willReturn(Optional.empty());
+
+        mockMvc.perform(get(CUSTOMER_API + "/1/loans").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound());
+    }
+}
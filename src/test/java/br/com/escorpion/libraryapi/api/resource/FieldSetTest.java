@@ -0,0 +1,67 @@
+package br.com.escorpion.libraryapi.api.resource;
+
+import br.com.escorpion.libraryapi.api.dto.FieldSet;
+import br.com.escorpion.libraryapi.api.dto.LoanDTO;
+import br.com.escorpion.libraryapi.api.dto.StreamingPage;
+import br.com.escorpion.libraryapi.api.model.entity.Book;
+import br.com.escorpion.libraryapi.api.model.entity.Loan;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+
+import javax.persistence.Tuple;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FieldSetTest {
+
+    private final ObjectMapper json = new ObjectMapper();
+
+    @Test
+    @DisplayName("Deve selecionar os campos na ordem do DTO, expandindo o livro aninhado")
+    public void parseTest() {
+        FieldSet<Loan> selected = FieldSet.parse(" book , customer,id,customer", LoanDTO.FIELDS).get();
+
+        assertThat(selected.attributes())
+                .containsExactly("id", "customer", "book.id", "book.title", "book.author", "book.isbn", "book.category");
+        assertThat(FieldSet.parse("email,book.id", LoanDTO.FIELDS).get().attributes())
+                .containsExactly("customerEmail", "book.id");
+        assertThat(FieldSet.parse(" ", LoanDTO.FIELDS)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Deve recusar campos que o DTO nao possui")
+    public void invalidFieldTest() {
+        assertThatThrownBy(() -> FieldSet.parse("id,password", LoanDTO.FIELDS))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Campo inválido: password");
+    }
+
+    @Test
+    @DisplayName("Deve escrever somente os campos selecionados, agrupando os do livro")
+    public void writeTest() throws Exception {
+        FieldSet<Loan> selected = FieldSet.parse("id,book.title,email", LoanDTO.FIELDS).get();
+        Loan loan = Loan.builder().id(10L).customer("Fulano").customerEmail("fulano@email.com")
+                .book(Book.builder().id(1L).title("Livro").build()).build();
+
+        assertThat(json.readTree(json.writeValueAsString(selected.view(loan))))
+                .isEqualTo(json.readTree("{\"id\":10,\"email\":\"fulano@email.com\",\"book\":{\"title\":\"Livro\"}}"));
+
+        loan.setBook(null);
+        assertThat(json.readTree(json.writeValueAsString(selected.view(loan))))
+                .isEqualTo(json.readTree("{\"id\":10,\"email\":\"fulano@email.com\",\"book\":null}"));
+
+        Tuple row = mock(Tuple.class);
+        when(row.get(0)).thenReturn(11L);
+        when(row.get(1)).thenReturn(null);
+        when(row.get(2)).thenReturn("Outro");
+        String body = json.writeValueAsString(StreamingPage.of(new PageImpl<>(List.of(row)), selected::writeTuple));
+        assertThat(json.readTree(body).get("content").get(0))
+                .isEqualTo(json.readTree("{\"id\":11,\"email\":null,\"book\":{\"title\":\"Outro\"}}"));
+    }
+}
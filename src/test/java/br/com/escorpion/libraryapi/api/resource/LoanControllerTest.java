@@ -4,12 +4,16 @@ import br.com.escorpion.libraryapi.api.dto.LoanDTO;
 import br.com.escorpion.libraryapi.api.dto.LoanFilterDTO;
 import br.com.escorpion.libraryapi.api.dto.ReturnedLoanDTO;
 import br.com.escorpion.libraryapi.api.model.entity.Book;
+import br.com.escorpion.libraryapi.api.model.entity.Customer;
 import br.com.escorpion.libraryapi.api.model.entity.Loan;
 import br.com.escorpion.libraryapi.api.service.BookService;
+import br.com.escorpion.libraryapi.api.service.CustomerService;
 import br.com.escorpion.libraryapi.api.service.LoanService;
+import br.com.escorpion.libraryapi.api.service.support.LoanEventStream;
 import br.com.escorpion.libraryapi.exception.BusinessException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.hamcrest.Matchers;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -29,6 +33,7 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import javax.persistence.Tuple;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
@@ -56,6 +61,18 @@ public class LoanControllerTest {
     @MockBean
     LoanService loanService;
 
+    @MockBean
+    CustomerService customerService;
+
+    @MockBean
+    LoanEventStream loanEventStream;
+
+    @BeforeEach
+    public void setUp() {
+        BDDMockito.given(customerService.getOrCreate(Mockito.any(), Mockito.any()))
+                .willReturn(Customer.builder().id(1L).name("Fulano").email("customer@email.com").build());
+    }
+
     @Test
     @DisplayName("Deve realizar um empréstimo")
     public void createLoanTest() throws Exception {
@@ -93,6 +110,9 @@ public class LoanControllerTest {
         mockMvc.perform(requestBuilder)
                 .andExpect(status().isCreated())
                 .andExpect(content().string("1"));
+
+        verify(loanService).save(Mockito.argThat(saved ->
+                "customer@email.com".equals(saved.getCustomerEmail()) && saved.getBorrower().getId() == 1L));
     }
 
     @Test
@@ -229,4 +249,48 @@ public class LoanControllerTest {
                 .andExpect(jsonPath("pageable.pageNumber").value(0))
         ;
     }
+
+    @Test
+    @DisplayName("Deve listar empréstimos que vencem antes da data informada")
+    public void findDueLoansTest() throws Exception {
+        LocalDate before = LocalDate.of(2020, 3, 10);
+        Loan loan = Loan.builder().id(1L).customer("Fulano").dueDate(LocalDate.of(2020, 3, 8))
+                .book(Book.builder().id(1L).isbn("321").build()).build();
+        BDDMockito.given(loanService.getDueBefore(Mockito.eq(before), Mockito.any(Pageable.class)))
+                .willReturn(new PageImpl<Loan>(List.of(loan), PageRequest.of(0, 10), 1));
+
+        mockMvc
+                .perform(MockMvcRequestBuilders.get(LOAN_API.concat("/due?before=2020-03-10"))
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", hasSize(1)))
+                .andExpect(jsonPath("content[0].dueDate").value("2020-03-08"))
+                .andExpect(jsonPath("totalElements").value(1));
+    }
+
+    @Test
+    @DisplayName("Deve filtrar empréstimos selecionando somente os campos pedidos")
+    public void findLoansFieldsTest() throws Exception {
+        Tuple row = Mockito.mock(Tuple.class);
+        BDDMockito.given(row.get(0)).willReturn(1L);
+        BDDMockito.given(row.get(1)).willReturn("321");
+        BDDMockito.given(loanService.find(Mockito.any(LoanFilterDTO.class), Mockito.anyList(), Mockito.any(Pageable.class)))
+                .willReturn(new PageImpl<Tuple>(List.of(row), PageRequest.of(0, 10), 1));
+
+        MockHttpServletRequestBuilder requestBuilder = MockMvcRequestBuilders
+                .get(LOAN_API.concat("?customer=Fulano&fields=book.isbn,id"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        mockMvc
+                .perform(requestBuilder)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", hasSize(1)))
+                .andExpect(jsonPath("content[0].id").value(1))
+                .andExpect(jsonPath("content[0].book.isbn").value("321"))
+                .andExpect(jsonPath("content[0].customer").doesNotExist())
+                .andExpect(jsonPath("totalElements").value(1));
+
+        verify(loanService).find(Mockito.any(LoanFilterDTO.class), Mockito.eq(List.of("id", "book.isbn")),
+                Mockito.any(Pageable.class));
+    }
 }
@@ -0,0 +1,167 @@
+package br.com.escorpion.libraryapi.api.resource;
+
+import br.com.escorpion.libraryapi.api.dto.BookDTO;
+import br.com.escorpion.libraryapi.api.dto.LoanDTO;
+import br.com.escorpion.libraryapi.api.dto.StreamingPage;
+import br.com.escorpion.libraryapi.api.model.entity.Book;
+import br.com.escorpion.libraryapi.api.model.entity.Loan;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.modelmapper.ModelMapper;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares payload size and serialization time of JSON and CBOR for typical page sizes, and
+ * the DTO-list page against {@link StreamingPage}. Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+public class PageSerializationBenchmarkTest {
+
+    private static final int[] PAGE_SIZES = {20, 100, 1000};
+    private static final int WARMUP_ROUNDS = 2_000;
+    private static final int MEASURED_ROUNDS = 2_000;
+
+    private final ObjectMapper json = new ObjectMapper();
+    private final ObjectMapper cbor = new ObjectMapper(new CBORFactory());
+    private final ModelMapper modelMapper = new ModelMapper();
+
+    @Test
+    @DisplayName("CBOR deve gerar payloads menores que JSON para paginas de livros e emprestimos")
+    public void comparePageFormats() throws Exception {
+        System.out.printf("%-6s %6s %12s %12s %14s %14s%n", "type", "size", "json bytes", "cbor bytes", "json us/page", "cbor us/page");
+        for (int size : PAGE_SIZES) {
+            compare("book", bookPage(size));
+            compare("loan", loanPage(size));
+        }
+    }
+
+    @Test
+    @DisplayName("A pagina em streaming deve alocar menos e serializar mais rapido que a lista de DTOs")
+    public void compareStreamingPage() throws Exception {
+        System.out.printf("%-6s %6s %14s %14s %16s %16s%n",
+                "type", "size", "dto us/page", "stream us/page", "dto bytes alloc", "stream bytes alloc");
+        for (int size : PAGE_SIZES) {
+            Page<Loan> loans = loanEntityPage(size);
+            long[] dto = measureAllocation(size, () -> new PageImpl<>(loans.getContent().stream()
+                    .map(loan -> {
+                        LoanDTO loanDTO = modelMapper.map(loan, LoanDTO.class);
+                        loanDTO.setBook(modelMapper.map(loan.getBook(), BookDTO.class));
+                        return loanDTO;
+                    })
+                    .collect(Collectors.toList()), loans.getPageable(), loans.getTotalElements()));
+            long[] streaming = measureAllocation(size, () -> StreamingPage.of(loans, LoanDTO::write));
+
+            System.out.printf("%-6s %6d %14.1f %14.1f %16d %16d%n",
+                    "loan", size, dto[0] / 1_000.0, streaming[0] / 1_000.0, dto[1], streaming[1]);
+
+            assertThat(streaming[1]).isLessThan(dto[1]);
+        }
+    }
+
+    /**
+     * @return nanoseconds and bytes allocated per page, mapping included, written to a discarding stream
+     */
+    private long[] measureAllocation(int size, Supplier<Object> page) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        int rounds = Math.max(10, MEASURED_ROUNDS * 20 / size);
+        for (int i = 0; i < Math.max(10, WARMUP_ROUNDS * 20 / size); i++) {
+            json.writeValue(OutputStream.nullOutputStream(), page.get());
+        }
+        long allocatedBefore = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            json.writeValue(OutputStream.nullOutputStream(), page.get());
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocatedBefore;
+        return new long[]{elapsed / rounds, allocated / rounds};
+    }
+
+    private Page<Loan> loanEntityPage(int size) {
+        List<Loan> content = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            content.add(Loan.builder()
+                    .id((long) i)
+                    .customer("Customer " + i)
+                    .customerEmail("customer" + i + "@email.com")
+                    .book(Book.builder()
+                            .id((long) i)
+                            .title("Meu Livro " + i)
+                            .author("Autor " + i)
+                            .isbn("978000000" + (1000 + i))
+                            .build())
+                    .build());
+        }
+        return new PageImpl<>(content, PageRequest.of(0, size), size * 10L);
+    }
+
+    private void compare(String type, Page<?> page) throws Exception {
+        byte[] jsonBytes = json.writeValueAsBytes(page);
+        byte[] cborBytes = cbor.writeValueAsBytes(page);
+
+        double jsonMicros = measure(json, page);
+        double cborMicros = measure(cbor, page);
+
+        System.out.printf("%-6s %6d %12d %12d %14.1f %14.1f%n",
+                type, page.getSize(), jsonBytes.length, cborBytes.length, jsonMicros, cborMicros);
+
+        assertThat(cborBytes.length).isLessThan(jsonBytes.length);
+    }
+
+    private double measure(ObjectMapper mapper, Page<?> page) throws Exception {
+        int rounds = Math.max(10, MEASURED_ROUNDS * 20 / page.getSize());
+        for (int i = 0; i < Math.max(10, WARMUP_ROUNDS * 20 / page.getSize()); i++) {
+            mapper.writeValueAsBytes(page);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            mapper.writeValueAsBytes(page);
+        }
+        return (System.nanoTime() - start) / 1_000.0 / rounds;
+    }
+
+    private Page<BookDTO> bookPage(int size) {
+        List<BookDTO> content = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            content.add(book(i));
+        }
+        return new PageImpl<>(content, PageRequest.of(0, size), size * 10L);
+    }
+
+    private Page<LoanDTO> loanPage(int size) {
+        List<LoanDTO> content = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            content.add(LoanDTO.builder()
+                    .id((long) i)
+                    .isbn("978000000" + (1000 + i))
+                    .customer("Customer " + i)
+                    .email("customer" + i + "@email.com")
+                    .book(book(i))
+                    .build());
+        }
+        return new PageImpl<>(content, PageRequest.of(0, size), size * 10L);
+    }
+
+    private BookDTO book(int i) {
+        return BookDTO.builder()
+                .id((long) i)
+                .title("Meu Livro " + i)
+                .author("Autor " + i)
+                .isbn("978000000" + (1000 + i))
+                .build();
+    }
+}
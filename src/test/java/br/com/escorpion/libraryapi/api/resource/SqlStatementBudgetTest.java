@@ -0,0 +1,111 @@
+package br.com.escorpion.libraryapi.api.resource;
+
+import br.com.escorpion.libraryapi.api.model.entity.Book;
+import br.com.escorpion.libraryapi.api.model.entity.Customer;
+import br.com.escorpion.libraryapi.api.model.entity.Loan;
+import br.com.escorpion.libraryapi.api.repository.BookRepository;
+import br.com.escorpion.libraryapi.api.repository.CustomerRepository;
+import br.com.escorpion.libraryapi.api.repository.LoanRepository;
+import br.com.escorpion.libraryapi.api.service.CustomerService;
+import br.com.escorpion.libraryapi.config.SqlStats;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+
+import static br.com.escorpion.libraryapi.support.SqlStatementAssertions.capture;
+import static br.com.escorpion.libraryapi.support.SqlStatementAssertions.repeatsAtMost;
+import static br.com.escorpion.libraryapi.support.SqlStatementAssertions.statementsAtMost;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:sql-statement-budget;DB_CLOSE_DELAY=-1",
+        "application.sql-stats.headers=true",
+        "application.startup.test-mail.enabled=false"})
+@AutoConfigureMockMvc
+public class SqlStatementBudgetTest {
+
+    private static final int LOANS = 10;
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    LoanRepository loanRepository;
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    @Autowired
+    CustomerService customerService;
+
+    Customer customer;
+    Book book;
+
+    @BeforeEach
+    public void setUp() {
+        loanRepository.deleteAll();
+        bookRepository.deleteAll();
+        customerRepository.deleteAll();
+
+        customer = customerRepository.save(Customer.builder().name("Fulano").email("fulano@email.com").build());
+        for (int i = 0; i < LOANS; i++) {
+            book = bookRepository.save(Book.builder().title("Livro " + i).author("Autor").isbn("sql-" + i).build());
+            loanRepository.save(Loan.builder().book(book).customer("Fulano").customerEmail("fulano@email.com")
+                    .borrower(customer).loanDate(LocalDate.now()).build());
+        }
+    }
+
+    @Test
+    @DisplayName("Deve listar emprestimos carregando os livros na mesma consulta")
+    public void findLoansTest() throws Exception {
+        mvc.perform(get("/api/loans?customer=Fulano&isbn=nenhum&size=20"))
+                .andExpect(status().isOk())
+                .andExpect(statementsAtMost(2))
+                .andExpect(repeatsAtMost(1));
+    }
+
+    @Test
+    @DisplayName("Deve paginar o historico do cliente sem uma consulta por livro")
+    public void customerHistoryTest() throws Exception {
+        mvc.perform(get("/api/customers/" + customer.getId() + "/loans?size=20"))
+                .andExpect(status().isOk())
+                .andExpect(statementsAtMost(3))
+                .andExpect(repeatsAtMost(1));
+
+        SqlStats.Scope scope = capture(() -> customerService.getLoans(customer, null, 20)
+                .forEach(loan -> loan.getBook().getTitle()));
+        assertThat(scope.getStatements()).isLessThanOrEqualTo(2);
+        assertThat(scope.getRows()).isGreaterThanOrEqualTo(LOANS);
+    }
+
+    @Test
+    @DisplayName("Deve buscar o historico completo do livro com numero fixo de consultas")
+    public void bookHistoryTest() throws Exception {
+        mvc.perform(get("/api/books/" + book.getId() + "/loans?fullHistory=true"))
+                .andExpect(status().isOk())
+                .andExpect(statementsAtMost(2));
+    }
+
+    @Test
+    @DisplayName("Deve atualizar o livro sem consultas alem da leitura e do update")
+    public void updateBookTest() throws Exception {
+        mvc.perform(put("/api/books/" + book.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"title\":\"Novo\",\"author\":\"Outro\",\"isbn\":\"sql-9\"}"))
+                .andExpect(status().isOk())
+                .andExpect(statementsAtMost(2));
+    }
+}
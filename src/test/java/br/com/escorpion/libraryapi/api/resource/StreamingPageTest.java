@@ -0,0 +1,82 @@
+package br.com.escorpion.libraryapi.api.resource;
+
+import br.com.escorpion.libraryapi.api.dto.BookDTO;
+import br.com.escorpion.libraryapi.api.dto.LoanDTO;
+import br.com.escorpion.libraryapi.api.dto.StreamingPage;
+import br.com.escorpion.libraryapi.api.model.entity.Book;
+import br.com.escorpion.libraryapi.api.model.entity.Loan;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.modelmapper.ModelMapper;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StreamingPageTest {
+
+    private final ObjectMapper json = new ObjectMapper();
+    private final ObjectMapper cbor = new ObjectMapper(new CBORFactory());
+    private final ModelMapper modelMapper = new ModelMapper();
+
+    @Test
+    @DisplayName("Deve gerar o mesmo JSON e CBOR de uma pagina de DTOs para livros")
+    public void bookPageTest() throws Exception {
+        List<Book> books = Arrays.asList(
+                Book.builder().id(1L).title("Livro").author("Autor").isbn("123").build(),
+                Book.builder().id(2L).title("Outro").build());
+        Page<Book> page = new PageImpl<>(books, PageRequest.of(1, 2, Sort.by("title")), 7);
+
+        Page<BookDTO> expected = new PageImpl<>(books.stream()
+                .map(book -> modelMapper.map(book, BookDTO.class))
+                .collect(Collectors.toList()), page.getPageable(), page.getTotalElements());
+
+        assertSameSerialization(StreamingPage.of(page, BookDTO::write), expected);
+    }
+
+    @Test
+    @DisplayName("Deve gerar o mesmo JSON de uma pagina de DTOs para emprestimos, com e sem livro")
+    public void loanPageTest() throws Exception {
+        Book book = Book.builder().id(1L).title("Livro").author("Autor").isbn("123").build();
+        List<Loan> loans = Arrays.asList(
+                Loan.builder().id(10L).customer("Fulano").customerEmail("fulano@email.com").book(book).build(),
+                Loan.builder().id(11L).isbn("456").customer("Ciclano").build());
+        Page<Loan> page = new PageImpl<>(loans, PageRequest.of(0, 10), 2);
+
+        Page<LoanDTO> expected = new PageImpl<>(Arrays.asList(
+                LoanDTO.builder().id(10L).customer("Fulano").email("fulano@email.com")
+                        .book(modelMapper.map(book, BookDTO.class)).build(),
+                LoanDTO.builder().id(11L).isbn("456").customer("Ciclano").build()),
+                page.getPageable(), page.getTotalElements());
+
+        assertSameSerialization(StreamingPage.of(page, LoanDTO::write), expected);
+    }
+
+    @Test
+    @DisplayName("Deve gerar o mesmo JSON de uma pagina vazia e sem paginacao")
+    public void unpagedTest() throws Exception {
+        Page<Book> page = new PageImpl<>(Collections.emptyList(), Pageable.unpaged(), 0);
+
+        assertSameSerialization(StreamingPage.of(page, BookDTO::write), new PageImpl<BookDTO>(Collections.emptyList()));
+    }
+
+    /**
+     * Compares parsed trees: Jackson does not guarantee the order of bean properties.
+     */
+    private void assertSameSerialization(StreamingPage<?> streaming, Page<?> expected) throws Exception {
+        assertThat(json.readTree(json.writeValueAsBytes(streaming)))
+                .isEqualTo(json.readTree(json.writeValueAsBytes(expected)));
+        assertThat(cbor.readTree(cbor.writeValueAsBytes(streaming)))
+                .isEqualTo(cbor.readTree(cbor.writeValueAsBytes(expected)));
+    }
+}
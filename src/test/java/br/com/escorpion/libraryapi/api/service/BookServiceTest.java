@@ -3,7 +3,11 @@ package br.com.escorpion.libraryapi.api.service;
 import br.com.escorpion.libraryapi.api.model.entity.Book;
 import br.com.escorpion.libraryapi.api.repository.BookRepository;
 import br.com.escorpion.libraryapi.api.service.impl.BookServiceImpl;
+import br.com.escorpion.libraryapi.api.service.support.BookCache;
+import br.com.escorpion.libraryapi.api.service.support.BookIsbnFilter;
+import br.com.escorpion.libraryapi.api.service.support.BookIsbnIndex;
 import br.com.escorpion.libraryapi.exception.BusinessException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -11,6 +15,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mockito;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
@@ -18,11 +23,17 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyIterable;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(SpringExtension.class)
@@ -31,12 +42,22 @@ class BookServiceTest {
 
     BookService bookService;
 
+    BookIsbnIndex isbnIndex;
+
+    BookIsbnFilter isbnFilter;
+
     @MockBean
     BookRepository bookRepository;
 
     @BeforeEach
     public void setUp() {
-        this.bookService = new BookServiceImpl(bookRepository);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        this.isbnIndex = new BookIsbnIndex(bookRepository, meterRegistry, 1000);
+        this.isbnFilter = new BookIsbnFilter(bookRepository, meterRegistry, 1000, 0.01);
+        this.bookService = new BookServiceImpl(bookRepository,
+                isbnFilter,
+                isbnIndex,
+                new BookCache(meterRegistry, 100, 300), meterRegistry, 500, 200, 2);
 
     }
 
@@ -81,6 +102,33 @@ class BookServiceTest {
         Mockito.verify(bookRepository, Mockito.never()).save(validBook);
     }
 
+    @Test
+    @DisplayName("Deve lançar erro de negocio quando o mesmo isbn é salvo ao mesmo tempo.")
+    public void concurrentDuplicateISBNTest() {
+        Book book = createValidBook();
+        book.setIsbn("978-0-306-40615-7");
+        when(bookRepository.save(book)).thenThrow(new DataIntegrityViolationException("idx_book_isbn_key"));
+        when(bookRepository.existsByIsbnKey(9780306406157L)).thenReturn(false, true);
+
+        Throwable exception = Assertions.catchThrowable(() -> bookService.save(book));
+
+        assertThat(exception)
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Isbn já cadastrado");
+    }
+
+    @Test
+    @DisplayName("Deve consultar a base para um isbn sem chave mesmo com o filtro construído.")
+    public void keylessISBNChecksDatabaseTest() {
+        when(bookRepository.streamAllIsbns()).thenReturn(Stream.empty());
+        isbnFilter.rebuild();
+        when(bookRepository.existsByIsbn("1213")).thenReturn(true);
+
+        Throwable exception = Assertions.catchThrowable(() -> bookService.save(createValidBook()));
+
+        assertThat(exception).isInstanceOf(BusinessException.class);
+    }
+
     @Test
     @DisplayName("Deve obter um livro por id.")
     public void getByIdTest() {
@@ -96,6 +144,8 @@ class BookServiceTest {
         assertThat(optionalBook.get().getAuthor()).isEqualTo(book.getAuthor());
         assertThat(optionalBook.get().getIsbn()).isEqualTo(book.getIsbn());
         assertThat(optionalBook.get().getTitle()).isEqualTo(book.getTitle());
+        // the loaded instance belongs to the loading session; callers get detached copies
+        assertThat(optionalBook.get()).isNotSameAs(book);
     }
 
     @Test
@@ -109,6 +159,78 @@ class BookServiceTest {
         assertThat(optionalBook.isPresent()).isFalse();
     }
 
+    @Test
+    @DisplayName("Deve servir a segunda busca por id do cache com uma copia do livro")
+    public void getByIdFromCacheTest() {
+        Long id = 1L;
+        Book book = createValidBook();
+        book.setId(id);
+        when(bookRepository.findById(id)).thenReturn(Optional.of(book));
+
+        bookService.getById(id);
+        bookService.getById(id).get().setTitle("Alterado sem salvar");
+        Optional<Book> cached = bookService.getById(id);
+
+        verify(bookRepository, times(1)).findById(id);
+        assertThat(cached.get().getTitle()).isEqualTo("Meu Livro");
+
+        bookService.delete(cached.get());
+        bookService.getById(id);
+        verify(bookRepository, times(2)).findById(id);
+    }
+
+    @Test
+    @DisplayName("Deve obter varios livros por id na ordem pedida, buscando no banco so o que nao esta no cache")
+    @SuppressWarnings("unchecked")
+    public void getByIdsTest() {
+        when(bookRepository.findById(2L)).thenReturn(Optional.of(bookWithId(2L)));
+        bookService.getById(2L);
+        when(bookRepository.findAllById(anyIterable())).thenAnswer(invocation -> {
+            List<Long> ids = invocation.getArgument(0);
+            return ids.stream().filter(id -> id != 4L).map(this::bookWithId).collect(Collectors.toList());
+        });
+
+        List<Book> books = bookService.getByIds(Arrays.asList(5L, 2L, 4L, 1L, 5L, 3L));
+
+        assertThat(books).extracting(Book::getId).containsExactly(5L, 2L, 1L, 3L);
+        // four misses in chunks of two, the cached book is not queried
+        verify(bookRepository).findAllById(Arrays.asList(5L, 4L));
+        verify(bookRepository).findAllById(Arrays.asList(1L, 3L));
+        assertThat(bookService.getByIds(Arrays.asList(3L, 1L))).extracting(Book::getId).containsExactly(3L, 1L);
+        verify(bookRepository, times(2)).findAllById(anyIterable());
+    }
+
+    @Test
+    @DisplayName("Deve obter varios livros por isbn na ordem pedida, em uma consulta por lote")
+    public void getByIsbnsTest() {
+        when(bookRepository.streamIsbnKeys()).thenReturn(Stream.empty());
+        isbnIndex.rebuild();
+        Book first = Book.builder().id(1L).title("Livro").isbn("9780306406157").isbnKey(9780306406157L).build();
+        Book second = Book.builder().id(2L).title("Outro").isbn("livre-2").build();
+        when(bookRepository.findByIsbnKeyIn(anyCollection())).thenReturn(List.of(first));
+        when(bookRepository.findByIsbnIn(anyCollection())).thenReturn(List.of(second));
+
+        List<Book> books = bookService.getByIsbns(Arrays.asList("livre-2", "desconhecido", "978-0-306-40615-7", "9780306406157"));
+
+        assertThat(books).extracting(Book::getId).containsExactly(2L, 1L);
+        verify(bookRepository).findByIsbnKeyIn(List.of(9780306406157L));
+        verify(bookRepository).findByIsbnIn(List.of("livre-2", "desconhecido"));
+
+        // now in the isbn index and the cache
+        assertThat(bookService.getByIsbns(List.of("9780306406157"))).extracting(Book::getId).containsExactly(1L);
+        verify(bookRepository, times(1)).findByIsbnKeyIn(anyCollection());
+        verify(bookRepository, never()).findAllById(anyIterable());
+    }
+
+    @Test
+    @DisplayName("Deve recusar consultas com mais livros que o limite")
+    public void getByIdsLimitTest() {
+        List<Long> ids = LongStream.rangeClosed(1, 201).boxed().collect(Collectors.toList());
+
+        assertThrows(IllegalArgumentException.class, () -> bookService.getByIds(ids));
+        verifyNoInteractions(bookRepository);
+    }
+
     @Test
     @DisplayName("Deve atualizar um livro")
     public void updateBookTest() {
@@ -217,6 +339,26 @@ class BookServiceTest {
         verify(bookRepository, times(1)).findByIsbn(isbn);
     }
 
+    @Test
+    @DisplayName("Deve obter livro pelo isbn-10 usando a chave canonica")
+    public void getBookByCanonicalIsbnTest(){
+        Book book = Book.builder().id(1L).isbn("978-0-306-40615-7").isbnKey(9780306406157L).build();
+
+        when(bookRepository.findByIsbnKey(9780306406157L)).thenReturn(Optional.of(book));
+
+        Optional<Book> optionalBook = bookService.getBookByIsbn("0-306-40615-2");
+
+        assertThat(optionalBook.map(Book::getId)).contains(1L);
+        assertThat(optionalBook.get()).isNotSameAs(book);
+        verify(bookRepository, never()).findByIsbn(Mockito.anyString());
+    }
+
+    private Book bookWithId(long id) {
+        Book book = createValidBook();
+        book.setId(id);
+        return book;
+    }
+
     private Book createValidBook() {
         return Book.builder()
                 .author("Autor")
@@ -0,0 +1,90 @@
+package br.com.escorpion.libraryapi.api.service;
+
+import br.com.escorpion.libraryapi.api.model.entity.Book;
+import br.com.escorpion.libraryapi.api.model.entity.Loan;
+import br.com.escorpion.libraryapi.api.service.impl.GroupCommitLoanService;
+import br.com.escorpion.libraryapi.api.service.impl.LoanServiceImpl;
+import br.com.escorpion.libraryapi.exception.BusinessException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class GroupCommitLoanServiceTest {
+
+    LoanServiceImpl delegate = mock(LoanServiceImpl.class);
+    PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    GroupCommitLoanService loanService;
+
+    @BeforeEach
+    public void setUp() {
+        loanService = new GroupCommitLoanService(delegate, transactionManager, meterRegistry, 64, 1, 100);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        loanService.shutdown();
+    }
+
+    private Loan createLoan() {
+        return Loan.builder().book(Book.builder().id(1L).build()).customer("Fulano").loanDate(LocalDate.now()).build();
+    }
+
+    @Test
+    @DisplayName("Deve recusar no lote o livro já emprestado sem desfazer os outros empréstimos")
+    public void loanedBookRefusedInBatchTest() throws Exception {
+        loanService.shutdown();
+        loanService = new GroupCommitLoanService(delegate, transactionManager, meterRegistry, 64, 200, 100);
+        Loan refused = createLoan();
+        Loan accepted = createLoan();
+        when(delegate.reserveCopy(refused)).thenReturn(Optional.of("Book already loaned"));
+        when(delegate.reserveCopy(accepted)).thenReturn(Optional.empty());
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Loan> refusedSave = executor.submit(() -> loanService.save(refused));
+            Future<Loan> acceptedSave = executor.submit(() -> loanService.save(accepted));
+
+            assertThat(acceptedSave.get(5, TimeUnit.SECONDS)).isSameAs(accepted);
+            Throwable exception = catchThrowable(() -> refusedSave.get(5, TimeUnit.SECONDS));
+            assertThat(exception).isInstanceOf(ExecutionException.class).hasCauseInstanceOf(BusinessException.class);
+            assertThat(exception.getCause()).hasMessage("Book already loaned");
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(delegate).saveReserved(accepted);
+        verify(delegate, never()).saveReserved(refused);
+        verify(transactionManager, never()).rollback(any());
+    }
+
+    @Test
+    @DisplayName("Deve reservar a cópia na mesma transação do empréstimo")
+    public void reservesCopyInWriteTest() {
+        Loan loan = createLoan();
+        when(delegate.reserveCopy(loan)).thenReturn(Optional.empty());
+        when(delegate.saveReserved(loan)).thenThrow(new IllegalStateException("db down"));
+
+        Throwable exception = catchThrowable(() -> loanService.save(loan));
+
+        assertThat(exception).isInstanceOf(IllegalStateException.class);
+        // the rollback puts the copy back
+        verify(delegate).reserveCopy(loan);
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+    }
+}
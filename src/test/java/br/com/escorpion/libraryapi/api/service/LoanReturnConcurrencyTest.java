@@ -0,0 +1,80 @@
+package br.com.escorpion.libraryapi.api.service;
+
+import br.com.escorpion.libraryapi.api.model.entity.Book;
+import br.com.escorpion.libraryapi.api.model.entity.Loan;
+import br.com.escorpion.libraryapi.api.model.entity.LoanEventType;
+import br.com.escorpion.libraryapi.api.repository.BookRepository;
+import br.com.escorpion.libraryapi.api.repository.OutboxEventRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:loan-return-concurrency;DB_CLOSE_DELAY=-1",
+        "application.startup.test-mail.enabled=false"})
+public class LoanReturnConcurrencyTest {
+
+    private static final int ROUNDS = 10;
+
+    @Autowired
+    LoanService loanService;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    OutboxEventRepository outboxRepository;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Deve devolver a copia uma unica vez quando o mesmo emprestimo e devolvido duas vezes ao mesmo tempo")
+    public void concurrentDoubleReturnTest() throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            Book book = bookRepository.save(Book.builder().title("Livro").author("Autor")
+                    .isbn("return-" + round).copies(3).build());
+            Loan returning = loanService.save(loan(book));
+            loanService.save(loan(book));
+
+            CyclicBarrier barrier = new CyclicBarrier(2);
+            Future<?> first = executor.submit(() -> giveBack(returning.getId(), barrier));
+            Future<?> second = executor.submit(() -> giveBack(returning.getId(), barrier));
+            first.get(10, TimeUnit.SECONDS);
+            second.get(10, TimeUnit.SECONDS);
+
+            assertThat(bookRepository.findAvailableById(book.getId())).isEqualTo(2);
+            assertThat(outboxRepository.findAll()).filteredOn(event -> event.getLoanId().equals(returning.getId())
+                    && event.getType() == LoanEventType.RETURNED).hasSize(1);
+        }
+    }
+
+    private Loan loan(Book book) {
+        return Loan.builder().book(book).customer("Fulano").customerEmail("fulano@email.com")
+                .loanDate(LocalDate.now()).build();
+    }
+
+    private Void giveBack(Long id, CyclicBarrier barrier) throws Exception {
+        // each request reads the loan as not returned before either writes
+        Loan loan = loanService.getById(id).orElseThrow(IllegalStateException::new);
+        barrier.await(5, TimeUnit.SECONDS);
+        loan.setReturned(true);
+        loanService.update(loan);
+        return null;
+    }
+}
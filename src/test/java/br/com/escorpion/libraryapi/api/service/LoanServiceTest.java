@@ -2,9 +2,20 @@ package br.com.escorpion.libraryapi.api.service;
 
 import br.com.escorpion.libraryapi.api.dto.LoanFilterDTO;
 import br.com.escorpion.libraryapi.api.model.entity.Book;
+import br.com.escorpion.libraryapi.api.model.entity.Customer;
+import br.com.escorpion.libraryapi.api.model.entity.HoldStatus;
 import br.com.escorpion.libraryapi.api.model.entity.Loan;
+import br.com.escorpion.libraryapi.api.model.entity.LoanEventType;
+import br.com.escorpion.libraryapi.api.model.entity.LoanHold;
+import br.com.escorpion.libraryapi.api.model.entity.OutboxEvent;
+import br.com.escorpion.libraryapi.api.repository.BookRepository;
+import br.com.escorpion.libraryapi.api.repository.LoanHoldRepository;
 import br.com.escorpion.libraryapi.api.repository.LoanRepository;
+import br.com.escorpion.libraryapi.api.repository.OutboxEventRepository;
 import br.com.escorpion.libraryapi.api.service.impl.LoanServiceImpl;
+import br.com.escorpion.libraryapi.api.service.support.LoanHoldQueues;
+import br.com.escorpion.libraryapi.api.service.support.LoanPolicy;
+import br.com.escorpion.libraryapi.api.service.support.ReminderPolicy;
 import br.com.escorpion.libraryapi.exception.BusinessException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -15,6 +26,7 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.*;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -31,10 +43,21 @@ public class LoanServiceTest {
     LoanService loanService;
     @MockBean
     LoanRepository repository;
+    @MockBean
+    OutboxEventRepository outboxRepository;
+    @MockBean
+    LoanHoldRepository holdRepository;
+    LoanHoldQueues holdQueues;
+    @MockBean
+    BookRepository bookRepository;
 
     @BeforeEach
     public void setUp(){
-        loanService = new LoanServiceImpl(repository);
+        holdQueues = new LoanHoldQueues(holdRepository);
+        loanService = new LoanServiceImpl(repository, outboxRepository, new ReminderPolicy(new int[]{1, 3, 7}),
+                new LoanPolicy(4, new String[]{"reference:1"}), holdRepository, holdQueues, bookRepository,
+                mock(PlatformTransactionManager.class));
+        when(bookRepository.checkout(1L)).thenReturn(1);
     }
 
     private Book createBook() {
@@ -72,7 +95,26 @@ public class LoanServiceTest {
         assertThat(loan.getLoanDate()).isEqualTo(savedLoan.getLoanDate());
         assertThat(loan.getBook()).isEqualTo(savedLoan.getBook());
         assertThat(loan.getCustomer()).isEqualTo(savedLoan.getCustomer());
+
+        verify(outboxRepository).save(Mockito.argThat((OutboxEvent event) ->
+                event.getType() == LoanEventType.CREATED && event.getLoanId().equals(1L)));
+        assertThat(savingLoan.getDueDate()).isEqualTo(LocalDate.now().plusDays(4));
+        assertThat(savingLoan.getNextReminderDate()).isEqualTo(LocalDate.now().plusDays(5));
     }
+    @Test
+    @DisplayName("Deve calcular o vencimento pelo prazo da categoria do livro")
+    public void saveLoanWithCategoryTest() {
+        Book book = createBook();
+        book.setCategory("Reference");
+        Loan savingLoan = createLoan(book);
+        when(repository.save(savingLoan)).thenReturn(savingLoan);
+
+        loanService.save(savingLoan);
+
+        assertThat(savingLoan.getDueDate()).isEqualTo(LocalDate.now().plusDays(1));
+        assertThat(savingLoan.getNextReminderDate()).isEqualTo(LocalDate.now().plusDays(2));
+    }
+
     @Test
     @DisplayName("Deve lançar erro de negócio ao salvar um empréstimo com livro já emprestado")
     public void loanedBookSaveTest(){
@@ -81,7 +123,7 @@ public class LoanServiceTest {
 
         Loan savingLoan = createLoan(book);
 
-        when(repository.existsByBookAndNotReturned(book)).thenReturn(true);
+        when(bookRepository.checkout(1L)).thenReturn(0);
 
         Throwable exception = catchThrowable(() -> loanService.save(savingLoan));
 
@@ -90,7 +132,25 @@ public class LoanServiceTest {
                 .isInstanceOf(BusinessException.class);
 
         verify(repository, never()).save(savingLoan);
+        verify(outboxRepository, never()).save(Mockito.any());
+
+    }
+
+    @Test
+    @DisplayName("Deve recusar o empréstimo de um livro com clientes na fila de espera")
+    public void heldBookSaveTest() {
+        Book book = createBook();
+        Loan savingLoan = createLoan(book);
+        when(holdRepository.existsByBookAndStatus(book, HoldStatus.WAITING)).thenReturn(true);
 
+        Throwable exception = catchThrowable(() -> loanService.save(savingLoan));
+
+        assertThat(exception)
+                .hasMessage("Book reserved for waiting customers")
+                .isInstanceOf(BusinessException.class);
+        verify(repository, never()).save(savingLoan);
+        // the copy taken for the check goes back, the transaction may still commit
+        verify(bookRepository).giveBack(1L);
     }
 
     @Test
@@ -124,6 +184,7 @@ public class LoanServiceTest {
         loan.setId(1L);
         loan.setReturned(true);
 
+        when(repository.markReturned(1L)).thenReturn(1);
         when(repository.save(loan)).thenReturn(loan);
 
         Loan updatedLoan = loanService.update(loan);
@@ -131,6 +192,158 @@ public class LoanServiceTest {
         assertThat(updatedLoan.isReturned()).isTrue();
 
         verify(repository).save(loan);
+        verify(bookRepository).giveBack(1L);
+        verify(outboxRepository).save(Mockito.argThat((OutboxEvent event) -> event.getType() == LoanEventType.RETURNED));
+    }
+
+    @Test
+    @DisplayName("Nao deve gerar evento ao atualizar um empréstimo já devolvido")
+    public void updateReturnedLoanTest(){
+        Loan loan = createLoan(createBook());
+        loan.setId(1L);
+        loan.setReturned(true);
+
+        // returned meanwhile by a concurrent request
+        when(repository.markReturned(1L)).thenReturn(0);
+        when(repository.save(loan)).thenReturn(loan);
+
+        loanService.update(loan);
+
+        verify(outboxRepository, never()).save(Mockito.any());
+        verify(bookRepository, never()).giveBack(Mockito.anyLong());
+    }
+
+    @Test
+    @DisplayName("Deve recusar reabrir um empréstimo devolvido")
+    public void reopenReturnedLoanTest(){
+        Loan loan = createLoan(createBook());
+        loan.setId(1L);
+        loan.setReturned(false);
+
+        when(repository.lockNotReturned(1L)).thenReturn(0);
+
+        Throwable exception = catchThrowable(() -> loanService.update(loan));
+
+        assertThat(exception).isInstanceOf(BusinessException.class).hasMessage("Loan already returned");
+        verify(repository, never()).save(loan);
+        verify(bookRepository, never()).checkout(Mockito.anyLong());
+    }
+
+    @Test
+    @DisplayName("Deve colocar o cliente na fila de espera de um livro emprestado")
+    public void holdTest() {
+        Book book = createBook();
+        Customer customer = Customer.builder().id(3L).name("Ciclano").email("ciclano@email.com").build();
+        when(holdRepository.save(Mockito.any(LoanHold.class))).thenAnswer(invocation -> {
+            LoanHold hold = invocation.getArgument(0);
+            hold.setId(5L);
+            return hold;
+        });
+        when(bookRepository.lockUnavailable(1L)).thenReturn(1);
+
+        LoanHold hold = loanService.hold(book, customer);
+
+        assertThat(hold.getStatus()).isEqualTo(HoldStatus.WAITING);
+        assertThat(hold.getCustomerEmail()).isEqualTo("ciclano@email.com");
+        assertThat(holdQueues.poll(1L)).hasValue(5L);
+    }
+
+    @Test
+    @DisplayName("Deve emprestar ao cliente da fila a cópia devolvida enquanto a espera era registrada")
+    public void holdHandsOverReturnedCopyTest() {
+        Book book = createBook();
+        Customer customer = Customer.builder().id(3L).name("Ciclano").email("ciclano@email.com").build();
+        when(holdRepository.save(Mockito.any(LoanHold.class))).thenAnswer(invocation -> {
+            LoanHold hold = invocation.getArgument(0);
+            hold.setId(5L);
+            return hold;
+        });
+        when(bookRepository.lockUnavailable(1L)).thenReturn(1);
+        // a copy came back before the hold was visible to the return
+        when(bookRepository.findAvailableById(1L)).thenReturn(1);
+        when(holdRepository.findById(5L)).thenAnswer(invocation -> Optional.of(
+                LoanHold.builder().id(5L).book(book).borrower(customer).customer("Ciclano")
+                        .status(HoldStatus.WAITING).build()));
+        when(holdRepository.claim(Mockito.eq(5L), Mockito.eq(HoldStatus.WAITING), Mockito.eq(HoldStatus.FULFILLED),
+                Mockito.any())).thenReturn(1);
+        when(repository.save(Mockito.any(Loan.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        loanService.hold(book, customer);
+
+        verify(bookRepository).checkout(1L);
+        verify(repository).save(Mockito.argThat((Loan saving) -> saving.getBorrower() == customer));
+        assertThat(holdQueues.size(1L)).isZero();
+    }
+
+    @Test
+    @DisplayName("Deve recusar a fila de espera de um livro disponivel ou ja aguardado pelo cliente")
+    public void holdInvalidTest() {
+        Book book = createBook();
+        Customer customer = Customer.builder().id(3L).name("Ciclano").email("ciclano@email.com").build();
+        when(bookRepository.lockUnavailable(1L)).thenReturn(0);
+
+        assertThat(catchThrowable(() -> loanService.hold(book, customer)))
+                .isInstanceOf(BusinessException.class).hasMessage("Book available for loan");
+
+        when(bookRepository.lockUnavailable(1L)).thenReturn(1);
+        when(holdRepository.existsByBookAndBorrowerAndStatus(book, customer, HoldStatus.WAITING)).thenReturn(true);
+        assertThat(catchThrowable(() -> loanService.hold(book, customer)))
+                .isInstanceOf(BusinessException.class).hasMessage("Customer already waiting for this book");
+
+        verify(holdRepository, never()).save(Mockito.any());
+    }
+
+    @Test
+    @DisplayName("Deve emprestar o livro devolvido ao primeiro da fila que ainda aguarda")
+    public void returnHandsOverToHoldTest() {
+        Book book = createBook();
+        Customer customer = Customer.builder().id(3L).name("Ciclano").email("ciclano@email.com").build();
+        LoanHold taken = LoanHold.builder().id(5L).book(book).status(HoldStatus.FULFILLED).build();
+        LoanHold waiting = LoanHold.builder().id(6L).book(book).borrower(customer)
+                .customer("Ciclano").customerEmail("ciclano@email.com").status(HoldStatus.WAITING).build();
+        holdQueues.add(1L, 5L);
+        holdQueues.add(1L, 6L);
+        when(bookRepository.giveBack(1L)).thenReturn(1);
+        when(holdRepository.findById(5L)).thenReturn(Optional.of(taken));
+        when(holdRepository.findById(6L)).thenReturn(Optional.of(waiting));
+        // the first hold was served by another replica
+        when(holdRepository.claim(Mockito.eq(6L), Mockito.eq(HoldStatus.WAITING), Mockito.eq(HoldStatus.FULFILLED),
+                Mockito.any())).thenReturn(1);
+        when(repository.save(Mockito.any(Loan.class))).thenAnswer(invocation -> {
+            Loan saving = invocation.getArgument(0);
+            if (saving.getId() == null) {
+                saving.setId(2L);
+            }
+            return saving;
+        });
+
+        Loan loan = createLoan(book);
+        loan.setId(1L);
+        loan.setReturned(true);
+        when(repository.markReturned(1L)).thenReturn(1);
+        loanService.update(loan);
+
+        assertThat(waiting.getStatus()).isEqualTo(HoldStatus.FULFILLED);
+        assertThat(waiting.getLoanId()).isEqualTo(2L);
+        verify(repository).save(Mockito.argThat((Loan saving) -> saving != loan
+                && saving.getBorrower() == customer && saving.getLoanDate().equals(LocalDate.now())));
+        verify(outboxRepository).save(Mockito.argThat((OutboxEvent event) ->
+                event.getType() == LoanEventType.CREATED && event.getLoanId().equals(2L)));
+        verify(holdRepository, never()).findFirstByBookAndStatusOrderByIdAsc(book, HoldStatus.WAITING);
+        assertThat(holdQueues.size(1L)).isZero();
+    }
+
+    @Test
+    @DisplayName("Deve recusar ordenação no histórico completo")
+    public void sortedHistoryTest() {
+        LoanFilterDTO filter = LoanFilterDTO.builder().customer("Fulano").fullHistory(true).build();
+
+        Throwable exception = catchThrowable(() ->
+                loanService.find(filter, PageRequest.of(0, 10, Sort.by("loanDate"))));
+
+        assertThat(exception).isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Ordenação não suportada com fullHistory");
+        verify(repository, never()).findHistoryByBookIsbnOrCustomer(Mockito.any(), Mockito.any(), Mockito.any());
     }
 
     @Test
@@ -0,0 +1,107 @@
+package br.com.escorpion.libraryapi.api.service.support;
+
+import br.com.escorpion.libraryapi.api.model.entity.Book;
+import br.com.escorpion.libraryapi.api.repository.BookRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.actuate.health.Status;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.*;
+
+public class BookCacheWarmerTest {
+
+    @TempDir
+    Path directory;
+
+    BookRepository repository = mock(BookRepository.class);
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    BookCache cache;
+    BookCacheWarmer warmer;
+
+    @BeforeEach
+    public void setUp() {
+        cache = new BookCache(meterRegistry, 100, 300);
+        warmer = new BookCacheWarmer(repository, cache, meterRegistry, true,
+                directory.resolve("hot-books.snapshot").toString(), 10, 2, 2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        warmer.shutdown();
+    }
+
+    @Test
+    @DisplayName("Deve gravar os livros mais acessados e carrega-los em paralelo na inicializacao")
+    @SuppressWarnings("unchecked")
+    public void snapshotRoundTripTest() throws Exception {
+        warmer.start().join();
+        for (long id = 1; id <= 5; id++) {
+            cache.put(book(id));
+            for (int hit = 0; hit < id; hit++) {
+                cache.get(id);
+            }
+        }
+        warmer.writeSnapshot();
+
+        List<String> lines = Files.readAllLines(directory.resolve("hot-books.snapshot"));
+        assertThat(lines).startsWith("# id,isbn", "5,isbn-5", "4,isbn-4");
+
+        BookCache restarted = new BookCache(meterRegistry, 100, 300);
+        BookCacheWarmer next = new BookCacheWarmer(repository, restarted, meterRegistry, true,
+                directory.resolve("hot-books.snapshot").toString(), 10, 2, 2);
+        when(repository.findAllById(anyIterable())).thenAnswer(invocation -> {
+            Iterable<Long> ids = invocation.getArgument(0);
+            return ((List<Long>) ids).stream().map(this::book).collect(Collectors.toList());
+        });
+        BookCacheHealthIndicator health = new BookCacheHealthIndicator(next, restarted);
+        assertThat(health.health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+
+        assertThat(next.start().join()).isEqualTo(5);
+
+        verify(repository, times(3)).findAllById(anyIterable());
+        assertThat(restarted.get(3).map(Book::getIsbn)).contains("isbn-3");
+        assertThat(health.health().getStatus()).isEqualTo(Status.UP);
+        assertThat(health.health().getDetails()).containsEntry("entriesLoaded", 5);
+        next.shutdown();
+    }
+
+    @Test
+    @DisplayName("Deve iniciar frio e pronto quando nao existe snapshot")
+    public void missingSnapshotTest() {
+        assertThat(warmer.start().join()).isZero();
+
+        assertThat(warmer.isWarm()).isTrue();
+        verify(repository, never()).findAllById(anyIterable());
+    }
+
+    @Test
+    @DisplayName("Deve despejar a entrada menos acessada quando o cache enche")
+    public void evictionTest() {
+        BookCache small = new BookCache(meterRegistry, 3, 300);
+        for (long id = 1; id <= 3; id++) {
+            small.put(book(id));
+        }
+        small.get(1);
+        small.get(2);
+        small.put(book(4));
+
+        assertThat(small.size()).isEqualTo(3);
+        assertThat(small.hottest(3).stream().map(Book::getId)).containsAll(Arrays.asList(1L, 2L));
+    }
+
+    private Book book(long id) {
+        return Book.builder().id(id).title("Livro " + id).author("Autor").isbn("isbn-" + id).build();
+    }
+}
@@ -0,0 +1,78 @@
+package br.com.escorpion.libraryapi.api.service.support;
+
+import br.com.escorpion.libraryapi.api.repository.BookRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class BookIsbnFilterTest {
+
+    BookRepository repository = mock(BookRepository.class);
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    BookIsbnFilter filter;
+
+    @SuppressWarnings("unchecked")
+    Predicate<String> database = mock(Predicate.class);
+
+    @BeforeEach
+    public void setUp() {
+        filter = new BookIsbnFilter(repository, meterRegistry, 1000, 0.01);
+    }
+
+    @Test
+    @DisplayName("Deve consultar o banco enquanto o filtro nao foi construido")
+    public void delegatesBeforeBuildTest() {
+        when(database.test("123")).thenReturn(true);
+
+        assertThat(filter.exists("123", database)).isTrue();
+        verify(database).test("123");
+    }
+
+    @Test
+    @DisplayName("Nao deve consultar o banco quando o filtro descarta o isbn")
+    public void skipsDatabaseForDefiniteNoTest() {
+        when(repository.streamAllIsbns()).thenReturn(Stream.of("123", "456"));
+        filter.rebuild();
+
+        assertThat(filter.exists("999", database)).isFalse();
+        verify(database, never()).test(anyString());
+
+        when(database.test("123")).thenReturn(true);
+        assertThat(filter.exists("123", database)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Deve reconhecer isbns adicionados depois da construcao")
+    public void putAfterBuildTest() {
+        when(repository.streamAllIsbns()).thenReturn(Stream.empty());
+        filter.rebuild();
+        filter.put("789");
+        when(database.test("789")).thenReturn(true);
+
+        assertThat(filter.exists("789", database)).isTrue();
+        verify(database).test("789");
+    }
+
+    @Test
+    @DisplayName("Deve manter a taxa de falsos positivos proxima da configurada")
+    public void falsePositiveRateTest() {
+        when(repository.streamAllIsbns()).thenReturn(IntStream.range(0, 1000).mapToObj(i -> "isbn-" + i));
+        filter.rebuild();
+        when(database.test(anyString())).thenReturn(false);
+
+        IntStream.range(0, 10_000).forEach(i -> filter.exists("other-" + i, database));
+
+        assertThat(filter.observedFalsePositiveRate()).isLessThan(0.03);
+        assertThat(filter.expectedFalsePositiveRate()).isBetween(0.001, 0.02);
+        assertThat(meterRegistry.get("library.books.isbn_filter.false_positive_rate").gauge().value())
+                .isEqualTo(filter.observedFalsePositiveRate());
+    }
+}
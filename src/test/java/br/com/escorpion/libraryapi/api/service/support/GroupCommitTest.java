@@ -0,0 +1,119 @@
+package br.com.escorpion.libraryapi.api.service.support;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class GroupCommitTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(10);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final AtomicInteger transactions = new AtomicInteger();
+    private GroupCommit groupCommit;
+
+    @BeforeEach
+    public void setUp() {
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> {
+            transactions.incrementAndGet();
+            return new SimpleTransactionStatus();
+        });
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+        groupCommit.close();
+    }
+
+    @Test
+    @DisplayName("Deve aplicar as escritas que chegam durante uma transacao na mesma transacao seguinte")
+    public void batchesConcurrentWritesTest() throws Exception {
+        groupCommit = new GroupCommit("test", new TransactionTemplate(transactionManager), 64, 20, 100,
+                new SimpleMeterRegistry());
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<Integer> first = executor.submit(() -> groupCommit.execute(() -> {
+            await(release);
+            return 0;
+        }));
+        List<Future<Integer>> others = new ArrayList<>();
+        for (int i = 1; i < 10; i++) {
+            int value = i;
+            others.add(executor.submit(() -> groupCommit.execute(() -> value)));
+        }
+        Thread.sleep(200);
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isZero();
+        for (int i = 1; i < 10; i++) {
+            assertThat(others.get(i - 1).get(5, TimeUnit.SECONDS)).isEqualTo(i);
+        }
+        assertThat(transactions.get()).isLessThanOrEqualTo(3);
+        verify(transactionManager, never()).rollback(any());
+    }
+
+    @Test
+    @DisplayName("Deve refazer o lote uma escrita por vez quando uma delas falha")
+    public void failedWriteFallsBackTest() throws Exception {
+        groupCommit = new GroupCommit("test", new TransactionTemplate(transactionManager), 3, 2_000, 100,
+                new SimpleMeterRegistry());
+
+        Future<String> ok = executor.submit(() -> groupCommit.execute(() -> "ok"));
+        Future<String> failing = executor.submit(() -> groupCommit.execute(() -> {
+            throw new IllegalStateException("Book already loaned");
+        }));
+        Future<String> other = executor.submit(() -> groupCommit.execute(() -> "outro"));
+
+        assertThat(ok.get(5, TimeUnit.SECONDS)).isEqualTo("ok");
+        assertThat(other.get(5, TimeUnit.SECONDS)).isEqualTo("outro");
+        Throwable exception = catchThrowable(() -> failing.get(5, TimeUnit.SECONDS));
+        assertThat(exception).isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(exception.getCause()).hasMessage("Book already loaned");
+
+        // the batch, then each write on its own
+        assertThat(transactions.get()).isEqualTo(4);
+        verify(transactionManager, times(2)).rollback(any());
+    }
+
+    @Test
+    @DisplayName("Deve aplicar no chamador as escritas que chegam depois do fechamento")
+    public void appliesOnCallerAfterCloseTest() throws Exception {
+        groupCommit = new GroupCommit("test", new TransactionTemplate(transactionManager), 64, 20, 100,
+                new SimpleMeterRegistry());
+        groupCommit.close();
+
+        Future<String> late = executor.submit(() -> groupCommit.execute(() -> Thread.currentThread().getName()));
+
+        assertThat(late.get(5, TimeUnit.SECONDS)).doesNotContain("group-commit");
+        assertThat(transactions.get()).isEqualTo(1);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package br.com.escorpion.libraryapi.api.service.support;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class IsbnTest {
+
+    @Test
+    @DisplayName("Deve converter isbn-10 e isbn-13 para a mesma chave")
+    public void canonicalKeyTest() {
+        long expected = 9780306406157L;
+
+        assertThat(Isbn.toKey("0-306-40615-2")).hasValue(expected);
+        assertThat(Isbn.toKey("978-0-306-40615-7")).hasValue(expected);
+        assertThat(Isbn.toKey("9780306406157")).hasValue(expected);
+        assertThat(Isbn.toKey("080442957X")).hasValue(9780804429573L);
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar isbn com digito verificador invalido")
+    public void invalidChecksumTest() {
+        assertThatThrownBy(() -> Isbn.toKey("978-0-306-40615-8"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Isbn inválido");
+        assertThat(Isbn.parse("978-0-306-40615-8")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Deve manter identificadores livres sem chave")
+    public void freeFormTest() {
+        assertThat(Isbn.toKey("1213")).isEmpty();
+        assertThat(Isbn.toKey(null)).isEmpty();
+        assertThat(Isbn.normalize("abc-123")).isEqualTo("abc-123");
+        assertThat(Isbn.normalize("0-306-40615-2")).isEqualTo("9780306406157");
+    }
+}
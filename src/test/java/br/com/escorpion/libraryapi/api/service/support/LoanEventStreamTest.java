@@ -0,0 +1,155 @@
+package br.com.escorpion.libraryapi.api.service.support;
+
+import br.com.escorpion.libraryapi.api.dto.LoanEventDTO;
+import br.com.escorpion.libraryapi.api.model.entity.LoanEventType;
+import br.com.escorpion.libraryapi.api.model.entity.OutboxEvent;
+import br.com.escorpion.libraryapi.api.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class LoanEventStreamTest {
+
+    OutboxEventRepository repository = mock(OutboxEventRepository.class);
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    List<Runnable> pending = new ArrayList<>();
+    Executor deferred = pending::add;
+
+    /**
+     * Records what would be written to the client: event ids, or "dropped" notices, and the
+     * SSE ids the client would resume from.
+     */
+    static class RecordingEmitter extends SseEmitter {
+
+        static final Pattern SSE_ID = Pattern.compile("^id:(\\d+)$", Pattern.MULTILINE);
+
+        final List<String> sent = new ArrayList<>();
+        final List<String> positions = new ArrayList<>();
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            builder.build().forEach(part -> {
+                Object data = part.getData();
+                if (data instanceof LoanEventDTO) {
+                    sent.add(String.valueOf(((LoanEventDTO) data).getId()));
+                } else if (data instanceof Map) {
+                    sent.add("dropped");
+                } else if (data instanceof String) {
+                    Matcher id = SSE_ID.matcher((String) data);
+                    if (id.find()) {
+                        positions.add(id.group(1));
+                    }
+                }
+            });
+        }
+    }
+
+    private OutboxEvent event(long id) {
+        return OutboxEvent.builder().id(id).type(LoanEventType.CREATED).loanId(id).build();
+    }
+
+    private LoanEventStream stream(Executor executor, int bufferSize) {
+        return new LoanEventStream(repository, meterRegistry, executor, bufferSize, 10, 0, 10_000);
+    }
+
+    private void runPending() {
+        List<Runnable> tasks = new ArrayList<>(pending);
+        pending.clear();
+        tasks.forEach(Runnable::run);
+    }
+
+    @Test
+    @DisplayName("Deve entregar os eventos aos assinantes na ordem")
+    public void deliversInOrderTest() {
+        when(repository.findAfter(eq(0L), any(Pageable.class))).thenReturn(List.of(event(1), event(2)));
+        LoanEventStream stream = stream(Runnable::run, 8);
+        RecordingEmitter emitter = new RecordingEmitter();
+        stream.subscribe(emitter, null);
+
+        stream.poll();
+
+        assertThat(emitter.sent).containsExactly("1", "2");
+        assertThat(emitter.positions).containsExactly("1", "2");
+    }
+
+    @Test
+    @DisplayName("Deve descartar os eventos mais antigos e avisar o cliente lento")
+    public void dropsOldestForSlowSubscriberTest() {
+        when(repository.findAfter(eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(event(1), event(2), event(3), event(4), event(5)));
+        LoanEventStream stream = stream(deferred, 2);
+        RecordingEmitter emitter = new RecordingEmitter();
+        stream.subscribe(emitter, null);
+
+        stream.poll();
+        runPending();
+
+        assertThat(emitter.sent).containsExactly("dropped", "4", "5");
+        // resuming has to start below the first event lost
+        assertThat(emitter.positions).containsExactly("0", "0");
+        assertThat(meterRegistry.counter("library.loans.stream.dropped").count()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Deve reenviar os eventos perdidos a partir do Last-Event-ID sem duplicar")
+    public void resumesFromLastEventIdTest() {
+        when(repository.findMaxId()).thenReturn(5L);
+        when(repository.findBetween(eq(3L), eq(5L), any(Pageable.class))).thenReturn(List.of(event(4), event(5)));
+        when(repository.findAfter(eq(5L), any(Pageable.class))).thenReturn(List.of(event(6)));
+        LoanEventStream stream = stream(Runnable::run, 8);
+        RecordingEmitter emitter = new RecordingEmitter();
+
+        stream.subscribe(emitter, 3L);
+        stream.poll();
+
+        assertThat(emitter.sent).containsExactly("4", "5", "6");
+    }
+
+    @Test
+    @DisplayName("Deve entregar o evento que confirma depois de um id maior sem avancar a posicao de retomada")
+    public void deliversLateCommitTest() {
+        when(repository.findAfter(eq(0L), any(Pageable.class))).thenReturn(List.of(event(1), event(3)));
+        when(repository.findAllById(List.of(2L))).thenReturn(List.of(event(2)));
+        LoanEventStream stream = stream(Runnable::run, 8);
+        RecordingEmitter emitter = new RecordingEmitter();
+        stream.subscribe(emitter, null);
+
+        stream.poll();
+        stream.poll();
+
+        assertThat(emitter.sent).containsExactly("1", "3", "2");
+        assertThat(emitter.positions).containsExactly("1", "1", "3");
+    }
+
+    @Test
+    @DisplayName("Deve reenviar acima de uma lacuna sem repetir quando a lacuna confirma")
+    public void resumesAcrossGapTest() {
+        when(repository.findAfter(eq(0L), any(Pageable.class))).thenReturn(List.of(event(1), event(3)));
+        LoanEventStream stream = stream(Runnable::run, 8);
+        stream.poll();
+
+        when(repository.findBetween(eq(1L), eq(3L), any(Pageable.class))).thenReturn(List.of(event(3)));
+        RecordingEmitter emitter = new RecordingEmitter();
+        stream.subscribe(emitter, 1L);
+        when(repository.findAllById(List.of(2L))).thenReturn(List.of(event(2)));
+        stream.poll();
+
+        assertThat(emitter.sent).containsExactly("3", "2");
+        assertThat(emitter.positions).containsExactly("1", "3");
+    }
+}
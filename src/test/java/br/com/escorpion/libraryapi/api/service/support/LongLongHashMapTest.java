@@ -0,0 +1,53 @@
+package br.com.escorpion.libraryapi.api.service.support;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LongLongHashMapTest {
+
+    @Test
+    @DisplayName("Deve inserir, sobrescrever e remover chaves")
+    public void putGetRemoveTest() {
+        LongLongHashMap map = new LongLongHashMap(4);
+
+        map.put(9780306406157L, 1L);
+        map.put(9780306406157L, 2L);
+
+        assertThat(map.get(9780306406157L)).isEqualTo(2L);
+        assertThat(map.size()).isEqualTo(1);
+
+        map.remove(9780306406157L);
+        assertThat(map.get(9780306406157L)).isEqualTo(LongLongHashMap.MISSING);
+        assertThat(map.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("Deve se comportar como um HashMap sob insercoes e remocoes aleatorias")
+    public void matchesHashMapTest() {
+        LongLongHashMap map = new LongLongHashMap(16);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 50_000; i++) {
+            long key = 1 + random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                map.remove(key);
+                expected.remove(key);
+            } else {
+                map.put(key, i);
+                expected.put(key, (long) i);
+            }
+        }
+
+        assertThat(map.size()).isEqualTo(expected.size());
+        for (long key = 1; key <= 5_000; key++) {
+            assertThat(map.get(key)).isEqualTo(expected.getOrDefault(key, LongLongHashMap.MISSING));
+        }
+    }
+}
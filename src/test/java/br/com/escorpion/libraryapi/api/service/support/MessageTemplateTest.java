@@ -0,0 +1,25 @@
+package br.com.escorpion.libraryapi.api.service.support;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class MessageTemplateTest {
+
+    @Test
+    @DisplayName("Deve substituir as variaveis na ordem declarada")
+    public void renderTest() {
+        MessageTemplate template = MessageTemplate.compile("{b} e {a}, {a}!", "a", "b");
+
+        assertThat(template.render("Fulano", 2)).isEqualTo("2 e Fulano, Fulano!");
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar variavel nao declarada ao compilar")
+    public void unknownVariableTest() {
+        assertThatThrownBy(() -> MessageTemplate.compile("Olá {nome}", "customer"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,136 @@
+package br.com.escorpion.libraryapi.api.service.support;
+
+import br.com.escorpion.libraryapi.api.model.entity.LoanEventType;
+import br.com.escorpion.libraryapi.api.model.entity.OutboxEvent;
+import br.com.escorpion.libraryapi.api.repository.OutboxEventRepository;
+import br.com.escorpion.libraryapi.api.service.LoanEventListener;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.OngoingStubbing;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class OutboxRelayTest {
+
+    OutboxEventRepository repository = mock(OutboxEventRepository.class);
+    LoanEventListener listener = mock(LoanEventListener.class);
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    OutboxRelay relay;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        ObjectProvider<LoanEventListener> listeners = mock(ObjectProvider.class);
+        when(listeners.orderedStream()).thenAnswer(invocation -> Stream.of(listener));
+        SchedulerCoordinator coordinator = mock(SchedulerCoordinator.class);
+        when(coordinator.getNodeId()).thenReturn("node-a");
+        relay = new OutboxRelay(repository, listeners, mock(PlatformTransactionManager.class), coordinator,
+                meterRegistry, 2, 10, 7, 30, 60);
+    }
+
+    private OutboxEvent event(long id) {
+        return OutboxEvent.builder().id(id).type(LoanEventType.CREATED).loanId(id).build();
+    }
+
+    /**
+     * Each poll finds and claims the next batch.
+     */
+    @SafeVarargs
+    private final void pending(List<OutboxEvent>... batches) {
+        OngoingStubbing<List<Long>> ids = when(repository.findPendingIds(eq(10), any(LocalDateTime.class),
+                any(Pageable.class)));
+        for (List<OutboxEvent> batch : batches) {
+            ids = ids.thenReturn(batch.stream().map(OutboxEvent::getId).collect(Collectors.toList()));
+        }
+        OngoingStubbing<Integer> claimed = when(repository.claim(anyList(), anyString(), any(LocalDateTime.class),
+                any(LocalDateTime.class)));
+        for (List<OutboxEvent> batch : batches) {
+            claimed = claimed.thenReturn(batch.size());
+        }
+        OngoingStubbing<List<OutboxEvent>> events = when(repository.findClaimed(anyString()));
+        for (List<OutboxEvent> batch : batches) {
+            events = events.thenReturn(batch);
+        }
+    }
+
+    @Test
+    @DisplayName("Deve entregar os eventos pendentes em lotes e marca-los como processados")
+    public void relaysInBatchesTest() {
+        pending(List.of(event(1), event(2)), List.of(event(3)));
+
+        relay.relay();
+
+        verify(listener, times(3)).onLoanEvent(any());
+        verify(repository).markProcessed(eq(List.of(1L, 2L)), any(LocalDateTime.class));
+        verify(repository).markProcessed(eq(List.of(3L)), any(LocalDateTime.class));
+    }
+
+    @Test
+    @DisplayName("Deve manter pendente e contar a tentativa quando o consumidor falha")
+    public void keepsFailedEventPendingTest() {
+        OutboxEvent failing = event(2);
+        pending(List.of(event(1), failing));
+        doThrow(new IllegalStateException("smtp down")).when(listener).onLoanEvent(failing);
+
+        relay.relay();
+
+        verify(repository).incrementAttempts(2L);
+        verify(repository).markProcessed(eq(List.of(1L)), any(LocalDateTime.class));
+        verify(repository, times(1)).findPendingIds(anyInt(), any(LocalDateTime.class), any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("Deve contar como dead letter o evento que esgota as tentativas")
+    public void deadLettersExhaustedEventTest() {
+        OutboxEvent failing = OutboxEvent.builder().id(1L).type(LoanEventType.CREATED).loanId(1L).attempts(9).build();
+        pending(List.of(failing));
+        doThrow(new IllegalStateException("smtp down")).when(listener).onLoanEvent(failing);
+        when(repository.countDead(10)).thenReturn(1L);
+
+        relay.relay();
+
+        verify(repository).incrementAttempts(1L);
+        assertThat(meterRegistry.get("library.outbox.events").tag("outcome", "dead_lettered").counter().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("library.outbox.dead_letters").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve entregar apenas os eventos que o lote conseguiu reservar")
+    public void skipsEventsClaimedElsewhereTest() {
+        when(repository.findPendingIds(eq(10), any(LocalDateTime.class), any(Pageable.class)))
+                .thenReturn(List.of(1L, 2L));
+        // another node claimed both between the read and the claim
+        when(repository.claim(eq(List.of(1L, 2L)), startsWith("node-a#"), any(LocalDateTime.class),
+                any(LocalDateTime.class))).thenReturn(0);
+
+        relay.relay();
+
+        verify(repository, never()).findClaimed(anyString());
+        verify(listener, never()).onLoanEvent(any());
+        verify(repository, never()).markProcessed(anyList(), any(LocalDateTime.class));
+    }
+
+    @Test
+    @DisplayName("Deve remover os dead letters mais antigos que a retencao")
+    public void purgesDeadLettersTest() {
+        relay.purgeProcessed();
+
+        verify(repository).deleteProcessedBefore(any(LocalDateTime.class));
+        verify(repository).deleteDeadBefore(eq(10), any(LocalDateTime.class));
+        verify(repository).countDead(10);
+    }
+}
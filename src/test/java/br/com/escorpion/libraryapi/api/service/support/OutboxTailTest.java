@@ -0,0 +1,51 @@
+package br.com.escorpion.libraryapi.api.service.support;
+
+import br.com.escorpion.libraryapi.api.model.entity.LoanEventType;
+import br.com.escorpion.libraryapi.api.model.entity.OutboxEvent;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OutboxTailTest {
+
+    private OutboxEvent event(long id) {
+        return OutboxEvent.builder().id(id).type(LoanEventType.CREATED).loanId(id).build();
+    }
+
+    @Test
+    @DisplayName("Deve segurar a posicao de retomada abaixo de um id que ainda nao confirmou")
+    public void holdsLowWaterBelowGapTest() {
+        OutboxTail tail = new OutboxTail(10, 1_000);
+
+        List<OutboxEvent> read = tail.advance(List.of(), List.of(event(11), event(13), event(14)), 0);
+
+        assertThat(read).extracting(OutboxEvent::getId).containsExactly(11L, 13L, 14L);
+        assertThat(tail.gaps()).containsExactly(12L);
+        assertThat(tail.highest()).isEqualTo(14);
+        assertThat(tail.lowWater()).isEqualTo(11);
+
+        read = tail.advance(List.of(event(12)), List.of(event(15)), 1);
+
+        assertThat(read).extracting(OutboxEvent::getId).containsExactly(12L, 15L);
+        assertThat(tail.gaps()).isEmpty();
+        assertThat(tail.lowWater()).isEqualTo(15);
+    }
+
+    @Test
+    @DisplayName("Deve desistir de uma lacuna depois do prazo de confirmacao")
+    public void abandonsGapAfterGraceTest() {
+        OutboxTail tail = new OutboxTail(0, 1_000);
+        tail.advance(List.of(), List.of(event(2)), 0);
+
+        tail.advance(List.of(), List.of(), TimeUnit.MILLISECONDS.toNanos(500));
+        assertThat(tail.lowWater()).isZero();
+
+        tail.advance(List.of(), List.of(), TimeUnit.MILLISECONDS.toNanos(1_500));
+        assertThat(tail.gaps()).isEmpty();
+        assertThat(tail.lowWater()).isEqualTo(2);
+    }
+}
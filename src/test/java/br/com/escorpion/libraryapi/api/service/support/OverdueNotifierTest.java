@@ -0,0 +1,87 @@
+package br.com.escorpion.libraryapi.api.service.support;
+
+import br.com.escorpion.libraryapi.api.repository.LoanRepository;
+import br.com.escorpion.libraryapi.api.service.EmailService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class OverdueNotifierTest {
+
+    LoanRepository repository = mock(LoanRepository.class);
+    EmailService emailService = mock(EmailService.class);
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    OverdueNotifier notifier;
+
+    LocalDate today = LocalDate.of(2020, 3, 10);
+
+    @BeforeEach
+    public void setUp() {
+        notifier = new OverdueNotifier(repository, emailService, mock(PlatformTransactionManager.class), meterRegistry,
+                "{customer}: {count}\n{loans}", "{title} +{daysLate}", new ReminderPolicy(new int[]{1, 3, 7}), 2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        notifier.shutdown();
+    }
+
+    @Test
+    @DisplayName("Deve enviar uma mensagem por cliente com os livros atrasados")
+    public void notifyPerCustomerTest() {
+        when(repository.streamDueReminders(today, 1, 0)).thenReturn(Stream.of(
+                new OverdueLoan(1L, "a@email.com", "Fulano", "Livro A", LocalDate.of(2020, 3, 1), LocalDate.of(2020, 3, 5), 0),
+                new OverdueLoan(2L, "a@email.com", "Fulano", "Livro B", LocalDate.of(2020, 3, 5), LocalDate.of(2020, 3, 9), 0),
+                new OverdueLoan(3L, "b@email.com", "Ciclano", "Livro C", LocalDate.of(2020, 3, 6), LocalDate.of(2020, 3, 10), 0)));
+
+        long sent = notifier.notifyOverdue(today);
+
+        assertThat(sent).isEqualTo(2);
+        verify(emailService).sendEmail("a@email.com", "Fulano: 2\nLivro A +5\nLivro B +1\n");
+        verify(emailService).sendEmail("b@email.com", "Ciclano: 1\nLivro C +0\n");
+        assertThat(meterRegistry.timer("library.mail.overdue.render").count()).isEqualTo(2);
+        verify(repository).markReminded(eq(1L), eq(0), any(), eq(LocalDate.of(2020, 3, 8)));
+        verify(repository).markReminded(eq(3L), eq(0), any(), eq(LocalDate.of(2020, 3, 13)));
+    }
+
+    @Test
+    @DisplayName("Deve continuar enviando quando uma mensagem falha")
+    public void continuesAfterFailureTest() {
+        when(repository.streamDueReminders(any(), anyInt(), anyInt())).thenReturn(Stream.of(
+                new OverdueLoan(4L, "a@email.com", "Fulano", "Livro A", LocalDate.of(2020, 3, 1), LocalDate.of(2020, 3, 5), 0),
+                new OverdueLoan(5L, "b@email.com", "Ciclano", "Livro C", LocalDate.of(2020, 3, 1), LocalDate.of(2020, 3, 5), 0)));
+        doThrow(new IllegalStateException("smtp down")).when(emailService).sendEmail(eq("a@email.com"), anyString());
+
+        long sent = notifier.notifyOverdue(today);
+
+        assertThat(sent).isEqualTo(1);
+        verify(emailService).sendEmail(eq("b@email.com"), anyString());
+        verify(repository, never()).markReminded(eq(4L), anyInt(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Deve notificar apenas os clientes da particao do no")
+    public void notifyPartitionTest() {
+        when(repository.streamDueReminders(today, 2, 0)).thenReturn(Stream.of(
+                new OverdueLoan(6L, "a@email.com", "Fulano", "Livro A", LocalDate.of(2020, 3, 1), LocalDate.of(2020, 3, 5), 0)));
+        when(repository.streamDueReminders(today, 2, 1)).thenReturn(Stream.of(
+                new OverdueLoan(7L, "b@email.com", "Ciclano", "Livro C", LocalDate.of(2020, 3, 1), LocalDate.of(2020, 3, 5), 0)));
+
+        long first = notifier.notifyOverdue(today, new Partition(0, 2));
+        long second = notifier.notifyOverdue(today, new Partition(1, 2));
+
+        assertThat(first).isEqualTo(1);
+        assertThat(second).isEqualTo(1);
+        verify(emailService, times(1)).sendEmail(eq("a@email.com"), anyString());
+        verify(emailService, times(1)).sendEmail(eq("b@email.com"), anyString());
+    }
+}
@@ -0,0 +1,97 @@
+package br.com.escorpion.libraryapi.api.service.support;
+
+import br.com.escorpion.libraryapi.LibraryApiApplication;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two application contexts sharing one H2 database stand in for two replicas.
+ */
+public class SchedulerCoordinatorClusterTest {
+
+    ConfigurableApplicationContext nodeA;
+    ConfigurableApplicationContext nodeB;
+
+    @BeforeEach
+    public void setUp() {
+        nodeA = start("node-a");
+        nodeB = start("node-b");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (nodeA.isActive()) {
+            nodeA.close();
+        }
+        nodeB.close();
+    }
+
+    private ConfigurableApplicationContext start(String nodeId) {
+        return new SpringApplicationBuilder(LibraryApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:scheduler-cluster;DB_CLOSE_DELAY=-1",
+                        "spring.jpa.hibernate.ddl-auto=update",
+                        "spring.jmx.enabled=false",
+                        "spring.boot.admin.client.enabled=false",
+                        "application.startup.test-mail.enabled=false",
+                        "application.swagger.enabled=false",
+                        "application.scheduler.node-id=" + nodeId)
+                .run();
+    }
+
+    @Test
+    @DisplayName("Deve executar o job em apenas um dos nos")
+    public void runsOnSingleNodeTest() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        Callable<Boolean> attemptA = () -> {
+            barrier.await();
+            return nodeA.getBean(SchedulerCoordinator.class).runExclusively("test-job", runs::incrementAndGet);
+        };
+        Callable<Boolean> attemptB = () -> {
+            barrier.await();
+            return nodeB.getBean(SchedulerCoordinator.class).runExclusively("test-job", runs::incrementAndGet);
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Boolean> a = executor.submit(attemptA);
+            Future<Boolean> b = executor.submit(attemptB);
+            assertThat(a.get(10, TimeUnit.SECONDS) ^ b.get(10, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(runs).hasValue(1);
+
+        assertThat(nodeA.getBean(SchedulerCoordinator.class).runExclusively("test-job", runs::incrementAndGet)).isFalse();
+        assertThat(nodeB.getBean(SchedulerCoordinator.class).runExclusively("test-job", runs::incrementAndGet)).isFalse();
+        assertThat(runs).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("Deve dividir as particoes entre os nos vivos")
+    public void partitionsAmongLiveNodesTest() {
+        Partition a = nodeA.getBean(SchedulerCoordinator.class).partition().orElseThrow();
+        Partition b = nodeB.getBean(SchedulerCoordinator.class).partition().orElseThrow();
+
+        assertThat(a.getCount()).isEqualTo(2);
+        assertThat(b.getCount()).isEqualTo(2);
+        assertThat(a.getIndex()).isNotEqualTo(b.getIndex());
+
+        nodeA.close();
+
+        assertThat(nodeB.getBean(SchedulerCoordinator.class).partition()).hasValueSatisfying(partition ->
+                assertThat(partition.getCount()).isEqualTo(1));
+    }
+}
@@ -0,0 +1,85 @@
+package br.com.escorpion.libraryapi.api.service.support;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SingleFlightTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+    private final Counter saved = new SimpleMeterRegistry().counter("saved");
+    private final AtomicInteger loads = new AtomicInteger();
+    private final CountDownLatch loaderStarted = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    public void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Deve compartilhar uma unica carga entre chamadas concorrentes para a mesma chave")
+    public void coalescesConcurrentCallsTest() throws Exception {
+        SingleFlight<Long, String> singleFlight = new SingleFlight<>(5_000, saved);
+
+        Future<String> leader = executor.submit(() -> singleFlight.execute(1L, this::slowLoad));
+        loaderStarted.await(5, TimeUnit.SECONDS);
+
+        List<Future<String>> followers = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            followers.add(executor.submit(() -> singleFlight.execute(1L, this::slowLoad)));
+        }
+        Thread.sleep(200);
+        release.countDown();
+
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("livro");
+        for (Future<String> follower : followers) {
+            assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo("livro");
+        }
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(saved.count()).isEqualTo(5);
+    }
+
+    @Test
+    @DisplayName("Deve carregar por conta propria quando o tempo de espera expira")
+    public void fallsBackAfterTimeoutTest() throws Exception {
+        SingleFlight<Long, String> singleFlight = new SingleFlight<>(50, saved);
+
+        executor.submit(() -> singleFlight.execute(1L, this::slowLoad));
+        loaderStarted.await(5, TimeUnit.SECONDS);
+
+        String value = singleFlight.execute(1L, () -> {
+            loads.incrementAndGet();
+            return "direto";
+        });
+
+        assertThat(value).isEqualTo("direto");
+        assertThat(loads.get()).isEqualTo(2);
+        assertThat(saved.count()).isZero();
+    }
+
+    private String slowLoad() {
+        loads.incrementAndGet();
+        loaderStarted.countDown();
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "livro";
+    }
+}
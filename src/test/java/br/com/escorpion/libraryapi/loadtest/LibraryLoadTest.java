@@ -0,0 +1,169 @@
+package br.com.escorpion.libraryapi.loadtest;
+
+import br.com.escorpion.libraryapi.api.dto.BookDTO;
+import br.com.escorpion.libraryapi.api.dto.LoanDTO;
+import br.com.escorpion.libraryapi.api.dto.ReturnedLoanDTO;
+import br.com.escorpion.libraryapi.api.model.entity.Book;
+import br.com.escorpion.libraryapi.api.model.entity.Loan;
+import br.com.escorpion.libraryapi.api.repository.BookRepository;
+import br.com.escorpion.libraryapi.api.repository.LoanRepository;
+import br.com.escorpion.libraryapi.api.service.EmailService;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives a realistic request mix against the embedded Tomcat and gates on a p99 latency budget.
+ * Run with {@code mvn test -Pload-test}; tune with the system properties below, e.g.
+ * {@code -Dload.threads=32 -Dload.duration-seconds=60 -Dload.budget.p99-ms=200 -Dload.budget.search.p99-ms=100}.
+ */
+@Tag("load")
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"application.startup.test-mail.enabled=false", "application.admission.enabled=false"})
+public class LibraryLoadTest {
+
+    private static final int THREADS = Integer.getInteger("load.threads", 8);
+    private static final int DURATION_SECONDS = Integer.getInteger("load.duration-seconds", 30);
+    private static final int SEED_BOOKS = Integer.getInteger("load.seed-books", 2_000);
+    private static final long DEFAULT_P99_BUDGET_MS = Long.getLong("load.budget.p99-ms", 500);
+
+    @Autowired
+    TestRestTemplate rest;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    LoanRepository loanRepository;
+
+    @MockBean
+    EmailService emailService;
+
+    private final List<Long> bookIds = new ArrayList<>();
+    private final Queue<String> availableIsbns = new ConcurrentLinkedQueue<>();
+    private final Queue<Long> activeLoans = new ConcurrentLinkedQueue<>();
+    private final AtomicLong isbnSequence = new AtomicLong(9_000_000);
+
+    @BeforeEach
+    public void seed() {
+        List<Book> books = new ArrayList<>(SEED_BOOKS);
+        for (int i = 0; i < SEED_BOOKS; i++) {
+            books.add(Book.builder()
+                    .title("Livro " + i)
+                    .author("Autor " + (i % 100))
+                    .isbn(String.valueOf(1_000_000 + i))
+                    .build());
+        }
+        books = bookRepository.saveAll(books);
+
+        List<Loan> loans = new ArrayList<>();
+        for (int i = 0; i < books.size(); i++) {
+            Book book = books.get(i);
+            bookIds.add(book.getId());
+            if (i % 4 == 0) {
+                loans.add(Loan.builder()
+                        .book(book)
+                        .customer("Cliente " + i)
+                        .customerEmail("cliente" + i + "@email.com")
+                        .loanDate(LocalDate.now().minusDays(i % 10))
+                        .build());
+            } else {
+                availableIsbns.add(book.getIsbn());
+            }
+        }
+        loanRepository.saveAll(loans).forEach(loan -> activeLoans.add(loan.getId()));
+    }
+
+    @Test
+    @DisplayName("Deve atender a mistura de requisicoes dentro do orcamento de latencia")
+    public void loadMix() throws Exception {
+        LoadTestHarness harness = new LoadTestHarness()
+                .operation("create-book", 10, this::createBook)
+                .operation("create-loan", 20, this::createLoan)
+                .operation("return-loan", 15, this::returnLoan)
+                .operation("search", 35, this::search)
+                .operation("loans-by-book", 20, this::loansByBook);
+
+        LoadTestHarness.Result result = harness.run(THREADS, Duration.ofSeconds(DURATION_SECONDS));
+        System.out.print(result.report());
+
+        SoftAssertions softly = new SoftAssertions();
+        result.getStats().forEach((name, stats) -> {
+            long budget = Long.getLong("load.budget." + name + ".p99-ms", DEFAULT_P99_BUDGET_MS);
+            softly.assertThat(stats.getErrors()).as("%s server errors", name).isZero();
+            softly.assertThat(stats.percentileMillis(99)).as("%s p99 ms", name).isLessThanOrEqualTo((double) budget);
+        });
+        softly.assertAll();
+    }
+
+    private boolean createBook() {
+        BookDTO dto = BookDTO.builder()
+                .title("Novo Livro")
+                .author("Autor")
+                .isbn(String.valueOf(isbnSequence.incrementAndGet()))
+                .build();
+        return isNotServerError(rest.postForEntity("/api/books", dto, String.class));
+    }
+
+    private boolean createLoan() {
+        String isbn = availableIsbns.poll();
+        if (isbn == null) {
+            isbn = String.valueOf(1_000_000 + ThreadLocalRandom.current().nextInt(SEED_BOOKS));
+        }
+        LoanDTO dto = LoanDTO.builder()
+                .isbn(isbn)
+                .customer("Cliente")
+                .email("cliente@email.com")
+                .build();
+        ResponseEntity<Long> response = rest.postForEntity("/api/loans", dto, Long.class);
+        if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
+            activeLoans.add(response.getBody());
+        }
+        return isNotServerError(response);
+    }
+
+    private boolean returnLoan() {
+        Long loanId = activeLoans.poll();
+        if (loanId == null) {
+            return search();
+        }
+        ResponseEntity<String> response = rest.exchange("/api/loans/{id}", HttpMethod.PATCH,
+                new HttpEntity<>(new ReturnedLoanDTO(true)), String.class, loanId);
+        return isNotServerError(response);
+    }
+
+    private boolean search() {
+        int author = ThreadLocalRandom.current().nextInt(100);
+        return isNotServerError(rest.getForEntity("/api/books?author=Autor {author}&page=0&size=20", String.class, author));
+    }
+
+    private boolean loansByBook() {
+        Long bookId = bookIds.get(ThreadLocalRandom.current().nextInt(bookIds.size()));
+        return isNotServerError(rest.getForEntity("/api/books/{id}/loans?page=0&size=20", String.class, bookId));
+    }
+
+    private boolean isNotServerError(ResponseEntity<?> response) {
+        return !response.getStatusCode().is5xxServerError();
+    }
+}
@@ -0,0 +1,108 @@
+package br.com.escorpion.libraryapi.loadtest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Drives a weighted mix of operations from a fixed number of threads for a fixed duration
+ * and collects per-operation latency samples.
+ */
+public class LoadTestHarness {
+
+    /**
+     * A single request against the application. Returns {@code false} when the response
+     * is a server-side error that should count against the run.
+     */
+    @FunctionalInterface
+    public interface Operation {
+        boolean execute() throws Exception;
+    }
+
+    private final Map<String, Operation> operations = new LinkedHashMap<>();
+    private final Map<String, Integer> weights = new LinkedHashMap<>();
+    private int totalWeight;
+
+    public LoadTestHarness operation(String name, int weight, Operation operation) {
+        operations.put(name, operation);
+        weights.put(name, weight);
+        totalWeight += weight;
+        return this;
+    }
+
+    public Result run(int threads, Duration duration) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<Future<Map<String, LatencyStats>>> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            workers.add(executor.submit(() -> work(deadline)));
+        }
+
+        Map<String, LatencyStats> merged = new LinkedHashMap<>();
+        operations.keySet().forEach(name -> merged.put(name, new LatencyStats()));
+        for (Future<Map<String, LatencyStats>> worker : workers) {
+            worker.get().forEach((name, stats) -> merged.get(name).merge(stats));
+        }
+        executor.shutdown();
+        return new Result(merged, duration);
+    }
+
+    private Map<String, LatencyStats> work(long deadline) {
+        Map<String, LatencyStats> local = new LinkedHashMap<>();
+        operations.keySet().forEach(name -> local.put(name, new LatencyStats()));
+        while (System.nanoTime() < deadline) {
+            String name = pick();
+            long start = System.nanoTime();
+            boolean ok;
+            try {
+                ok = operations.get(name).execute();
+            } catch (Exception e) {
+                ok = false;
+            }
+            local.get(name).record(System.nanoTime() - start, !ok);
+        }
+        return local;
+    }
+
+    private String pick() {
+        int roll = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Map.Entry<String, Integer> entry : weights.entrySet()) {
+            roll -= entry.getValue();
+            if (roll < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("no operation registered");
+    }
+
+    public static class Result {
+
+        private final Map<String, LatencyStats> stats;
+        private final Duration duration;
+
+        Result(Map<String, LatencyStats> stats, Duration duration) {
+            this.stats = stats;
+            this.duration = duration;
+        }
+
+        public Map<String, LatencyStats> getStats() {
+            return stats;
+        }
+
+        public String report() {
+            StringBuilder report = new StringBuilder(String.format("%-16s %8s %8s %10s %9s %9s %9s%n",
+                    "endpoint", "requests", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms"));
+            double seconds = duration.toMillis() / 1000.0;
+            stats.forEach((name, s) -> report.append(String.format("%-16s %8d %8d %10.1f %9.2f %9.2f %9.2f%n",
+                    name, s.getCount(), s.getErrors(), s.getCount() / seconds,
+                    s.percentileMillis(50), s.percentileMillis(95), s.percentileMillis(99))));
+            return report.toString();
+        }
+    }
+}
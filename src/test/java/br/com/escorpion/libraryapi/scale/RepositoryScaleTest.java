@@ -0,0 +1,248 @@
+package br.com.escorpion.libraryapi.scale;
+
+import br.com.escorpion.libraryapi.api.model.entity.Book;
+import br.com.escorpion.libraryapi.api.model.entity.Customer;
+import br.com.escorpion.libraryapi.api.repository.BookRepository;
+import br.com.escorpion.libraryapi.api.repository.CustomerRepository;
+import br.com.escorpion.libraryapi.api.repository.LoanRepository;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs every {@link BookRepository} and {@link LoanRepository} query against millions of rows
+ * from {@link ScaleDataGenerator} and gates the median of a few runs on a latency ceiling,
+ * so a query that only looks fine on a handful of rows fails here.
+ * Run with {@code mvn test -Pscale-test}; tune with e.g. {@code -Dscale.books=200000
+ * -Dscale.loans=500000 -Dscale.budget.find-history-by-book-ms=100}, or print the medians
+ * without gating with {@code -Dscale.report-only=true}.
+ * <p>
+ * Ceilings are calibrated on a single core at the default sizes. The isbn-or-customer
+ * searches have loose ones on purpose: the {@code or} across the join rules out any index,
+ * so they scan all loans until the queries are rewritten.
+ */
+@Tag("scale")
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class RepositoryScaleTest {
+
+    private static final int BOOKS = Integer.getInteger("scale.books", 1_000_000);
+    private static final int CUSTOMERS = Integer.getInteger("scale.customers", 100_000);
+    private static final int LOANS = Integer.getInteger("scale.loans", 2_000_000);
+    private static final int ARCHIVED_LOANS = Integer.getInteger("scale.archived-loans", 200_000);
+    private static final long SEED = Long.getLong("scale.seed", 42);
+    private static final boolean REPORT_ONLY = Boolean.getBoolean("scale.report-only");
+    private static final int WARMUP_RUNS = 1;
+    private static final int MEASURED_RUNS = 3;
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    LoanRepository loanRepository;
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    /** Most borrowed title, a rarely borrowed one and the heaviest customer. */
+    private Book popularBook;
+    private Book rareBook;
+    private Customer topCustomer;
+
+    @BeforeAll
+    public void seed() {
+        Duration elapsed = new ScaleDataGenerator(jdbcTemplate)
+                .seed(SEED)
+                .books(BOOKS)
+                .customers(CUSTOMERS)
+                .loans(LOANS)
+                .archivedLoans(ARCHIVED_LOANS)
+                .generate(TODAY);
+        System.out.printf("Seeded %d books, %d customers, %d loans and %d archived loans in %d s%n",
+                BOOKS, CUSTOMERS, LOANS, ARCHIVED_LOANS, elapsed.getSeconds());
+
+        popularBook = bookRepository.findById(1L).get();
+        rareBook = bookRepository.findById((long) BOOKS).get();
+        topCustomer = customerRepository.findById(1L).get();
+    }
+
+    @Test
+    @DisplayName("Deve verificar e buscar livros por isbn dentro do teto de latencia")
+    public void bookByIsbnTest() {
+        String isbn = ScaleDataGenerator.isbn(BOOKS / 2);
+
+        assertThat(measure("exists-by-isbn", 50, () -> bookRepository.existsByIsbn(isbn))).isTrue();
+        assertThat(measure("find-by-isbn", 50, () -> bookRepository.findByIsbn(isbn))).isPresent();
+        assertThat(measure("exists-by-isbn-key", 50, () -> bookRepository.existsByIsbnKey(Long.parseLong(isbn))))
+                .isTrue();
+        assertThat(measure("find-by-isbn-key", 50, () -> bookRepository.findByIsbnKey(Long.parseLong(isbn))))
+                .isPresent();
+        assertThat(measure("find-book-by-id", 50, () -> bookRepository.findById((long) BOOKS / 2))).isPresent();
+    }
+
+    @Test
+    @DisplayName("Deve filtrar livros por exemplo dentro do teto de latencia")
+    public void bookSearchTest() {
+        Book filter = Book.builder().author("autor 1").build();
+        Example<Book> example = Example.of(filter, ExampleMatcher.matching()
+                .withIgnoreCase()
+                .withIgnoreNullValues()
+                .withStringMatcher(ExampleMatcher.StringMatcher.CONTAINING));
+
+        assertThat(measure("find-books-by-example", 3_000,
+                () -> bookRepository.findAll(example, PageRequest.of(0, 10)).getContent())).hasSize(10);
+    }
+
+    @Test
+    @DisplayName("Deve percorrer todos os isbns dentro do teto de latencia")
+    public void streamIsbnsTest() {
+        TransactionTemplate readOnly = readOnly();
+
+        long isbns = measure("stream-all-isbns", 20_000,
+                () -> readOnly.execute(status -> bookRepository.streamAllIsbns().count()));
+        long keys = measure("stream-isbn-keys", 20_000,
+                () -> readOnly.execute(status -> bookRepository.streamIsbnKeys().count()));
+
+        assertThat(isbns).isEqualTo(BOOKS);
+        assertThat(keys).isEqualTo(BOOKS);
+    }
+
+    @Test
+    @DisplayName("Deve consultar emprestimos do livro dentro do teto de latencia")
+    public void loansByBookTest() {
+        assertThat(measure("exists-by-book-and-not-returned", 500,
+                () -> loanRepository.existsByBookAndNotReturned(popularBook))).isTrue();
+        assertThat(measure("find-by-book", 250,
+                () -> loanRepository.findByBook(popularBook, PageRequest.of(0, 20)).getContent())).hasSize(20);
+        assertThat(measure("find-history-by-book", 1_000,
+                () -> loanRepository.findHistoryByBook(popularBook.getId(), PageRequest.of(0, 20)).getContent()))
+                .hasSize(20);
+        measure("find-history-by-rare-book", 50,
+                () -> loanRepository.findHistoryByBook(rareBook.getId(), PageRequest.of(0, 20)).getContent());
+    }
+
+    @Test
+    @DisplayName("Deve consultar emprestimos por isbn ou cliente dentro do teto de latencia")
+    public void loansByIsbnOrCustomerTest() {
+        String isbn = rareBook.getIsbn();
+        String customer = ScaleDataGenerator.customerName(CUSTOMERS);
+
+        measure("find-by-book-isbn-or-customer", 60_000,
+                () -> loanRepository.findByBookIsbnOrCustomer(isbn, customer, PageRequest.of(0, 20)).getContent());
+        measure("find-history-by-book-isbn-or-customer", 60_000,
+                () -> loanRepository.findHistoryByBookIsbnOrCustomer(isbn, customer, PageRequest.of(0, 20))
+                        .getContent());
+    }
+
+    @Test
+    @DisplayName("Deve paginar o historico do cliente mais ativo dentro do teto de latencia")
+    public void customerHistoryTest() {
+        assertThat(measure("find-history-by-customer-before", 200,
+                () -> loanRepository.findHistoryByCustomerBefore(topCustomer.getId(), Long.MAX_VALUE, 20)))
+                .hasSize(20);
+        assertThat(measure("find-history-by-customer-deep-page", 200,
+                () -> loanRepository.findHistoryByCustomerBefore(topCustomer.getId(), (long) LOANS / 10, 20)))
+                .hasSize(20);
+    }
+
+    @Test
+    @DisplayName("Deve selecionar emprestimos atrasados e lembretes devidos dentro do teto de latencia")
+    public void overdueTest() {
+        TransactionTemplate readOnly = readOnly();
+
+        assertThat(measure("find-by-loan-date-less-than-and-not-returned", 30_000,
+                () -> loanRepository.findByLoanDateLessThanAndNotReturned(TODAY.minusDays(4)))).isNotEmpty();
+        assertThat(measure("find-not-returned-due-up-to", 30_000,
+                () -> loanRepository.findNotReturnedDueUpTo(TODAY))).isNotEmpty();
+        assertThat(measure("find-not-returned-due-before", 1_000,
+                () -> loanRepository.findNotReturnedDueBefore(TODAY.plusDays(2), PageRequest.of(0, 20)))).isNotEmpty();
+        long dueReminders = measure("stream-due-reminders", 30_000,
+                () -> readOnly.execute(status -> loanRepository.streamDueReminders(TODAY, 1, 0).count()));
+        assertThat(dueReminders).isPositive();
+    }
+
+    @Test
+    @DisplayName("Deve selecionar, marcar e remover emprestimos dentro do teto de latencia")
+    public void maintenanceTest() {
+        List<Long> ids = measure("find-returned-ids-up-to", 200,
+                () -> loanRepository.findReturnedIdsUpTo(TODAY.minusDays(90), PageRequest.of(0, 500)));
+        assertThat(ids).hasSize(500);
+
+        TransactionTemplate write = new TransactionTemplate(transactionManager);
+        measure("mark-reminded", 100, () -> write.execute(status -> {
+            status.setRollbackOnly();
+            return loanRepository.markReminded(ids.get(0), 0, LocalDateTime.now(), TODAY.plusDays(3));
+        }));
+        measure("delete-by-ids", 500, () -> write.execute(status -> {
+            status.setRollbackOnly();
+            return loanRepository.deleteByIds(ids);
+        }));
+    }
+
+    private TransactionTemplate readOnly() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        return template;
+    }
+
+    /**
+     * Runs the query a few times and asserts the median is under the ceiling, overridable with
+     * {@code -Dscale.budget.<name>-ms}. Returns the last result.
+     */
+    private <T> T measure(String name, long defaultCeilingMs, Supplier<T> query) {
+        T result = null;
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            result = query.get();
+        }
+        long[] nanos = new long[MEASURED_RUNS];
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long start = System.nanoTime();
+            result = query.get();
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        double medianMs = nanos[MEASURED_RUNS / 2] / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        long ceilingMs = Long.getLong("scale.budget." + name + "-ms", defaultCeilingMs);
+        System.out.printf("%-45s median %8.2f ms (ceiling %d ms)%n", name, medianMs, ceilingMs);
+        if (!REPORT_ONLY) {
+            assertThat(medianMs).as("%s median ms", name).isLessThanOrEqualTo((double) ceilingMs);
+        }
+        return result;
+    }
+}
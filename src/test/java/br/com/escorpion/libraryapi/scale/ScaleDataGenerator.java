@@ -0,0 +1,199 @@
+package br.com.escorpion.libraryapi.scale;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Bulk-loads a deterministic library into the schema through JDBC batches, bypassing JPA.
+ * The same seed and sizes always produce the same rows, so a latency regression can be
+ * reproduced exactly.
+ * <p>
+ * Popularity is skewed: a loan picks book rank {@code n * u^3}, so about a fifth of the
+ * titles take well over half of the loans, and customers are skewed the same way with a
+ * square. Of the live loans {@code activeRatio} are still out, and {@code overdueRatio} of
+ * those are past the loan period with a reminder due.
+ */
+public class ScaleDataGenerator {
+
+    private static final int BATCH_SIZE = 5_000;
+    private static final int LOAN_DAYS = 4;
+
+    private final JdbcTemplate jdbcTemplate;
+    private long seed = 42;
+    private int books = 1_000_000;
+    private int customers = 100_000;
+    private int loans = 2_000_000;
+    private int archivedLoans = 200_000;
+    private double activeRatio = 0.2;
+    private double overdueRatio = 0.3;
+
+    public ScaleDataGenerator(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public ScaleDataGenerator seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public ScaleDataGenerator books(int books) {
+        this.books = books;
+        return this;
+    }
+
+    public ScaleDataGenerator customers(int customers) {
+        this.customers = customers;
+        return this;
+    }
+
+    public ScaleDataGenerator loans(int loans) {
+        this.loans = loans;
+        return this;
+    }
+
+    public ScaleDataGenerator archivedLoans(int archivedLoans) {
+        this.archivedLoans = archivedLoans;
+        return this;
+    }
+
+    public ScaleDataGenerator activeRatio(double activeRatio) {
+        this.activeRatio = activeRatio;
+        return this;
+    }
+
+    public ScaleDataGenerator overdueRatio(double overdueRatio) {
+        this.overdueRatio = overdueRatio;
+        return this;
+    }
+
+    public int getBooks() {
+        return books;
+    }
+
+    public int getCustomers() {
+        return customers;
+    }
+
+    /**
+     * Ids are assigned explicitly from 1, so book {@code n} has isbn {@link #isbn(long)} and
+     * customer {@code n} has email {@link #email(long)}.
+     */
+    public static String isbn(long bookId) {
+        String digits = "978" + String.format("%09d", bookId);
+        int sum = 0;
+        for (int i = 0; i < digits.length(); i++) {
+            sum += (digits.charAt(i) - '0') * (i % 2 == 0 ? 1 : 3);
+        }
+        return digits + (10 - sum % 10) % 10;
+    }
+
+    public static String email(long customerId) {
+        return "cliente" + customerId + "@email.com";
+    }
+
+    public static String customerName(long customerId) {
+        return "Cliente " + customerId;
+    }
+
+    /**
+     * Loads the whole data set and returns the time it took.
+     */
+    public Duration generate(LocalDate today) {
+        long start = System.nanoTime();
+        SplittableRandom random = new SplittableRandom(seed);
+        insertBooks();
+        insertCustomers();
+        insertLoans(random.split(), today);
+        insertArchivedLoans(random.split(), today);
+        restartIdentity("book", books);
+        restartIdentity("customer", customers);
+        restartSequence("loan_seq", (long) loans + archivedLoans);
+        return Duration.ofNanos(System.nanoTime() - start);
+    }
+
+    private void insertBooks() {
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (long id = 1; id <= books; id++) {
+            String isbn = isbn(id);
+            batch.add(new Object[]{id, "Livro " + id, "Autor " + (id % 5_000), isbn, Long.parseLong(isbn), 1, 1});
+            flushIfFull("insert into book (id, title, author, isbn, isbn_key, copies, available) values (?, ?, ?, ?, ?, ?, ?)",
+                    batch, id == books);
+        }
+    }
+
+    private void insertCustomers() {
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (long id = 1; id <= customers; id++) {
+            batch.add(new Object[]{id, customerName(id), email(id)});
+            flushIfFull("insert into customer (id, name, email) values (?, ?, ?)", batch, id == customers);
+        }
+    }
+
+    private void insertLoans(SplittableRandom random, LocalDate today) {
+        String sql = "insert into loan (id, isbn, customer, customer_email, id_customer, id_book, loan_date, " +
+                "due_date, returned, reminder_count, next_reminder_date) values (?, ?, ?, ?, ?, ?, ?, ?, ?, 0, ?)";
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (long id = 1; id <= loans; id++) {
+            long book = skewed(random, books, 3);
+            long customer = skewed(random, customers, 2);
+            boolean active = random.nextDouble() < activeRatio;
+            LocalDate loanDate;
+            LocalDate nextReminder = null;
+            if (!active) {
+                loanDate = today.minusDays(random.nextInt(LOAN_DAYS, 365));
+            } else if (random.nextDouble() < overdueRatio) {
+                loanDate = today.minusDays(random.nextInt(LOAN_DAYS + 1, 60));
+                nextReminder = loanDate.plusDays(LOAN_DAYS + 1);
+            } else {
+                loanDate = today.minusDays(random.nextInt(0, LOAN_DAYS));
+                nextReminder = loanDate.plusDays(LOAN_DAYS + 1);
+            }
+            batch.add(new Object[]{id, isbn(book), customerName(customer), email(customer), customer, book,
+                    Date.valueOf(loanDate), Date.valueOf(loanDate.plusDays(LOAN_DAYS)), !active,
+                    nextReminder == null ? null : Date.valueOf(nextReminder)});
+            flushIfFull(sql, batch, id == loans);
+        }
+    }
+
+    private void insertArchivedLoans(SplittableRandom random, LocalDate today) {
+        String sql = "insert into loan_archive (id, isbn, customer, customer_email, id_customer, id_book, loan_date, " +
+                "due_date, returned, reminder_count, archived_date) values (?, ?, ?, ?, ?, ?, ?, ?, true, 0, ?)";
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (long i = 1; i <= archivedLoans; i++) {
+            long book = skewed(random, books, 3);
+            long customer = skewed(random, customers, 2);
+            LocalDate loanDate = today.minusDays(random.nextInt(365, 3 * 365));
+            batch.add(new Object[]{loans + i, isbn(book), customerName(customer), email(customer), customer, book,
+                    Date.valueOf(loanDate), Date.valueOf(loanDate.plusDays(LOAN_DAYS)), Date.valueOf(loanDate.plusDays(120))});
+            flushIfFull(sql, batch, i == archivedLoans);
+        }
+    }
+
+    /**
+     * Id in {@code [1, n]}, biased towards low ids by raising a uniform draw to {@code exponent}.
+     */
+    private static long skewed(SplittableRandom random, int n, int exponent) {
+        return 1 + (long) (n * Math.pow(random.nextDouble(), exponent));
+    }
+
+    private void flushIfFull(String sql, List<Object[]> batch, boolean last) {
+        if (batch.size() >= BATCH_SIZE || (last && !batch.isEmpty())) {
+            jdbcTemplate.batchUpdate(sql, batch);
+            batch.clear();
+        }
+    }
+
+    private void restartIdentity(String table, long lastId) {
+        jdbcTemplate.execute("alter table " + table + " alter column id restart with " + (lastId + 1));
+    }
+
+    private void restartSequence(String sequence, long lastId) {
+        jdbcTemplate.execute("alter sequence " + sequence + " restart with " + (lastId + 1));
+    }
+}
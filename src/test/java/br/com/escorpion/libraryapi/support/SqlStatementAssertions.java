@@ -0,0 +1,50 @@
+package br.com.escorpion.libraryapi.support;
+
+import br.com.escorpion.libraryapi.api.filter.SqlStatsFilter;
+import br.com.escorpion.libraryapi.config.SqlStats;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Helpers to put an upper bound on the SQL a code path issues, so an N+1 shows up as a
+ * failing test instead of a slow endpoint.
+ */
+public final class SqlStatementAssertions {
+
+    private SqlStatementAssertions() {
+    }
+
+    /**
+     * Runs the action inside its own {@link SqlStats} scope and returns the totals.
+     */
+    public static SqlStats.Scope capture(Runnable action) {
+        try (SqlStats.Scope scope = SqlStats.open()) {
+            action.run();
+            return scope;
+        }
+    }
+
+    /**
+     * Reads the {@code X-Sql-Statements} header, so the context under test needs
+     * {@code application.sql-stats.headers=true}.
+     */
+    public static ResultMatcher statementsAtMost(long max) {
+        return result -> {
+            String header = result.getResponse().getHeader(SqlStatsFilter.STATEMENTS_HEADER);
+            assertThat(header).as("header %s", SqlStatsFilter.STATEMENTS_HEADER).isNotNull();
+            assertThat(Long.parseLong(header)).as("SQL statements").isLessThanOrEqualTo(max);
+        };
+    }
+
+    /**
+     * Fails when a single SQL string ran more than {@code max} times, the shape of an N+1.
+     */
+    public static ResultMatcher repeatsAtMost(int max) {
+        return result -> {
+            String header = result.getResponse().getHeader(SqlStatsFilter.MAX_REPEATS_HEADER);
+            assertThat(header).as("header %s", SqlStatsFilter.MAX_REPEATS_HEADER).isNotNull();
+            assertThat(Integer.parseInt(header)).as("repeats of one SQL statement").isLessThanOrEqualTo(max);
+        };
+    }
+}